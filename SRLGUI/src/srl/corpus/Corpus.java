@@ -12,6 +12,7 @@ package srl.corpus;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import srl.tools.process.ProgressMonitor;
 import srl.tools.process.StopSignal;
@@ -33,36 +34,76 @@ import srl.tools.struct.*;
  * <ol><li> Head File</li>
  *   <ul>
  *      <li> Field "name": The document name as it appears in the document </li>
- *      <li> Field "originalContents": The raw text of the document </li>
+ *      <li> Field "originalContents": The raw text of the document (stored, not indexed) </li>
  *      <li> Field "sentCount": The number of contexts this document is split into </li>
  *      <li>  Field "uid": A unique identifier (a long integer value) </li>
+ *      <li> Field "key": The document name (not tokenized) </li>
+ *      <li> Field "docName": The document name (not tokenized) </li>
  *   </ul>
  * 
  *   <li>Context File</li>
  *   <ul>
  *      <li> Field "name": Of the form "name #" where name is the document name and # is the context number </li>
  *      <li> Field "contents": The tokenized contents of the context </li>
- *      <li> Field "taggedContents": The tokenized contents with the tags </li>
+ *      <li> Field "taggedContents": The tokenized contents with the tags. This is
+ *           only stored if it differs from "contents", see taggedContents(Document) </li>
+ *      <li> Field "pretaggedContents": The tagged contents when the context was
+ *           added (stored, not indexed). This is only stored if it differs from "contents" </li>
  *      <li> Field "extracted": The extracted templates </li>
  *      <li> Field "wordlists": The wordlists containing terms in this context </li>
  *      <li> Field "wordlistsets": The wordlist sets containing terms in this context </li>
  *      <li> Field "uid": A unique identifier (a long integer value) </li>
+ *      <li> Field "key": The same as "name", but not tokenized </li>
+ *      <li> Field "docName": The name of the document the context is in (not tokenized) </li>
+ *      <li> Field "grams": The character trigrams of the tokens, with the start and end of
+ *           each token marked by ^ and $ (indexed, not stored) </li>
+ *      <li> Field "categories": The character categories occurring in the tokens, e.g., "Lu" and "L" </li>
+ *      <li> Field "charIndex": The version of the "grams" and "categories" fields (not tokenized) </li>
+ *      <li> Field "sid": The ID of the tokenized context in the sentence store (stored, not indexed) </li>
  *    </ul>
  * </ol>
+ * The "key" and "docName" fields are used to find a document, a context or all
+ * the contexts of a document with a single term lookup. Corpora made before these
+ * fields were added are searched on the "name" field instead. Similarly, the "grams"
+ * and "categories" fields are only queried if every context has the current
+ * "charIndex".
  * @author John McCrae, National Institute of Informatics
  */
 public class Corpus {
 
     IndexWriter indexWriter;
-    IndexSearcher indexSearcher;
     Processor processor;
-    HashSet<String> docNames;
+    Set<String> docNames;
     private File indexFile;
+    private boolean mapped;
+    /** True if every document in the index has the "key" and "docName" fields */
+    private boolean keyed = true;
+    /** True if every context in the index has the "grams" and "categories" fields */
+    private boolean charIndexed = true;
+    /** The value of the "charIndex" field of contexts with the current "grams" and "categories" fields */
+    static final String CHAR_INDEX_VERSION = "1";
+    /** The default maximum size of the cache of tokenized contexts (in bytes) */
+    public static final long DEFAULT_TOKEN_CACHE_SIZE = 16 * 1024 * 1024;
+    private final TokenCache tokenCache = new TokenCache(DEFAULT_TOKEN_CACHE_SIZE);
     private long lock = 0;
-    // This is used to track changes that are being made to a corpus
-    // but require querying the corpus to fulfill these changes. If
-    // we didn't use this then this may lead to inconsistent results
-    private Thread updateThread;
+    /** The thread holding the lock */
+    private Thread openThread;
+    /** The current snapshot of the index. Readers hold a reference to this (see
+     * IndexReader.incRef()) while they use it, so it is not closed under them
+     * when it is replaced */
+    private IndexReader snapshot;
+    private final Object snapshotLock = new Object();
+    /** The generations of the snapshot, of the contents and word lists, and of
+     * the tags of the corpus. Each is increased when a change to it is committed,
+     * and is used to tell if the cached hits of a query are out of date */
+    private long snapshotGeneration = 0, contentsGeneration = 0, tagsGeneration = 0;
+    /** True if the contents or tags have been changed since the last commit */
+    private boolean contentsChanged = false, tagsChanged = false;
+    /** The default maximum size of the cache of query hits (in bytes) */
+    public static final long DEFAULT_QUERY_CACHE_SIZE = 16 * 1024 * 1024;
+    private final QueryCache queryCache = new QueryCache(DEFAULT_QUERY_CACHE_SIZE);
+    /** The tokenized contexts, or null if the corpus is closed (see sentences()) */
+    private volatile SentenceStore sentences;
 
     private Corpus() {
     }
@@ -82,14 +123,36 @@ public class Corpus {
      * @throws IOException If a disk error occured 
      */
     public void closeCorpus() throws IOException {
-        if (indexWriter != null) {
-            indexWriter.optimize();
-            indexWriter.close();
-            indexWriter = null;
+        if (!holdsLock()) {
+            try {
+                waitOnWordListUpdates();
+            } catch (CorpusConcurrencyException x) {
+                x.printStackTrace();
+            }
+        }
+        synchronized (this) {
+            if (indexWriter != null) {
+                indexWriter.optimize();
+                indexWriter.close();
+                indexWriter = null;
+            }
+        }
+        synchronized(snapshotLock) {
+            if (snapshot != null) {
+                snapshot.decRef();
+                snapshot = null;
+            }
+        }
+        SentenceStore store;
+        synchronized(snapshotLock) {
+            store = sentences;
+            sentences = null;
         }
-        if (indexSearcher != null) {
-            indexSearcher.close();
+        if (store != null) {
+            store.close();
         }
+        tokenCache.clear();
+        queryCache.clear();
     }
 
     /** Opens the corpus so that new documents can be added
@@ -98,137 +161,238 @@ public class Corpus {
      * @param newIndex If true any index on existing path will be removed
      */
     public static Corpus openCorpus(File indexFile, Processor processor, boolean newIndex) throws IOException {
+        return openCorpus(indexFile, processor, newIndex, false);
+    }
+
+    /** Opens the corpus so that new documents can be added
+     * @param indexFile The location of the indexFile
+     * @param processor An instance of the processor used
+     * @param newIndex If true any index on existing path will be removed
+     * @param mapped If true the index is read from memory mapped files. This
+     * is recommended for reading large corpora, e.g., when tagging or extracting
+     * templates, as the operating system can keep the parts of the index which
+     * are used in memory without the corpus being loaded into the heap.
+     * The corpus may still be changed.
+     * @see #isMapped()
+     */
+    public static Corpus openCorpus(File indexFile, Processor processor, boolean newIndex, boolean mapped) throws IOException {
         Corpus c = new Corpus();
         c.indexFile = indexFile;
         c.processor = processor;
-        c.indexWriter = new IndexWriter(indexFile, processor.getAnalyzer(), newIndex);
-        c.docNames = new HashSet<String>();
+        c.mapped = mapped;
+        c.dir = c.openDirectory();
+        boolean create = newIndex || !IndexReader.indexExists(c.dir);
+        if (create) {
+            new IndexWriter(c.dir, processor.getAnalyzer(), true, IndexWriter.MaxFieldLength.LIMITED).close();
+        }
+        c.sentences = SentenceStore.open(indexFile, create, mapped);
+        c.docNames = Collections.synchronizedSet(new HashSet<String>());
         if (!newIndex) {
-            try {
-                c.closeIndex(0);
-                c.docNames.addAll(c.extractDocNames());
-            } catch (CorpusConcurrencyException x) {
-                x.printStackTrace();
-                throw new RuntimeException("ERROR: Concurrency exception");
-            }
-            //c.reopenIndex(false);
+            BitSet sids = new BitSet();
+            c.docNames.addAll(c.extractDocNames(sids));
+            c.compactSentences(sids);
         }
         return c;
     }
     
-    private List<String> extractDocNames() throws IOException, IllegalStateException, CorpusConcurrencyException {
-        if (indexSearcher == null) {
-            closeIndex(0);
-        }
-        List<String> rv = new Vector<String>();
-        for (int i = 0; i < indexSearcher.maxDoc(); i++) {
-            String docName;
-            try {
-                docName = indexSearcher.doc(i).getField("name").stringValue();
-            } catch (IllegalArgumentException x) {
-                System.err.println("WARNING: Access to deleted document");
-                continue;
+    /**
+     * Read the names of the documents in the index
+     * @param sids Set to the IDs in the sentence store of the contexts in the index
+     */
+    private List<String> extractDocNames(BitSet sids) throws IOException {
+        IndexReader reader = acquireReader();
+        try {
+            List<String> rv = new Vector<String>();
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                if (reader.isDeleted(i)) {
+                    continue;
+                }
+                Document d = reader.document(i);
+                String docName = d.getField("name").stringValue();
+                String uid = d.getField("uid").stringValue();
+                if (d.getField("key") == null) {
+                    keyed = false;
+                }
+                if (d.getField("contents") != null && !CHAR_INDEX_VERSION.equals(d.get("charIndex"))) {
+                    charIndexed = false;
+                }
+                if (d.getField("sid") != null) {
+                    sids.set(Integer.parseInt(d.get("sid")));
+                }
+                if (docName.matches("\\w+")) {
+                    rv.add(docName);
+                    uids.add(uid);
+                }
             }
-            String uid = indexSearcher.doc(i).getField("uid").stringValue();
-            if (docName.matches("\\w+")) {
-                rv.add(docName);
-                uids.add(uid);
+            return rv;
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Concurrency
+    //
+    // Reading and writing the corpus are separate. Queries and other reads
+    // use a snapshot of the index as it was at the last commit, and are never
+    // blocked by writing. Only one thread may write at a time: it obtains the
+    // lock with reopenIndex(), and when it calls closeIndex() or optimizeIndex()
+    // its changes are committed and the snapshot is refreshed, so later reads
+    // see them. Reads made while the lock is held see the corpus as it was
+    // before the lock was taken.
+    //
+    // The correct way to open the corpus for writing is as follows
+    // long id = reopenIndex();
+    //    .... edit corpus ...
+    // if(id != 0)
+    //     closeIndex(id);
+
+    /**
+     * (expert) Get the current snapshot of the index for reading. The reader
+     * will not change or be closed until it is released with releaseReader(), so
+     * it is safe to use while other threads write to the corpus. Every call must
+     * be matched by exactly one call to releaseReader().
+     * @return A reader of the corpus as it was at the last commit
+     * @throws java.io.IOException If the index could not be opened
+     */
+    public IndexReader acquireReader() throws IOException {
+        synchronized(snapshotLock) {
+            if (snapshot == null) {
+                snapshot = IndexReader.open(dir);
+                snapshotGeneration++;
             }
+            snapshot.incRef();
+            return snapshot;
         }
-        return rv;
     }
 
-       
-    
-    /** Optimize the index. Call this only after significant changes to the corpus. It may take several
-     * seconds, but will improve search speed afterwards (YMMV).
+    /**
+     * (expert) Release a reader obtained from acquireReader()
+     * @param reader The reader
+     * @throws java.io.IOException If the reader could not be closed
      */
-    public synchronized void optimizeIndex(long lockID) throws IOException, CorpusConcurrencyException {
-        //synchronized (this) {
-            if (lock != lockID) {
-                throw new CorpusConcurrencyException("Corpus is locked, this operation is not permitted until unlock");
+    public void releaseReader(IndexReader reader) throws IOException {
+        reader.decRef();
+    }
+
+    /** Replace the snapshot by the index as of the last commit */
+    private void refreshSnapshot() throws IOException {
+        synchronized(snapshotLock) {
+            if (contentsChanged) {
+                contentsGeneration++;
+                contentsChanged = false;
             }
-            lock = 0;
-            if(indexWriter == null)
-                indexWriter = new IndexWriter(dir, processor.getAnalyzer(), false);
-            indexWriter.optimize();
-            indexWriter.close();
+            if (tagsChanged) {
+                tagsGeneration++;
+                tagsChanged = false;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            IndexReader newSnapshot = snapshot.reopen();
+            if (newSnapshot != snapshot) {
+                IndexReader old = snapshot;
+                snapshot = newSnapshot;
+                snapshotGeneration++;
+                old.decRef();
+            }
+        }
+    }
 
-            if (dir instanceof RAMDirectory) {
-                dir = new RAMDirectory(indexFile);
+    /**
+     * Note a change to the corpus, which will invalidate the cached hits of
+     * queries when it is committed
+     * @param contents True if the contents or word lists of contexts have changed,
+     * false if only their tags have changed
+     */
+    private void changed(boolean contents) {
+        synchronized(snapshotLock) {
+            if (contents) {
+                contentsChanged = true;
             } else {
-                dir = FSDirectory.getDirectory(indexFile);
+                tagsChanged = true;
             }
+        }
+    }
 
-            indexSearcher = new IndexSearcher(dir);
+    /** Commit and close the writer, refresh the snapshot and release the lock */
+    private void commit(boolean optimize) throws IOException {
+        try {
+            if (indexWriter != null) {
+                if (optimize) {
+                    indexWriter.optimize();
+                }
+                // The contexts committed must have their records in the sentence store
+                SentenceStore store = sentences();
+                if (store != null) {
+                    store.sync();
+                }
+                indexWriter.close();
+            }
+        } finally {
             indexWriter = null;
+            lock = 0;
             openThread = null;
             notifyAll();
-        //}
+        }
+        refreshSnapshot();
     }
 
-    /** Close the corpus, after which no more documents can be added. Also commits the corpus to disk */
-    /*public void closeIndex() throws IOException, CorpusConcurrencyException {
-        closeIndex(0);
-    }*/
+    /** Discard the changes made since the lock was taken and release the lock */
+    private synchronized void rollback(long lockID) throws IOException {
+        if (lock != lockID) {
+            return;
+        }
+        try {
+            if (indexWriter != null) {
+                indexWriter.rollback();
+            }
+        } finally {
+            synchronized(snapshotLock) {
+                contentsChanged = tagsChanged = false;
+            }
+            indexWriter = null;
+            lock = 0;
+            openThread = null;
+            notifyAll();
+        }
+    }
 
-    // NOTE: The correctly to open the corpus for read/write should be as follows
-    // long id = reopenIndex();
-    //    .... edit corpus ...
-    // if(id != 0)
-    //     closeIndex(id);
+    /** Optimize the index. Call this only after significant changes to the corpus. It may take several
+     * seconds, but will improve search speed afterwards (YMMV). This also commits any changes made
+     * and releases the lock
+     * @param lockID The lockID returned from reopenIndex(), or 0 if the corpus is not locked
+     * @throws CorpusConcurrencyException If the corpus is locked by another lock
+     */
+    public synchronized void optimizeIndex(long lockID) throws IOException, CorpusConcurrencyException {
+        if (lock != lockID) {
+            throw new CorpusConcurrencyException("Corpus is locked, this operation is not permitted until unlock");
+        }
+        if (indexWriter == null) {
+            indexWriter = new IndexWriter(dir, processor.getAnalyzer(), false, IndexWriter.MaxFieldLength.LIMITED);
+        }
+        commit(true);
+    }
 
-    /** Close the corpus, after which no more documents can be added. Use this method if
+    /** Close the corpus for writing and commit the changes, so that they
+     * can be seen by queries. Use this method if
      * you called reopenIndex(), as then only this method with the correct
      * lock value can be used to close the corpus.
      * @param lockID The lockID returned from reopenIndex()
      * @throws java.io.IOException
-     * @throws srl.corpus.CorpusConcurrencyException
+     * @throws srl.corpus.CorpusConcurrencyException If the corpus is locked by another lock
      */
     public synchronized void closeIndex(long lockID) throws IOException, CorpusConcurrencyException {
-        //synchronized (this) {
-            if(updateThread != null && updateThread != Thread.currentThread()) {
-                try {
-                    updateThread.join();
-                } catch(Exception x) {
-                    x.printStackTrace();
-                }
-            }
-            if (lock != lockID) {
-                throw new CorpusConcurrencyException("Corpus is locked, this operation is not permitted until unlock");
-            }
-            lock = 0;
-            if(indexWriter == null)
-                return;
-            dir = indexWriter.getDirectory();
-            indexWriter.close();
-
-
-            if (dir instanceof RAMDirectory) {
-                dir = new RAMDirectory(indexFile);
-            } else {
-                dir = FSDirectory.getDirectory(indexFile);
-            }
-
-            indexSearcher = new IndexSearcher(dir);
-            indexWriter = null;
-            openThread = null;
-            this.notifyAll();
-        //}
+        if (lock != lockID) {
+            throw new CorpusConcurrencyException("Corpus is locked, this operation is not permitted until unlock");
+        }
+        if (indexWriter == null) {
+            return;
+        }
+        commit(false);
     }
     Directory dir;
 
-
-    /** Reopen the index to add new documents. This is equivalent ot reopenIndex(false);
-     *
-     */
-    /*public void reopenIndex() throws IOException {
-        reopenIndex(false);
-    }*/
-
-    private Thread openThread;
-    private Object openSignal = new Object();
-
     /**
      * Reopen the index to add new documents. Same as reopenIndex(true)
      * @return The Lock ID
@@ -243,38 +407,39 @@ public class Corpus {
      * Reopen the index to add new documents. If the second parameter is set the
      * current thread will wait until the corpus next becomes unlocked. If not the
      * function will throw a CorpusConcurrencyException if it can't obtain a lock.
+     * Queries are not blocked while the corpus is locked.
      * @param wait If true wait until the index can be reopened.
-     * @return The index lock ID
+     * @return The index lock ID, or 0 if this thread already holds the lock
      * @throws java.io.IOException
      * @throws srl.corpus.CorpusConcurrencyException
      */
     public synchronized long reopenIndex(boolean wait) throws IOException, CorpusConcurrencyException {
-       
-        //synchronized (this) {
-            if(updateThread != null && updateThread != Thread.currentThread()) {
-                try {
-                    updateThread.join();
-                } catch(Exception x) {
-                    x.printStackTrace();
-                }
+        if (lock != 0 && openThread == Thread.currentThread()) {
+            return 0;
+        }
+        while (lock != 0) {
+            if (!openThread.isAlive()) {
+                // The thread holding the lock died, so take it over
+                break;
             }
-            if (indexWriter != null) {
-                if(this.lock == 0) {// Corpus is open but not locked so lock it
-                    openThread = Thread.currentThread();
-                    return this.lock = random.nextLong();
-                }
-                return 0;
+            if (!wait) {
+                throw new CorpusConcurrencyException("Corpus is locked, this operation is not permitted until unlock");
             }
-             while(wait && this.lock != 0) {
-                if(waitOnCorpusUnlock() != 0)
-                    lock = 0;
+            try {
+                this.wait();
+            } catch (InterruptedException x) {
+                x.printStackTrace();
             }
-            indexSearcher.close();
-            indexWriter = new IndexWriter(dir, processor.getAnalyzer(), false);
-            indexSearcher = null;
-            openThread = Thread.currentThread();
-            return this.lock = random.nextLong();
-        //}
+        }
+        if (indexWriter == null) {
+            indexWriter = new IndexWriter(dir, processor.getAnalyzer(), false, IndexWriter.MaxFieldLength.LIMITED);
+        }
+        openThread = Thread.currentThread();
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return this.lock = id;
     }
 
     /**
@@ -284,17 +449,19 @@ public class Corpus {
      * lock value is 'given' to the next thread via this method)
      */
     public synchronized long waitOnCorpusUnlock() throws CorpusConcurrencyException {
-        if(lock == 0)
-            return 0;
-        if(Thread.currentThread() == openThread) {
-            throw new CorpusConcurrencyException("Thread is attempting to wait on itself");
-        }
-        if(!openThread.isAlive())
-            return lock;
-        try {
-            this.wait();
-        } catch(InterruptedException x) {
-            x.printStackTrace();
+        while (lock != 0) {
+            if (Thread.currentThread() == openThread) {
+                throw new CorpusConcurrencyException("Thread is attempting to wait on itself");
+            }
+            if (!openThread.isAlive()) {
+                return lock;
+            }
+            try {
+                this.wait();
+            } catch (InterruptedException x) {
+                x.printStackTrace();
+                return 0;
+            }
         }
         return 0;
     }
@@ -305,13 +472,20 @@ public class Corpus {
      * @param value True for use RAM, false for use disk
      * @deprecated
      */
-    public void setUseRAM(boolean value) throws IOException, CorpusConcurrencyException {
-        if(indexSearcher == null)
-            closeIndex(0);
+    public synchronized void setUseRAM(boolean value) throws IOException, CorpusConcurrencyException {
+        if (lock != 0) {
+            throw new CorpusConcurrencyException("Corpus is locked, this operation is not permitted until unlock");
+        }
         if (value && !(dir instanceof RAMDirectory)) {
             dir = new RAMDirectory(dir);
         } else {
-            dir = FSDirectory.getDirectory(indexFile);
+            dir = openDirectory();
+        }
+        synchronized(snapshotLock) {
+            if (snapshot != null) {
+                snapshot.decRef();
+                snapshot = null;
+            }
         }
     }
 
@@ -322,6 +496,20 @@ public class Corpus {
         return dir instanceof RAMDirectory;
     }
 
+    /** Is the index read from memory mapped files
+     * @see #openCorpus(File, Processor, boolean, boolean) */
+    public boolean isMapped() {
+        return dir instanceof MappedDirectory;
+    }
+
+    private Directory openDirectory() throws IOException {
+        if (mapped) {
+            return new MappedDirectory(FSDirectory.getDirectory(indexFile));
+        } else {
+            return FSDirectory.getDirectory(indexFile);
+        }
+    }
+
     
     
     ////////////////////////////////////////////////////////////////////////////
@@ -356,11 +544,121 @@ public class Corpus {
         if (docNames.contains(name)) {
             throw new IllegalArgumentException(name + " already exists in corpus");
         }
+        docNames.add(name);
+        changed(true);
+        for (Document d : buildDoc(name, contents, tagged)) {
+            indexWriter.addDocument(d);
+        }
+        if(id != 0)
+            closeIndex(id);
+    }
+
+    /** Add many documents to the corpus, using one thread per processor. See
+     * addDocs(Iterable,boolean,int,boolean) */
+    public void addDocs(Iterable<Pair<String, String>> docs, boolean tagged, boolean wait) throws IOException, IllegalArgumentException, CorpusConcurrencyException {
+        addDocs(docs, tagged, Runtime.getRuntime().availableProcessors(), wait);
+    }
+
+    /** Add many documents to the corpus. This is much faster than calling
+     * addDoc() for each document: the lock is taken once, the index writer
+     * buffers more documents in memory and merges less often while loading, the
+     * documents are split into sentences by several threads and all the documents
+     * are committed together at the end. The documents are read from the iterable
+     * as they are needed, so it may read them lazily (e.g., from files). If any
+     * document cannot be added, none of the documents are added (unless the
+     * calling thread already holds the lock, in which case the documents added
+     * so far are left to the caller to commit).
+     * @param docs The documents as pairs of name and text
+     * @param tagged Treat the documents as pre-tagged
+     * @param threads The number of threads used to split the documents
+     * @param wait If the corpus is being used by another thread, this parameter sets
+     * whether the thread should wait or throw a CorpusConcurrencyException
+     * @throws CorpusConcurrencyException If the corpus is locked and wait is false
+     * @throws IOException The documents couldn't be added
+     * @throws IllegalArgumentException If a document name already exists, or threads is less than 1
+     */
+    public void addDocs(Iterable<Pair<String, String>> docs, final boolean tagged, int threads, boolean wait) throws IOException, IllegalArgumentException, CorpusConcurrencyException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        long id = reopenIndex(wait);
+        double ramBuffer = indexWriter.getRAMBufferSizeMB();
+        int mergeFactor = indexWriter.getMergeFactor();
+        indexWriter.setRAMBufferSizeMB(Math.max(ramBuffer, BULK_BUFFER_MB));
+        indexWriter.setMergeFactor(Math.max(mergeFactor, BULK_MERGE_FACTOR));
+        List<String> added = new LinkedList<String>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        boolean success = false;
+        try {
+            // The documents are added in order, and only a few are held in
+            // memory at once
+            LinkedList<Future<List<Document>>> pending = new LinkedList<Future<List<Document>>>();
+            for (Pair<String, String> doc : docs) {
+                final String name = doc.first.toLowerCase();
+                final String contents = doc.second;
+                if (!docNames.add(name)) {
+                    throw new IllegalArgumentException(name + " already exists in corpus");
+                }
+                added.add(name);
+                pending.add(pool.submit(new Callable<List<Document>>() {
+
+                    public List<Document> call() {
+                        return buildDoc(name, contents, tagged);
+                    }
+                }));
+                if (pending.size() >= threads * 4) {
+                    addDocuments(pending.removeFirst());
+                }
+            }
+            while (!pending.isEmpty()) {
+                addDocuments(pending.removeFirst());
+            }
+            success = true;
+        } finally {
+            pool.shutdownNow();
+            if (success || id == 0) {
+                indexWriter.setRAMBufferSizeMB(ramBuffer);
+                indexWriter.setMergeFactor(mergeFactor);
+            }
+            if (!success) {
+                docNames.removeAll(added);
+                if (id != 0) {
+                    rollback(id);
+                }
+            } else if (id != 0) {
+                closeIndex(id);
+            }
+        }
+    }
+
+    private void addDocuments(Future<List<Document>> docs) throws IOException {
+        changed(true);
+        try {
+            for (Document d : docs.get()) {
+                indexWriter.addDocument(d);
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(x);
+        } catch (ExecutionException x) {
+            if (x.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) x.getCause();
+            }
+            throw new RuntimeException(x.getCause());
+        }
+    }
+
+    /** Split a document into sentences and build the Lucene documents for it.
+     * This may be called by several threads at once
+     * @return The contexts followed by the head document */
+    private List<Document> buildDoc(String name, String contents, boolean tagged) {
+        List<Document> rval = new LinkedList<Document>();
         Document d = new Document();
-        d.add(new Field("originalContents", tagged ? stripTags(contents) : contents, Field.Store.YES, Field.Index.TOKENIZED));
+        d.add(new Field("originalContents", tagged ? stripTags(contents) : contents, Field.Store.YES, Field.Index.NO));
         d.add(new Field("name", name, Field.Store.YES, Field.Index.TOKENIZED));
         d.add(new Field("uid", generateUID(), Field.Store.YES, Field.Index.TOKENIZED));
-        docNames.add(name);
+        d.add(new Field("key", name, Field.Store.YES, Field.Index.NO_NORMS));
+        d.add(new Field("docName", name, Field.Store.YES, Field.Index.NO_NORMS));
         int i = 0;
         for (Collection<org.apache.lucene.analysis.Token> sentence : processor.getSplitter().split(new SrlDocument(name, contents, processor), name)) {
             StringBuffer sent = new StringBuffer();
@@ -382,18 +680,64 @@ public class Corpus {
                 }
             }
             
-            addContext(name + " " + i, sent.toString(), tagged ? taggedSent.toString() : sent.toString(),
-                    tagged ? taggedSent.toString() : sent.toString(), null);
+            rval.add(buildContext(name + " " + i, sent.toString(), tagged ? taggedSent.toString() : sent.toString(),
+                    tagged ? taggedSent.toString() : sent.toString(), null));
              
             i++;
         }
         d.add(new Field("sentCount", i + "", Field.Store.YES, Field.Index.NO));
-        indexWriter.addDocument(d);
-        if(id != 0)
-            closeIndex(id);
+        rval.add(d);
+        return rval;
+    }
+    /**
+     * (expert) Add the character trigrams and the character categories of the tokens of a context
+     * to it, replacing any it has. These are used to query for rules built from regular
+     * expressions, partial literals and orthographic matches. (The trigrams are not
+     * stored, so they must be added again if a context is read from the index and re-added)
+     * @param d The context
+     * @param contents The contents of the context
+     * @see SrlQuery#grams
+     * @see SrlQuery#categories
+     */
+    void addCharacterFields(Document d, String contents) {
+        d.removeFields("grams");
+        d.removeFields("categories");
+        d.removeFields("charIndex");
+        Set<String> grams = new TreeSet<String>();
+        Set<String> categories = new TreeSet<String>();
+        org.apache.lucene.analysis.TokenStream ts = processor.getTokenStream(contents);
+        try {
+            for (org.apache.lucene.analysis.Token tk = ts.next(); tk != null; tk = ts.next()) {
+                String text = tk.termText();
+                SrlQuery.addGrams("^" + SrlQuery.lowerCase(text) + "$", grams);
+                for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+                    String category = SrlQuery.categoryName(Character.getType(text.codePointAt(i)));
+                    if (category != null) {
+                        categories.add(category);
+                        categories.add(category.substring(0, 1));
+                    }
+                }
+            }
+        } catch (IOException x) {
+            x.printStackTrace();
+            throw new RuntimeException(x.getMessage());
+        }
+        for (String gram : grams) {
+            d.add(new Field("grams", gram, Field.Store.NO, Field.Index.NO_NORMS));
+        }
+        for (String category : categories) {
+            d.add(new Field("categories", category, Field.Store.YES, Field.Index.NO_NORMS));
+        }
+        // Marks the context as indexed, as it may have no categories (e.g., if it is empty)
+        d.add(new Field("charIndex", CHAR_INDEX_VERSION, Field.Store.YES, Field.Index.NO_NORMS));
     }
+
     private HashSet<String> uids = new HashSet<String>();
     private Random random = new Random();
+    /** The size of the index writer's buffer (in MB) while adding many documents */
+    private static final double BULK_BUFFER_MB = 64.0;
+    /** The merge factor of the index writer while adding many documents */
+    private static final int BULK_MERGE_FACTOR = 50;
 
     /**
      * Add a single context
@@ -402,44 +746,122 @@ public class Corpus {
      * @param taggedContents Its tagged contents (or null if not applicable)
      */
     protected void addContext(String name, String contents, String taggedContents, String pretaggedContents, String extracted) throws CorruptIndexException, IOException {
+        indexWriter.addDocument(buildContext(name, contents, taggedContents, pretaggedContents, extracted));
+    }
+
+    private Document buildContext(String name, String contents, String taggedContents, String pretaggedContents, String extracted) {
         Document d2 = new Document();
             d2.add(new Field("contents", contents/*.toLowerCase()*/, Field.Store.YES, Field.Index.TOKENIZED));
             d2.add(new Field("name", name, Field.Store.YES, Field.Index.TOKENIZED));
             d2.add(new Field("uid", generateUID(), Field.Store.YES, Field.Index.TOKENIZED));
-            Set<Pair<String,String>> wls = wordListForDoc(contents);
+            d2.add(new Field("key", name, Field.Store.YES, Field.Index.NO_NORMS));
+            d2.add(new Field("docName", contextDocName(name), Field.Store.YES, Field.Index.NO_NORMS));
+            TokenArrayDocument contentsDoc = new TokenArrayDocument(name, contents, processor);
+            Set<String> wls = wordListsForContext(contentsDoc);
             StringBuffer wlNames = new StringBuffer(), wlSetNames = new StringBuffer();
-            for(Pair<String,String> wl : wls) {
-                wlNames.append(wl.first + " ");
-                WordListSet wls2 =WordListSet.getWordListSetByList(wl.first);
+            for(String wl : wls) {
+                wlNames.append(wl + " ");
+                WordListSet wls2 =WordListSet.getWordListSetByList(wl);
                 if(wls2 == null) {
-                    System.err.println("Could not locate " + wl.first);
+                    System.err.println("Could not locate " + wl);
                     continue;
                 }
                 wlSetNames.append(wls2.name + " ");
             }
             d2.add(new Field("wordlists", wlNames.toString(), Field.Store.YES, Field.Index.TOKENIZED));
             d2.add(new Field("wordlistsets", wlSetNames.toString(), Field.Store.YES, Field.Index.TOKENIZED));
+            addCharacterFields(d2, contents);
             
-            if(taggedContents != null)
+            // Most contexts have no tags, so the tagged forms are only kept if
+            // they add something to the contents
+            if(taggedContents != null && !taggedContents.equals(contents))
                 d2.add(new Field("taggedContents", taggedContents, Field.Store.YES, Field.Index.TOKENIZED));
-            if(pretaggedContents != null)
-                d2.add(new Field("pretaggedContents", pretaggedContents, Field.Store.YES, Field.Index.TOKENIZED));
+            if(pretaggedContents != null && !pretaggedContents.equals(contents))
+                d2.add(new Field("pretaggedContents", pretaggedContents, Field.Store.YES, Field.Index.NO));
             if(extracted != null)
                 d2.add(new Field("extracted", extracted, Field.Store.YES, Field.Index.TOKENIZED));
-            indexWriter.addDocument(d2);
+            int sid = addSentence(contentsDoc, taggedContents == null || taggedContents.equals(contents) ? null : taggedContents);
+            if(sid >= 0)
+                d2.add(new Field("sid", Integer.toString(sid), Field.Store.YES, Field.Index.NO));
+            return d2;
+    }
+
+    /**
+     * Add a context to the sentence store
+     * @param contents The tokenized contents
+     * @param taggedContents The tagged contents, or null if they are the same as the contents
+     * @return The ID of the record, or -1 if it could not be added (the context
+     * is then tokenized when it is read)
+     */
+    private int addSentence(TokenArrayDocument contents, String taggedContents) {
+        SentenceStore store = sentences();
+        if (store == null) {
+            return -1;
+        }
+        try {
+            return store.add(contents, taggedContents == null ? null :
+                new TokenArrayDocument(contents.getName(), taggedContents, processor));
+        } catch (IOException x) {
+            x.printStackTrace();
+            return -1;
+        }
+    }
+
+    /** Get the sentence store, opening it again if the corpus has been closed
+     * @return The store, or null if it could not be opened */
+    private SentenceStore sentences() {
+        SentenceStore store = sentences;
+        if (store != null) {
+            return store;
+        }
+        synchronized(snapshotLock) {
+            if (sentences == null) {
+                try {
+                    sentences = SentenceStore.open(indexFile, false, mapped);
+                } catch (IOException x) {
+                    x.printStackTrace();
+                }
+            }
+            return sentences;
+        }
+    }
+
+    /**
+     * Remove the records of the sentence store which are no longer used, if they
+     * are more than those which are. This is done when the corpus is opened, as it
+     * must not be read or written meanwhile
+     * @param sids The IDs of the records used by the contexts in the index
+     */
+    private void compactSentences(BitSet sids) {
+        if (sentences.records() > 2 * sids.cardinality()) {
+            try {
+                sentences.compact(sids);
+            } catch (IOException x) {
+                x.printStackTrace();
+            }
+        }
     }
     
+    /** The name of the document a context is in, i.e., the name of the context
+     * without the context number */
+    private static String contextDocName(String name) {
+        int space = name.lastIndexOf(' ');
+        return space < 0 ? name : name.substring(0, space);
+    }
+
     private static String stripTags(String s) {
         return s.replaceAll("<[^>]*>", "");
     }
     
     private String generateUID() {
-        String s;
-        do {
-            s = Math.abs(random.nextLong()) + "";
-        } while (uids.contains(s));
-        uids.add(s);
-        return s;
+        synchronized(uids) {
+            String s;
+            do {
+                s = Math.abs(random.nextLong()) + "";
+            } while (uids.contains(s));
+            uids.add(s);
+            return s;
+        }
     }
     
 
@@ -464,22 +886,48 @@ public class Corpus {
         return;
     }*/
 
-    private Set<Pair<String, String>> wordListForDoc(String contents) {
-        Set<Pair<String, String>> rval = new HashSet<Pair<String, String>>();
+    /** Find the word lists which have an entry in a context. The context is
+     * tokenized once, as it is when rules are matched, and then the trie of each
+     * word list is run over its terms, so this does not depend on the number of
+     * entries in the word lists */
+    private Set<String> wordListsForContext(TokenArrayDocument contents) {
+        int[] ids = contextTermIDs(contents);
+        Set<String> rval = new HashSet<String>();
         for (String name : WordListSet.getAllWordListNames()) {
-            if(WordListSet.getWordList(name) == null) {
+            WordList wordList = WordListSet.getWordList(name);
+            if(wordList == null) {
                 System.err.println("Could not find " + name);
                 continue;
             }
-            for (WordListEntry term : WordListSet.getWordList(name)) {
-                if (contents.toLowerCase().contains(term.toString())) {
-                    rval.add(new Pair(name, term.toString()));
-                    break;
-                }
+            if (wordList.occursIn(ids)) {
+                rval.add(name);
             }
         }
         return rval;
     }
+
+    /** The term IDs of the (non-whitespace) terms of a context */
+    private int[] contextTermIDs(TokenArrayDocument doc) {
+        int[] ids = new int[doc.size()];
+        int n = 0;
+        for (int i = 0; i < doc.size(); i++) {
+            if (doc.kind(i) == TokenArrayDocument.TERM && !isWhitespace(doc, i)) {
+                ids[n++] = doc.termID(i);
+            }
+        }
+        int[] rval = new int[n];
+        System.arraycopy(ids, 0, rval, 0, n);
+        return rval;
+    }
+
+    private static boolean isWhitespace(TokenArrayDocument doc, int i) {
+        for (int j = 0; j < doc.termLength(i); j++) {
+            if (!Character.isWhitespace(doc.charAt(i, j))) {
+                return false;
+            }
+        }
+        return true;
+    }
     
         /**
      * Does this corpus contain a particular document
@@ -492,7 +940,9 @@ public class Corpus {
     
     /** Get the names of all the documents in the corpus */
     public Set<String> getDocNames() {
-        return new TreeSet<String>(docNames);
+        synchronized(docNames) {
+            return new TreeSet<String>(docNames);
+        }
     }
     
     
@@ -503,24 +953,55 @@ public class Corpus {
      * @throws java.io.IOException If the corpus was not readable
      */
     protected Document getDoc(String name) throws IOException, CorpusConcurrencyException {
-        if (indexSearcher == null) {
-            closeIndex(0);
+        IndexReader reader = acquireReader();
+        try {
+            return getDoc(reader, name);
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * (expert) Find a document or a context by its exact name
+     * @param reader A reader of the corpus
+     * @param name The name of a document, or of a context, e.g., "doc 3"
+     * @return The document, or null if there is no document of this name
+     * @throws IOException If the corpus was not readable
+     */
+    Document getDoc(IndexReader reader, String name) throws IOException {
+        if (keyed) {
+            TermDocs td = reader.termDocs(new Term("key", name));
+            try {
+                return td.next() ? reader.document(td.doc()) : null;
+            } finally {
+                td.close();
+            }
+        }
+        for (Document d : getDocParts(reader, name.split(" ")[0])) {
+            if (d.getField("name").stringValue().equals(name)) {
+                return d;
+            }
         }
-        QueryParser qp = new QueryParser("name", processor.getAnalyzer());
+        return null;
+    }
+
+    /** Get a document and all of its contexts, in no particular order */
+    private List<Document> getDocParts(IndexReader reader, String docName) throws IOException {
+        List<Document> rval = new ArrayList<Document>();
+        TermDocs td = reader.termDocs(new Term(keyed ? "docName" : "name", docName));
         try {
-            Query q = qp.parse("\"" + cleanQuery(name) + "\"");
-            Hits hits = indexSearcher.search(q);
-            for (int i = 0; i < hits.length(); i++) {
-                if (hits.doc(i).getField("name").stringValue().equals(name)) {
-                    return hits.doc(i);
+            while (td.next()) {
+                Document d = reader.document(td.doc());
+                String name = d.getField("name").stringValue();
+                // Without the docName field, the name field of other contexts may contain the term
+                if (keyed || name.equals(docName) || name.startsWith(docName + " ")) {
+                    rval.add(d);
                 }
             }
-            return null;
-        } catch (org.apache.lucene.queryParser.ParseException x) {
-            x.printStackTrace();
-            return null;
+        } finally {
+            td.close();
         }
-
+        return rval;
     }
     
     
@@ -529,21 +1010,20 @@ public class Corpus {
      * @param uid The unique identifier
      */
     protected Document getDocByUID(String uid) throws IOException, CorpusConcurrencyException {
-        if(indexSearcher == null)
-            closeIndex(0);
-        QueryParser qp = new QueryParser("uid", processor.getAnalyzer());
+        IndexReader reader = acquireReader();
+        TermDocs td = reader.termDocs(new Term("uid", uid));
         try {
-            Query q = qp.parse(uid);
-            Hits hits = indexSearcher.search(q);
-            if(hits.length() == 0)
+            if (!td.next()) {
                 return null;
-            else if(hits.length() == 1) 
-                return hits.doc(0);
-            else
+            }
+            Document d = reader.document(td.doc());
+            if (td.next()) {
                 throw new IllegalStateException("UID not unique!");
-        } catch(ParseException x) {
-            x.printStackTrace();
-            return null;
+            }
+            return d;
+        } finally {
+            td.close();
+            releaseReader(reader);
         }
     }
 
@@ -564,35 +1044,36 @@ public class Corpus {
         return getDoc(validateDocName(name)).getField("originalContents").stringValue();
     }
 
-    private List<String> getDocFields(String docName, String fieldName) throws IOException, CorpusConcurrencyException {
+    private List<String> getDocFields(String docName, String fieldName, String defaultFieldName) throws IOException, CorpusConcurrencyException {
         docName = validateDocName(docName);
-           if(indexSearcher == null)
-            closeIndex(0);
-        QueryParser qp = new QueryParser("name", processor.getAnalyzer());
         Vector<String> rval = new Vector<String>();
+        Pattern contextName = Pattern.compile(".* (\\d+)");
+        IndexReader reader = acquireReader();
         try {
-            Query q = qp.parse("\"" + cleanQuery(docName) + "\"");
-            Hits hits = indexSearcher.search(q);
-            for (int i = 0; i < hits.length(); i++) {
-                String docName2 = hits.doc(i).getField("name").stringValue();
+            for (Document d : getDocParts(reader, docName)) {
+                String docName2 = d.getField("name").stringValue();
                 if (docName2.equals(docName)) { // Not necessary, but it's nice to set the vector to the correct size
-                    rval.setSize(Integer.parseInt(hits.doc(i).getField("sentCount").stringValue()));
+                    rval.setSize(Math.max(rval.size(), Integer.parseInt(d.getField("sentCount").stringValue())));
                 } else {
-                    Matcher m = Pattern.compile(".* (\\d+)").matcher(docName2);
+                    Matcher m = contextName.matcher(docName2);
                     if (!m.matches()) {
                         throw new RuntimeException("Invalid document name in corpus: " + docName2);
                     }
-                    if (hits.doc(i).getField(fieldName) != null) {
-                        rval.set(Integer.parseInt(m.group(1)),
-                                hits.doc(i).getField(fieldName).stringValue());
+                    int i = Integer.parseInt(m.group(1));
+                    if (i >= rval.size()) {
+                        rval.setSize(i + 1);
+                    }
+                    if (d.getField(fieldName) != null) {
+                        rval.set(i, d.getField(fieldName).stringValue());
+                    } else if (defaultFieldName != null && d.getField(defaultFieldName) != null) {
+                        rval.set(i, d.getField(defaultFieldName).stringValue());
                     } else {
-                        rval.set(Integer.parseInt(m.group(1)), "");
+                        rval.set(i, "");
                     }
                 }
             }
-        } catch (org.apache.lucene.queryParser.ParseException x) {
-            x.printStackTrace();
-            return null;
+        } finally {
+            releaseReader(reader);
         }
         return rval;
     }
@@ -604,14 +1085,14 @@ public class Corpus {
      * @throws IOException If a disk error occurred
      */
     public List<String> getDocSentences(String name) throws IOException, CorpusConcurrencyException {
-        return getDocFields(name, "contents");
+        return getDocFields(name, "contents", null);
     }
 
     /** Get the tagged contents (as stored) of the document.
      * @return The tagged contents of the document as a sentence-by-sentence list
      */
     public List<String> getDocTaggedContents(String name) throws IOException, CorpusConcurrencyException {
-        return getDocFields(name, "taggedContents");
+        return getDocFields(name, "taggedContents", "contents");
     }
 
     /**
@@ -619,7 +1100,116 @@ public class Corpus {
      * @return The extracted templates of the document as a sentence-by-sentence list
      */
     public List<String> getDocTemplateExtractions(String name) throws IOException, CorpusConcurrencyException {
-        return getDocFields(name, "extracted");
+        return getDocFields(name, "extracted", null);
+    }
+
+    /**
+     * Get the document sentence by sentence, with each sentence tokenized. The
+     * sentences are taken from the cache of tokenized contexts where possible
+     * @param name The document name
+     * @return A list of the tokenized sentences
+     * @throws IOException If a disk error occurred
+     * @see #getTokenizedContext(Document, boolean)
+     */
+    public List<TokenArrayDocument> getDocTokenizedSentences(String name) throws IOException, CorpusConcurrencyException {
+        return getDocTokenized(name, false);
+    }
+
+    /**
+     * Get the tagged contents of the document sentence by sentence, with each
+     * sentence tokenized. The sentences are taken from the cache of tokenized
+     * contexts where possible
+     * @param name The document name
+     * @return A list of the tokenized sentences
+     * @throws IOException If a disk error occurred
+     * @see #getTokenizedContext(Document, boolean)
+     */
+    public List<TokenArrayDocument> getDocTokenizedTaggedContents(String name) throws IOException, CorpusConcurrencyException {
+        return getDocTokenized(name, true);
+    }
+
+    private List<TokenArrayDocument> getDocTokenized(String docName, boolean tagged) throws IOException, CorpusConcurrencyException {
+        docName = validateDocName(docName);
+        Vector<TokenArrayDocument> rval = new Vector<TokenArrayDocument>();
+        IndexReader reader = acquireReader();
+        try {
+            for (Document d : getDocParts(reader, docName)) {
+                String name = d.getField("name").stringValue();
+                if (name.equals(docName)) {
+                    continue;
+                }
+                int i = Integer.parseInt(name.substring(name.lastIndexOf(' ') + 1));
+                if (i >= rval.size()) {
+                    rval.setSize(i + 1);
+                }
+                rval.set(i, getTokenizedContext(d, tagged));
+            }
+        } finally {
+            releaseReader(reader);
+        }
+        return rval;
+    }
+
+    /**
+     * Get a context as tokens. Tokenized contexts are kept in a cache of limited
+     * size shared by all users of the corpus, so contexts that are viewed or
+     * matched many times are only tokenized once. The document returned may be
+     * shared with other threads, and cannot be changed.
+     * @param d The context, e.g., as given by a query. If it does not have its "uid"
+     * field it is tokenized but not cached
+     * @param tagged If true tokenize the tagged contents, otherwise the contents
+     * @return The tokenized context
+     * @see #setTokenCacheSize(long)
+     */
+    public TokenArrayDocument getTokenizedContext(Document d, boolean tagged) {
+        Field uid = d.getField("uid");
+        if (uid == null) {
+            return readContext(d, tagged);
+        }
+        TokenArrayDocument doc = tokenCache.get(uid.stringValue(), tagged);
+        if (doc == null) {
+            doc = readContext(d, tagged);
+            tokenCache.put(uid.stringValue(), tagged, doc);
+        }
+        return doc;
+    }
+
+    /**
+     * (expert) Get a context as tokens, without caching it. The tokens are read
+     * from the sentence store if the context has a record there, and otherwise
+     * the context is tokenized
+     * @param d The context. If it has the "sid" field, it need not have its contents
+     * @param tagged If true get the tagged contents, otherwise the contents
+     * @return The tokenized context
+     */
+    TokenArrayDocument readContext(Document d, boolean tagged) {
+        Field sid = d.getField("sid");
+        SentenceStore store = sid == null ? null : sentences();
+        if (sid != null && store != null) {
+            try {
+                TokenArrayDocument doc = store.get(Integer.parseInt(sid.stringValue()), d.getField("name").stringValue(), tagged);
+                if (doc != null) {
+                    return doc;
+                }
+            } catch (IOException x) {
+                x.printStackTrace();
+            }
+        }
+        return new TokenArrayDocument(d, processor, tagged);
+    }
+
+    /**
+     * Set the maximum size of the cache of tokenized contexts
+     * @param bytes The size in bytes (0 to disable the cache)
+     * @see #getTokenizedContext(Document, boolean)
+     */
+    public void setTokenCacheSize(long bytes) {
+        tokenCache.setCapacity(bytes);
+    }
+
+    /** (expert) The cache of tokenized contexts */
+    TokenCache getTokenCache() {
+        return tokenCache;
     }
 
     /**
@@ -633,12 +1223,19 @@ public class Corpus {
     public void removeDoc(String name, boolean wait) throws IOException, CorpusConcurrencyException {
         name = validateDocName(name);
         long id = reopenIndex(wait);
-        indexWriter.deleteDocuments(new Term("name", name));
+        indexWriter.deleteDocuments(docTerm(name));
         docNames.remove(name);
+        tokenCache.removeDoc(name);
+        changed(true);
         if(id != 0)
             closeIndex(id);
     }
 
+    /** The term found in a document and all its contexts */
+    private Term docTerm(String name) {
+        return keyed ? new Term("docName", name) : new Term("name", name);
+    }
+
     /**
      * Change the contents of document in the corpus. 
      * 
@@ -658,9 +1255,11 @@ public class Corpus {
             }
         }
         long id = reopenIndex(wait);
-        indexWriter.deleteDocuments(new Term("name", name));
+        indexWriter.deleteDocuments(docTerm(name));
         //support.removeDoc(name);
         docNames.remove(name);
+        tokenCache.removeDoc(name);
+        changed(true);
         addDoc(name, contents,wait);
         if(id != 0)
             closeIndex(id);
@@ -688,6 +1287,11 @@ public class Corpus {
         }
         long id = reopenIndex(wait);
         indexWriter.deleteDocuments(new Term("uid", old.getField("uid").stringValue()));
+        tokenCache.remove(old.getField("uid").stringValue());
+        if (old.getField("contents") == null || !contents.equals(old.getField("contents").stringValue())) {
+            changed(true);
+        }
+        changed(false);
         //support.removeDoc(name);
         try {
             addContext(name,
@@ -712,56 +1316,90 @@ public class Corpus {
      * @throws CorpusConcurrencyException If the corpus is locked and wait is false
      */
     public void updateContexts(List<String> uids, boolean wait)  throws IOException, CorpusConcurrencyException {
-        LinkedList<Document> docs = new LinkedList<Document>();
-        for(String uid : uids) {
-            Document d = getDocByUID(uid);
-            if(d == null)
-                throw new IllegalArgumentException("UID " + uid + " not in corpus");
-            docs.add(d);
-        }
         long id = reopenIndex(wait);
-        Iterator<Document> dIter = docs.iterator();
-        for(String uid : uids) {
-            Document old = dIter.next();
-            indexWriter.deleteDocuments(new Term("uid",uid));
-            try {
-                addContext(old.getField("name").stringValue(),
-                    old.getField("contents").stringValue(),
-                    old.getField("taggedContents") != null ? old.getField("taggedContents").stringValue() : null,
-                    old.getField("pretaggedContents") != null ? old.getField("pretaggedContents").stringValue() : null,
-                    old.getField("extracted") != null ? old.getField("extracted").stringValue() : null);
-            } catch(NullPointerException x) {
-                System.err.println(uid);
-                System.err.println(old.getField("name"));
-                x.printStackTrace();
+        boolean success = false;
+        IndexReader reader = acquireReader();
+        TermDocs td = reader.termDocs();
+        try {
+            changed(true);
+            for(String uid : uids) {
+                tokenCache.remove(uid);
+                Term term = new Term("uid", uid);
+                td.seek(term);
+                if(!td.next())
+                    throw new IllegalArgumentException("UID " + uid + " not in corpus");
+                Document old = reader.document(td.doc());
+                try {
+                    indexWriter.updateDocument(term, buildContext(old.getField("name").stringValue(),
+                        old.getField("contents").stringValue(),
+                        taggedContents(old),
+                        old.getField("pretaggedContents") != null ? old.getField("pretaggedContents").stringValue() : null,
+                        old.getField("extracted") != null ? old.getField("extracted").stringValue() : null));
+                } catch(NullPointerException x) {
+                    System.err.println(uid);
+                    System.err.println(old.getField("name"));
+                    x.printStackTrace();
+                }
+            }
+            success = true;
+        } finally {
+            td.close();
+            releaseReader(reader);
+            if(id != 0) {
+                if(success)
+                    closeIndex(id);
+                else
+                    rollback(id);
             }
         }
-        if(id != 0)
-            closeIndex(id);
     }
     
     ////////////////////////////////////////////////////////////////////////////
     // Querying interface
     
-    private class SrlHitCollector extends HitCollector {
+    /** The fields of a context needed to match rules against it. Query hits only
+     * load these fields */
+    static final FieldSelector MATCH_FIELDS = new MapFieldSelector(new String[] { "name", "uid", "contents", "taggedContents", "sid" });
+
+    /**
+     * Get the tagged contents of a context. The tagged contents are not stored if
+     * they are the same as the contents (i.e., the context has no tags), in which
+     * case the contents are returned
+     * @param d The context
+     * @return The tagged contents or null if the document is not a context
+     */
+    public static String taggedContents(Document d) {
+        Field f = d.getField("taggedContents");
+        if(f == null)
+            f = d.getField("contents");
+        return f == null ? null : f.stringValue();
+    }
 
-        QueryHit qh;
-        StopSignal signal;
+    /** The most trigrams used to answer a query */
+    private static final int MAX_GRAM_CLAUSES = 64;
 
-        public SrlHitCollector(QueryHit qh, StopSignal signal) {
-            this.qh = qh;
-            this.signal = signal;
-        }
+    /** Collects the numbers of the documents hit by a query */
+    private static class DocCollector extends HitCollector {
+
+        int[] docs = new int[16];
+        int size = 0;
 
         @Override
         public void collect(int doc, float arg1) {
-            try {
-                qh.hit(indexSearcher.doc(doc), signal);
-            } catch (CorruptIndexException x) {
-                x.printStackTrace();
-            } catch (IOException x) {
-                x.printStackTrace();
+            if (size == docs.length) {
+                int[] d = new int[size * 2];
+                System.arraycopy(docs, 0, d, 0, size);
+                docs = d;
             }
+            docs[size++] = doc;
+        }
+
+        /** The documents hit in increasing order */
+        int[] getDocs() {
+            int[] rval = new int[size];
+            System.arraycopy(docs, 0, rval, 0, size);
+            Arrays.sort(rval);
+            return rval;
         }
     }
 
@@ -770,7 +1408,8 @@ public class Corpus {
     public interface QueryHit {
 
         /** The callback function
-         * @param d The document hit
+         * @param d The document hit. Only the fields used for matching (name, uid,
+         * contents, taggedContents and sid) are loaded
          * @param signal Allows premature halt of the query. (If you don't
          * know what this is ignore it, it's really not that important) */
         public void hit(Document d, StopSignal signal);
@@ -790,7 +1429,12 @@ public class Corpus {
 
     /**
      * Query the corpus. This is the method normally used for query based on a 
-     * SRL rule 
+     * SRL rule. The contexts hit by each query are cached, so a query is only
+     * executed again if the contents or word lists of the corpus have changed
+     * (or the tags, if the query uses them). The hits are given in the order of
+     * the index. A query on word lists waits for changes to the word lists to be
+     * applied, unless the corpus is locked by another thread, in which case the
+     * current snapshot is queried without them.
      * @param query The query normally returned from Rule.getQuery()
      * @param collector Every hit is passed to the hit(Document) method of the collector
      * @param signal An optional stop signal to abandon the query
@@ -798,16 +1442,52 @@ public class Corpus {
      * @see Rule#getCorpusQuery()
      */
     public void query(SrlQuery query, QueryHit collector, StopSignal signal) throws IOException, CorpusConcurrencyException {
-        if (indexSearcher == null) {
-            closeIndex(0);
+        if ((!query.wordLists.isEmpty() || !query.wordListSets.isEmpty()) && !holdsLock()) {
+            waitOnWordListUpdates(false);
+        }
+        IndexReader reader;
+        long snapshotGen, contentsGen, tagsGen;
+        synchronized(snapshotLock) {
+            reader = acquireReader();
+            snapshotGen = snapshotGeneration;
+            contentsGen = contentsGeneration;
+            tagsGen = query.entities.isEmpty() ? -1 : tagsGeneration;
+        }
+        try {
+            query(query, collector, signal, reader, snapshotGen, contentsGen, tagsGen);
+        } finally {
+            releaseReader(reader);
         }
+    }
+
+    private void query(SrlQuery query, QueryHit collector, StopSignal signal, IndexReader reader,
+            long snapshotGen, long contentsGen, long tagsGen) throws IOException {
         if (query.query.toString().matches("\\s*") &&
                 query.entities.isEmpty() &&
                 query.wordListSets.isEmpty() &&
-                query.wordLists.isEmpty()) {
-            nonLuceneQuery(query, collector, signal);
+                query.wordLists.isEmpty() &&
+                (!charIndexed || query.grams.isEmpty() && query.categories.isEmpty())) {
+            scan(collector, signal, 1, reader);
+            return;
+        }
+        String key = query.key();
+        QueryCache.Entry entry = queryCache.get(key, contentsGen, tagsGen);
+        if (entry != null && entry.snapshotGeneration != snapshotGen) {
+            entry = findContexts(entry, reader, snapshotGen);
+            if (entry != null) {
+                queryCache.put(key, entry);
+            }
+        }
+        if (entry != null) {
+            for (int doc : entry.docs) {
+                collector.hit(reader.document(doc, MATCH_FIELDS), signal);
+                if (signal != null && signal.isStopped()) {
+                    return;
+                }
+            }
             return;
         }
+        DocCollector hits = new DocCollector();
         try {
             QueryParser qp = new QueryParser("contents", processor.getAnalyzer());
             qp.setDefaultOperator(QueryParser.Operator.AND);
@@ -823,41 +1503,225 @@ public class Corpus {
             for(String wls : query.wordListSets) {
                 queryStr.append("wordlistsets:" + wls + " ");
             }
-            Query q = qp.parse(queryStr.toString());
-            if (q.toString().matches("\\s*")) {
-                nonLuceneQuery(query, collector, signal);
+            BooleanQuery q = new BooleanQuery();
+            if (!queryStr.toString().matches("\\s*")) {
+                Query textQuery = qp.parse(queryStr.toString());
+                if (!textQuery.toString().matches("\\s*")) {
+                    q.add(textQuery, BooleanClause.Occur.MUST);
+                }
+            }
+            if (charIndexed) {
+                // Any of the trigrams is enough to narrow the search, so stop well short of the clause limit
+                for (String gram : query.grams) {
+                    if (q.clauses().size() >= MAX_GRAM_CLAUSES) {
+                        break;
+                    }
+                    q.add(new TermQuery(new Term("grams", gram)), BooleanClause.Occur.MUST);
+                }
+                for (String category : query.categories) {
+                    q.add(new TermQuery(new Term("categories", category)), BooleanClause.Occur.MUST);
+                }
+            }
+            if (q.clauses().isEmpty()) {
+                scan(collector, signal, 1, reader);
                 return;
             }
-            indexSearcher.search(q, new SrlHitCollector(collector, signal));
+            new IndexSearcher(reader).search(q, hits);
          } catch (Exception x) {
             System.err.println(query.query.toString());
             x.printStackTrace();
+            return;
+        }
+        int[] hitDocs = hits.getDocs();
+        String[] names = keyed ? new String[hitDocs.length] : null;
+        for (int i = 0; i < hitDocs.length; i++) {
+            Document d = reader.document(hitDocs[i], MATCH_FIELDS);
+            if (names != null) {
+                names[i] = d.getField("name").stringValue();
+            }
+            collector.hit(d, signal);
+            if (signal != null && signal.isStopped()) {
+                return;
+            }
         }
+        queryCache.put(key, new QueryCache.Entry(snapshotGen, contentsGen, tagsGen, hitDocs, names));
     }
 
-    // If the SRLQuery is null we use this query method
-    private void nonLuceneQuery(SrlQuery query, QueryHit collector, StopSignal signal) throws IOException, CorpusConcurrencyException {
-        // Empty queries match everything (!)
-        System.out.println("Empty Query! This may significantly affect performance");
-        for (int i = 0; i < indexSearcher.maxDoc(); i++) {
-            try {
-                indexSearcher.doc(i);
-            } catch(IllegalArgumentException x) {
-                System.err.println("Deleted document ignored");
-                continue;
+    /**
+     * Find the contexts hit by a cached query in a new snapshot of the corpus, by their names
+     * @param entry The cached hits
+     * @param reader The new snapshot
+     * @param snapshotGen The generation of the new snapshot
+     * @return The hits in the new snapshot, or null if the contexts could not be found
+     */
+    private QueryCache.Entry findContexts(QueryCache.Entry entry, IndexReader reader, long snapshotGen) throws IOException {
+        if (entry.names == null) {
+            return null;
+        }
+        TreeMap<Integer, String> found = new TreeMap<Integer, String>();
+        TermDocs td = reader.termDocs();
+        try {
+            for (String name : entry.names) {
+                td.seek(new Term("key", name));
+                if (!td.next()) {
+                    return null;
+                }
+                found.put(td.doc(), name);
             }
-            if (indexSearcher.doc(i).getField("contents") != null) {
-                collector.hit(indexSearcher.doc(i), signal);
+        } finally {
+            td.close();
+        }
+        int[] docs = new int[found.size()];
+        String[] names = new String[found.size()];
+        int i = 0;
+        for (Map.Entry<Integer, String> e : found.entrySet()) {
+            docs[i] = e.getKey();
+            names[i++] = e.getValue();
+        }
+        return new QueryCache.Entry(snapshotGen, entry.contentsGeneration, entry.tagsGeneration, docs, names);
+    }
+
+    /**
+     * Set the maximum size of the cache of query hits
+     * @param bytes The size in bytes (0 to disable the cache)
+     * @see #query(SrlQuery, QueryHit, StopSignal)
+     */
+    public void setQueryCacheSize(long bytes) {
+        queryCache.setCapacity(bytes);
+    }
+
+    /** (expert) The cache of query hits */
+    QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Pass every context of the corpus to a collector. This is used to answer
+     * queries which give nothing to search the index with (e.g., rules made only of
+     * ortho() elements). The contexts are found from the postings of their
+     * "charIndex" field, so head documents and deleted entries are skipped without
+     * being read, and only the stored fields used for matching are loaded for each
+     * context. (Corpora indexed before this field was added are read in a single
+     * pass over all documents.)
+     * If more than one thread is used the contexts are split into shards and the
+     * collector is called from several threads at once, so it must be thread-safe,
+     * and the contexts are not given in the order of the index.
+     * @param collector Every context is passed to the hit(Document) method of the collector
+     * @param signal An optional stop signal to abandon the scan
+     * @param threads The number of threads to read the contexts with
+     * @throws IOException There was a disk error with the corpus
+     * @throws IllegalArgumentException If threads is less than 1
+     */
+    public void scan(QueryHit collector, StopSignal signal, int threads) throws IOException, CorpusConcurrencyException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        IndexReader reader = acquireReader();
+        try {
+            scan(collector, signal, threads, reader);
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    private void scan(final QueryHit collector, final StopSignal signal, int threads, final IndexReader reader) throws IOException {
+        final int[] docs = getContextDocs(reader);
+        int n = docs == null ? reader.maxDoc() : docs.length;
+        if (threads == 1 || n < 2) {
+            scanDocs(docs, 0, n, collector, signal, reader);
+            return;
+        }
+        // Use several shards per thread so that a slow shard does not hold up the others
+        int shardSize = Math.max(1, n / threads / 4);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> shards = new LinkedList<Future<Object>>();
+            for (int i = 0; i < n; i += shardSize) {
+                final int from = i;
+                final int to = Math.min(i + shardSize, n);
+                shards.add(pool.submit(new Callable<Object>() {
+
+                    public Object call() throws IOException {
+                        scanDocs(docs, from, to, collector, signal, reader);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> shard : shards) {
+                shard.get();
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(x);
+        } catch (ExecutionException x) {
+            if (x.getCause() instanceof IOException) {
+                throw (IOException) x.getCause();
             }
+            if (x.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) x.getCause();
+            }
+            throw new RuntimeException(x.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Pass some contexts to a collector
+     * @param docs The document numbers of the contexts, or null to read the
+     * documents from <code>from</code> to <code>to</code> and skip those which are not contexts
+     */
+    private static void scanDocs(int[] docs, int from, int to, QueryHit collector, StopSignal signal,
+            IndexReader reader) throws IOException {
+        for (int i = from; i < to; i++) {
             if (signal != null && signal.isStopped()) {
                 return;
             }
+            if (docs != null) {
+                collector.hit(reader.document(docs[i], MATCH_FIELDS), signal);
+            } else if (!reader.isDeleted(i)) {
+                Document d = reader.document(i, MATCH_FIELDS);
+                if (d.getField("contents") != null) {
+                    collector.hit(d, signal);
+                }
+            }
         }
-        return;
     }
 
     /**
-     * Query the corpus for a single string of plain text
+     * Get the document numbers of the (undeleted) contexts in a snapshot of the index
+     * @param reader The snapshot
+     * @return The document numbers in increasing order, or null if the contexts
+     * do not all have the "charIndex" field
+     */
+    private int[] getContextDocs(IndexReader reader) throws IOException {
+        if (!charIndexed) {
+            return null;
+        }
+        int[] docs = new int[16];
+        int size = 0;
+        TermDocs termDocs = reader.termDocs(new Term("charIndex", CHAR_INDEX_VERSION));
+        try {
+            while (termDocs.next()) {
+                if (size == docs.length) {
+                    int[] d = new int[size * 2];
+                    System.arraycopy(docs, 0, d, 0, size);
+                    docs = d;
+                }
+                docs[size++] = termDocs.doc();
+            }
+        } finally {
+            termDocs.close();
+        }
+        int[] rval = new int[size];
+        System.arraycopy(docs, 0, rval, 0, size);
+        return rval;
+    }
+
+    /**
+     * Query the corpus for a single string of plain text. The hits are read from
+     * the current snapshot of the corpus, so they should be read before
+     * the next change to the corpus is committed
      * @param query The string to query
      * @return The documents this matches
      * @throws java.io.IOException
@@ -867,24 +1731,14 @@ public class Corpus {
         if (query.equals("")) {
             return null;
         }
-        if (indexSearcher == null) {
-            closeIndex(0);
-        }
-        try {
-            QueryParser qp = new QueryParser("contents", processor.getAnalyzer());
-            qp.setDefaultOperator(QueryParser.Operator.AND);
-            Query q = qp.parse(QueryParser.escape(query.toLowerCase()));
-            return indexSearcher.search(q);
-        } catch (Exception x) {
-            x.printStackTrace();
-            return null;
-        }
+        return queryNoEscape(QueryParser.escape(query.toLowerCase()));
     }
 
     /**
      * Query the corpus. Unlike query(String) this function does not fix (escape) the query
      * string for Lucene, so calling this function requires the user to ensure the query is a valid
-     * Lucene query
+     * Lucene query. As with query(String) the hits should be read before the next change
+     * to the corpus is committed
      * @param query The query string
      * @return The documents the query matches
      * @throws java.io.IOException
@@ -896,17 +1750,19 @@ public class Corpus {
         if (query.equals("")) {
             return null;
         }
-        if (indexSearcher == null) {
-            closeIndex(0);
-        }
+        // The snapshot is kept open by the corpus until it is replaced, so the hits may
+        // still be read after the reader is released
+        IndexReader reader = acquireReader();
         try {
             QueryParser qp = new QueryParser("contents", processor.getAnalyzer());
             qp.setDefaultOperator(QueryParser.Operator.AND);
             Query q = qp.parse(query.toLowerCase());
-            return indexSearcher.search(q);
+            return new IndexSearcher(reader).search(q);
         } catch (Exception x) {
             x.printStackTrace();
             return null;
+        } finally {
+            releaseReader(reader);
         }
     }
 
@@ -932,24 +1788,21 @@ public class Corpus {
     public void resupport(boolean wait) throws IOException, CorpusConcurrencyException {
         
         try {
-            if(indexSearcher == null)
-                closeIndex(0);
-            updateThread = Thread.currentThread();
+            long id = reopenIndex(wait);
             List<String> newDocs = new LinkedList<String>();
-            for(int i = 0; i < indexSearcher.maxDoc(); i++) {
-                Document d;
-                try {
-                    d = indexSearcher.doc(i);
-                } catch(IllegalArgumentException x) {
-                    System.err.println("Deleted document ignored");
-                    continue;
+            IndexReader reader = acquireReader();
+            try {
+                for(int i = 0; i < reader.maxDoc(); i++) {
+                    if(reader.isDeleted(i))
+                        continue;
+                    Document d = reader.document(i);
+                    if(!d.getField("name").stringValue().matches(".* .*"))
+                        continue;
+                    newDocs.add(d.getField("uid").stringValue());
                 }
-                if(!d.getField("name").stringValue().matches(".* .*"))
-                    continue;
-                newDocs.add(d.getField("uid").stringValue());
+            } finally {
+                releaseReader(reader);
             }
-            long id = reopenIndex(wait);
-            updateThread = null;
             updateContexts(newDocs,wait);
             
             if(id != 0)
@@ -995,95 +1848,217 @@ public class Corpus {
         }
 
         public void collectionChanged(CollectionChangeEvent<WordListEntry> e) {
-            Thread t = new Thread(new WLCCLRun(e.getOldVal(), e.getNewVal(), name), "wordListUpdate");
-            updateThread = t;
-            t.start();
+            journalWordListChange(e.getOldVal(), e.getNewVal());
         }
     }
 
-    private class WLCCLRun implements Runnable {
-        WordListEntry oldVal, newVal;
-        String name;
-
-        public WLCCLRun(WordListEntry oldVal, WordListEntry newVal, String name) {
-            this.oldVal = oldVal;
-            this.newVal = newVal;
-            this.name = name;
+    ////////////////////////////////////////////////////////////////////////////
+    // Word list updates
+    //
+    // When a word list changes, the "wordlists" and "wordlistsets" fields of
+    // the contexts containing the changed entries must be rebuilt. Changes are
+    // written to a journal, and a single background thread applies them: it waits
+    // until no change has been made for WORD_LIST_UPDATE_DELAY ms (so a burst of
+    // edits, such as pasting a list, is applied together), finds all the affected
+    // contexts with one query and rebuilds them under a single lock. The thread
+    // stops when the journal is empty and is started again by the next change.
+    // Queries on word lists wait for the journal to be applied first, unless the
+    // corpus is locked by another thread (which the updater would have to wait
+    // for), in which case they use the current snapshot.
+
+    /** The time (ms) to wait for further word list changes before applying them */
+    private static final long WORD_LIST_UPDATE_DELAY = 250;
+    /** The longest time (ms) changes are delayed while word lists keep changing */
+    private static final long WORD_LIST_UPDATE_MAX_DELAY = 5000;
+    /** The entries added to or removed from word lists which are yet to be applied
+     * to the corpus. This is also the monitor for the following fields */
+    private final Set<String> wordListJournal = new LinkedHashSet<String>();
+    private volatile Thread wordListUpdater;
+    private boolean wordListUpdating;
+    private boolean wordListFlush;
+    private long wordListFirstChange, wordListLastChange;
+
+    private void journalWordListChange(WordListEntry oldVal, WordListEntry newVal) {
+        synchronized(wordListJournal) {
+            if(wordListJournal.isEmpty())
+                wordListFirstChange = System.currentTimeMillis();
+            wordListLastChange = System.currentTimeMillis();
+            if(oldVal != null)
+                wordListJournal.add(oldVal.toString());
+            if(newVal != null)
+                wordListJournal.add(newVal.toString());
+            if(wordListUpdater == null) {
+                wordListUpdater = new Thread(new WordListUpdater(), "wordListUpdate");
+                wordListUpdater.setDaemon(true);
+                wordListUpdater.start();
+            }
+            wordListJournal.notifyAll();
         }
+    }
+
+    private class WordListUpdater implements Runnable {
 
         public void run() {
-            try {
-                removeWordListElement(name, oldVal != null ? oldVal.toString() : null);
-                addWordListElement(name, newVal != null ? newVal.toString() : null);
-                updateThread = null;
-            } catch(Exception x) {
-                x.printStackTrace();
+            while(true) {
+                List<String> entries;
+                synchronized(wordListJournal) {
+                    try {
+                        while(!wordListFlush) {
+                            long now = System.currentTimeMillis();
+                            long delay = Math.min(wordListLastChange + WORD_LIST_UPDATE_DELAY,
+                                    wordListFirstChange + WORD_LIST_UPDATE_MAX_DELAY) - now;
+                            if(delay <= 0)
+                                break;
+                            wordListJournal.wait(delay);
+                        }
+                    } catch(InterruptedException x) {
+                        x.printStackTrace();
+                    }
+                    if(wordListJournal.isEmpty()) {
+                        wordListUpdater = null;
+                        wordListFlush = false;
+                        wordListJournal.notifyAll();
+                        return;
+                    }
+                    entries = new ArrayList<String>(wordListJournal);
+                    wordListJournal.clear();
+                    wordListUpdating = true;
+                }
+                try {
+                    updateWordListEntries(entries);
+                } catch(Exception x) {
+                    x.printStackTrace();
+                } finally {
+                    synchronized(wordListJournal) {
+                        wordListUpdating = false;
+                        wordListJournal.notifyAll();
+                    }
+                }
             }
         }
+    }
 
+    /**
+     * Wait until all changes to word lists have been applied to the corpus. This
+     * is done automatically before queries which use word lists.
+     * @throws CorpusConcurrencyException If this is called by the thread that has the lock
+     */
+    public void waitOnWordListUpdates() throws CorpusConcurrencyException {
+        if(holdsLock()) {
+            throw new CorpusConcurrencyException("Thread is attempting to wait on itself");
+        }
+        waitOnWordListUpdates(true);
     }
 
     /**
-     * Update all documents, that a word list element has been removed
-     * @param name The word list name
-     * @param oldVal The element removed
+     * Wait until all changes to word lists have been applied to the corpus
+     * @param whileLocked If false stop waiting as soon as the corpus is locked by
+     * a thread other than the updater, as the changes cannot be applied until it
+     * is unlocked
      */
-    protected void removeWordListElement(String name, String oldVal) {
+    private void waitOnWordListUpdates(boolean whileLocked) {
+        while(true) {
+            // Checked outside the journal's monitor, as the journal is changed by
+            // threads holding the corpus's monitor
+            if(!whileLocked && isLocked()) {
+                return;
+            }
+            synchronized(wordListJournal) {
+                if(wordListJournal.isEmpty() && !wordListUpdating) {
+                    return;
+                }
+                wordListFlush = true;
+                wordListJournal.notifyAll();
+                try {
+                    wordListJournal.wait(whileLocked ? 0 : WORD_LIST_UPDATE_DELAY);
+                } catch(InterruptedException x) {
+                    x.printStackTrace();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Is the corpus locked by a thread other than the word list updater */
+    private synchronized boolean isLocked() {
+        return lock != 0 && openThread.isAlive() && openThread != wordListUpdater;
+    }
+
+    /** Does the current thread hold the lock */
+    private synchronized boolean holdsLock() {
+        return lock != 0 && openThread == Thread.currentThread();
+    }
+
+    /**
+     * Rebuild every context containing any of a set of word list entries. The
+     * contexts are found with a single query (per BooleanQuery.getMaxClauseCount()
+     * entries) and updated together
+     * @param entries The entries
+     */
+    private void updateWordListEntries(Collection<String> entries) throws IOException, CorpusConcurrencyException {
+        QueryParser qp = new QueryParser("contents", processor.getAnalyzer());
+        final Set<String> uids = new LinkedHashSet<String>();
+        final IndexReader reader = acquireReader();
         try {
-            if(indexSearcher == null)
-                closeIndex(0);
-            QueryParser qp = new QueryParser("contents", processor.getAnalyzer());
-            qp.setDefaultOperator(QueryParser.Operator.AND);
-            Query q = qp.parse("\"" + oldVal + "\"");
-            Hits hits = indexSearcher.search(q);
-            List<String> newDocs = new LinkedList<String>();
-            for(int i = 0; i < hits.length(); i++) {
-                Document d;
+            IndexSearcher searcher = new IndexSearcher(reader);
+            HitCollector collector = new HitCollector() {
+
+                @Override
+                public void collect(int doc, float score) {
+                    try {
+                        Document d = reader.document(doc);
+                        if(d.getField("name").stringValue().matches(".* .*"))
+                            uids.add(d.getField("uid").stringValue());
+                    } catch(IOException x) {
+                        throw new RuntimeException(x);
+                    }
+                }
+            };
+            BooleanQuery q = new BooleanQuery();
+            for(String entry : entries) {
                 try {
-                    d = indexSearcher.doc(hits.id(i));
-                } catch(IllegalArgumentException x) {
-                    System.err.println("Deleted document ignored");
+                    q.add(qp.parse("\"" + QueryParser.escape(entry) + "\""), BooleanClause.Occur.SHOULD);
+                } catch(ParseException x) {
+                    x.printStackTrace();
                     continue;
                 }
-                if(!d.getField("name").stringValue().matches(".* .*"))
-                    continue;
-                newDocs.add(d.getField("uid").stringValue());
+                if(q.getClauses().length == BooleanQuery.getMaxClauseCount()) {
+                    searcher.search(q, collector);
+                    q = new BooleanQuery();
+                }
             }
-            updateContexts(newDocs, false);
+            if(q.getClauses().length > 0)
+                searcher.search(q, collector);
+        } finally {
+            releaseReader(reader);
+        }
+        if(!uids.isEmpty())
+            updateContexts(new ArrayList<String>(uids), true);
+    }
+
+    /**
+     * Update all documents, that a word list element has been removed. This
+     * is done immediately, not by the word list updater
+     * @param name The word list name
+     * @param oldVal The element removed
+     */
+    protected void removeWordListElement(String name, String oldVal) {
+        try {
+            updateWordListEntries(Collections.singleton(oldVal));
         } catch (Exception x) {
             x.printStackTrace();
         }
     }
 
        /**
-        * Update all document to a new word list element
+        * Update all document to a new word list element. This is done
+        * immediately, not by the word list updater
         * @param name The word list name
         * @param newVal The new element
         */
     protected void addWordListElement(String name, String newVal) {
         try {
-            if(indexSearcher == null)
-                closeIndex(0);
-            QueryParser qp = new QueryParser("contents", processor.getAnalyzer());
-            qp.setDefaultOperator(QueryParser.Operator.AND);
-            Query q = qp.parse("\"" + newVal + "\"");
-            Hits hits = indexSearcher.search(q);
-        
-            String setName = WordListSet.getWordListSetByList(name).name;
-            List<String> newDocs = new LinkedList<String>();
-            for(int i = 0; i < hits.length(); i++) {
-                Document d;
-                try {
-                    d = indexSearcher.doc(hits.id(i));
-                } catch(IllegalArgumentException x) {
-                    System.err.println("Deleted document ignored");
-                    continue;
-                }
-                if(!d.getField("name").stringValue().matches(".* .*"))
-                    continue;
-                newDocs.add(d.getField("uid").stringValue());
-            }
-            updateContexts(newDocs, false);
+            updateWordListEntries(Collections.singleton(newVal));
         } catch(Exception x) {
             x.printStackTrace();
         }
@@ -11,6 +11,8 @@
 package srl.corpus;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -19,8 +21,16 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import srl.tools.process.ProgressMonitor;
 import srl.tools.process.StopSignal;
 import srl.tools.strings.Strings;
@@ -32,8 +42,11 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermDocs;
 import srl.corpus.Corpus.QueryHit;
+import srl.rule.CompiledRuleSet;
 import srl.rule.Entity;
+import srl.rule.MatchContext;
 import srl.rule.Rule;
+import srl.rule.RuleProfile;
 import srl.rule.RuleSet;
 import srl.rule.SrlMatchRegion;
 
@@ -58,10 +71,58 @@ public class CorpusExtractor {
      */
     public static boolean HEAD_LAST_HEURISTIC = true;
 
+    /** The size of the index writer's buffer (in MB) while writing the results of
+     * template extraction */
+    private static final double UPDATE_BUFFER_MB = 64.0;
+
     private final Corpus corpus;
+    private final int threads;
+    private boolean profiling = false;
+    private RuleProfile profile;
 
     public CorpusExtractor(Corpus corpus) {
+        this(corpus, 1);
+    }
+
+    /**
+     * Create a corpus extractor which matches rules in parallel. The corpus is
+     * still queried and updated from the calling thread, only the matching of the
+     * sentences is shared between the threads
+     * @param corpus The corpus
+     * @param threads The number of threads to match rules with
+     * @throws IllegalArgumentException If threads is less than 1
+     */
+    public CorpusExtractor(Corpus corpus, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
         this.corpus = corpus;
+        this.threads = threads;
+    }
+
+    /**
+     * Set whether the rules are profiled. If they are, the candidates, matches,
+     * steps and time of each rule are counted by tagCorpus() and extractTemplates()
+     * @param profiling If true profile the rules
+     * @see #getProfile()
+     */
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * Get the profile of the rules of the last call to tagCorpus() or extractTemplates()
+     * @return The profile, or null if profiling was not enabled
+     */
+    public RuleProfile getProfile() {
+        return profile;
+    }
+
+    private CompiledRuleSet compile(Collection<RuleSet> ruleSets) {
+        CompiledRuleSet rules = new CompiledRuleSet(ruleSets);
+        profile = profiling ? new RuleProfile(rules) : null;
+        rules.setProfile(profile);
+        return rules;
     }
     
     /**
@@ -88,39 +149,20 @@ public class CorpusExtractor {
      * @throws CorpusConcurrencyException If the corpus is locked and wait is false
      */
     public void tagCorpus(Collection<RuleSet> ruleSets, Collection<Overlap> overlaps, ProgressMonitor monitor, boolean wait) throws IOException, CorpusConcurrencyException {
-        if (corpus.isIndexOpen()) {
-            if(wait)
-                corpus.waitOnCorpusUnlock();
-            corpus.closeIndex(0);
-        }
-        final HashMap<String, List<HashMap<Entity, SrlMatchRegion>>> allMatches =
-                new HashMap<String, List<HashMap<Entity, SrlMatchRegion>>>();
-        int i = 0;
-        for (RuleSet ruleSet : ruleSets) {
-            int j = 0;
-            for (final Pair<String, Rule> rulePair : ruleSet.rules) {
-                if (monitor != null) {
-                    monitor.setMessageVal("Matching rule " + rulePair.first);
-                    monitor.setProgressVal((float) (i * ruleSet.rules.size() + j++) / (float) ruleSets.size() / (float) ruleSet.rules.size());
-                }
-                corpus.query(rulePair.second.getCorpusQuery(), new QueryHit() {
+        final CompiledRuleSet rules = compile(ruleSets);
+        HashMap<String, Pair<Document, BitSet>> candidates = findCandidates(rules, "name", monitor);
+        Map<String, List<HashMap<Entity, SrlMatchRegion>>> allMatches = matchCandidates(candidates,
+                new SentenceMatcher<List<HashMap<Entity, SrlMatchRegion>>>() {
 
-                    public void hit(Document d, StopSignal signal) {
-                        String name = d.getField("name").stringValue();
-                        if (allMatches.get(name) == null) {
-                            allMatches.put(name, new LinkedList<HashMap<Entity, SrlMatchRegion>>());
-                        }
-                        allMatches.get(name).addAll(rulePair.second.getMatch(new SrlDocument(d, corpus.processor, false), false));
+                    public List<HashMap<Entity, SrlMatchRegion>> match(Document d, BitSet active, MatchContext context) {
+                        return rules.getMatch(corpus.readContext(d, false), active, context);
                     }
-                });
-            }
-            i++;
-        }
+                }, monitor);
         long lockID = corpus.reopenIndex(wait);
         IndexReader reader = null;
         try {
-            reader = IndexReader.open(corpus.indexWriter.getDirectory());
-            i = 0;
+            reader = corpus.acquireReader();
+            int i = 0;
             for (Map.Entry<String, List<HashMap<Entity, SrlMatchRegion>>> entry : allMatches.entrySet()) {
                 Vector<Pair<Entity, SrlMatchRegion>> matches = findOverlapsAndKill(entry.getValue(), overlaps);
                 addTagsToDocument(entry.getKey(), matches, reader, monitor, wait);
@@ -130,19 +172,134 @@ public class CorpusExtractor {
                 }
             }
         } finally {
+            if (reader != null) {
+                corpus.releaseReader(reader);
+            }
             corpus.optimizeIndex(lockID);
         }
-        
-        
-        if (reader != null) {
-            reader.close();
-        }
         if (monitor != null) {
             monitor.setMessageVal("Corpus tagging complete");
             monitor.setProgressVal(1.0f);
         }
     }
     
+    /**
+     * Query the corpus for every rule, to find the sentences each rule may match
+     * @param rules The rules
+     * @param key The field identifying a sentence
+     * @param monitor Used to track the progress of the operation (may be null)
+     * @return Each sentence hit, with the rules whose queries hit it
+     */
+    private HashMap<String, Pair<Document, BitSet>> findCandidates(final CompiledRuleSet rules, final String key, ProgressMonitor monitor)
+            throws IOException, CorpusConcurrencyException {
+        final HashMap<String, Pair<Document, BitSet>> candidates = new HashMap<String, Pair<Document, BitSet>>();
+        for (int i = 0; i < rules.size(); i++) {
+            if (monitor != null) {
+                monitor.setMessageVal("Querying rule " + rules.getRuleName(i));
+                monitor.setProgressVal((float) i / (float) rules.size());
+            }
+            final int ruleNo = i;
+            final RuleProfile ruleProfile = rules.getProfile();
+            corpus.query(rules.getRule(i).getCorpusQuery(), new QueryHit() {
+
+                public void hit(Document d, StopSignal signal) {
+                    String name = d.getField(key).stringValue();
+                    Pair<Document, BitSet> candidate = candidates.get(name);
+                    if (candidate == null) {
+                        candidate = new Pair<Document, BitSet>(d, new BitSet(rules.size()));
+                        candidates.put(name, candidate);
+                    }
+                    candidate.second.set(ruleNo);
+                    if (ruleProfile != null) {
+                        ruleProfile.addCandidate(ruleNo);
+                    }
+                }
+            });
+        }
+        return candidates;
+    }
+
+    /** The matching applied to each candidate sentence */
+    private interface SentenceMatcher<E> {
+
+        /**
+         * Match a sentence
+         * @param d The sentence
+         * @param active The rules whose queries hit the sentence
+         * @param context The working memory of the matching thread
+         */
+        public E match(Document d, BitSet active, MatchContext context);
+    }
+
+    /**
+     * Match every candidate sentence. If this extractor has more than one thread
+     * the sentences are split into shards and matched by a pool of threads
+     * @param candidates The sentences as returned by findCandidates()
+     * @param matcher The matching to apply
+     * @param monitor Used to track the progress of the operation (may be null)
+     * @return The result for each sentence
+     */
+    private <E> Map<String, E> matchCandidates(HashMap<String, Pair<Document, BitSet>> candidates,
+            final SentenceMatcher<E> matcher, ProgressMonitor monitor) {
+        if (threads == 1 || candidates.size() < 2) {
+            HashMap<String, E> rval = new HashMap<String, E>();
+            MatchContext context = new MatchContext();
+            int i = 0;
+            for (Map.Entry<String, Pair<Document, BitSet>> entry : candidates.entrySet()) {
+                if (monitor != null) {
+                    monitor.setMessageVal("Matching sentence " + entry.getValue().first.getField("name").stringValue());
+                    monitor.setProgressVal((float) i++ / candidates.size());
+                }
+                rval.put(entry.getKey(), matcher.match(entry.getValue().first, entry.getValue().second, context));
+            }
+            return rval;
+        }
+        final ConcurrentHashMap<String, E> rval = new ConcurrentHashMap<String, E>(candidates.size(), 0.75f, threads);
+        List<Map.Entry<String, Pair<Document, BitSet>>> entries =
+                new ArrayList<Map.Entry<String, Pair<Document, BitSet>>>(candidates.entrySet());
+        // Use several shards per thread so that a slow shard does not hold up the others
+        int shardSize = Math.max(1, entries.size() / threads / 4);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(pool);
+            int shards = 0;
+            for (int i = 0; i < entries.size(); i += shardSize) {
+                final List<Map.Entry<String, Pair<Document, BitSet>>> shard =
+                        entries.subList(i, Math.min(i + shardSize, entries.size()));
+                completion.submit(new Callable<Integer>() {
+
+                    public Integer call() {
+                        MatchContext context = new MatchContext();
+                        for (Map.Entry<String, Pair<Document, BitSet>> entry : shard) {
+                            rval.put(entry.getKey(), matcher.match(entry.getValue().first, entry.getValue().second, context));
+                        }
+                        return shard.size();
+                    }
+                });
+                shards++;
+            }
+            int done = 0;
+            for (int i = 0; i < shards; i++) {
+                done += completion.take().get();
+                if (monitor != null) {
+                    monitor.setMessageVal("Matched " + done + " of " + entries.size() + " sentences");
+                    monitor.setProgressVal((float) done / entries.size());
+                }
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(x);
+        } catch (ExecutionException x) {
+            if (x.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) x.getCause();
+            }
+            throw new RuntimeException(x.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return rval;
+    }
+
     /** Apply the tagging algorithm.
      * @param sents The document as a list of sentences
      * @param ruleSets The rulesets to apply
@@ -151,29 +308,28 @@ public class CorpusExtractor {
      * EndTagToken objects
      */
     public static List<SrlDocument> tagSentences(List<SrlDocument> sents, Collection<RuleSet> ruleSets, Processor p) throws IOException {
-        final Vector<List<HashMap<Entity, SrlMatchRegion>>> allMatches =
-                new Vector<List<HashMap<Entity, SrlMatchRegion>>>(sents.size());
-        
-        for (SrlDocument sent : sents) {
-            allMatches.add(new LinkedList<HashMap<Entity, SrlMatchRegion>>());
-        }
-        for (RuleSet ruleSet : ruleSets) {
-            for (Pair<String, Rule> rulePair : ruleSet.rules) {
-                int i = 0;
-                for (SrlDocument sent : sents) {
-                    allMatches.get(i++).addAll(rulePair.second.getMatch(sent, false));
-                }
-            }
-        }
+        CompiledRuleSet rules = new CompiledRuleSet(ruleSets);
+        MatchContext context = new MatchContext();
         List<SrlDocument> rval = new Vector<SrlDocument>(sents.size());
-        int i = 0;
-        for (List<HashMap<Entity, SrlMatchRegion>> matches : allMatches) {
-            Vector<Pair<Entity,SrlMatchRegion>> m2 = findOverlapsAndKill(matches,null);
-            rval.add(new SrlDocument("name", addEntities((SrlDocument) sents.get(i++), m2), p));
+        for (SrlDocument sent : sents) {
+            rval.add(tagSentence(sent, rules, context, p));
         }
         return rval;
     }
-   
+
+    /** Apply the tagging algorithm to a single sentence. This may be called by
+     * several threads at once with the same rules, if each has its own context.
+     * @param sent The sentence
+     * @param rules The compiled entity rules
+     * @param context The working memory for matching
+     * @param p The linguistic processor
+     * @return The tagged sentence
+     */
+    public static SrlDocument tagSentence(SrlDocument sent, CompiledRuleSet rules, MatchContext context, Processor p) {
+        Vector<Pair<Entity, SrlMatchRegion>> matches = findOverlapsAndKill(rules.getMatch(sent, null, context), null);
+        return new SrlDocument("name", addEntities(sent, matches), p);
+    }
+
     private static Vector<Pair<Entity, SrlMatchRegion>> findOverlapsAndKill(List<HashMap<Entity, SrlMatchRegion>> allMatches,
             Collection<Overlap> overlaps) {
         Vector<Pair<Entity, SrlMatchRegion>> matches = sortMatches(allMatches);
@@ -306,37 +462,28 @@ public class CorpusExtractor {
      */
     public void addTagsToDocument(String docName, List<Vector<Pair<Entity, SrlMatchRegion>>> matches, boolean wait) throws IOException, CorruptIndexException, CorpusConcurrencyException {
         long id = corpus.reopenIndex(wait);
-        IndexReader reader = IndexReader.open(corpus.indexWriter.getDirectory());
-        int i = 0;
-        for (Vector<Pair<Entity, SrlMatchRegion>> match : matches) {
-            addTagsToDocument(docName + " " + i, match, reader, null, wait);
-            i++;
+        IndexReader reader = corpus.acquireReader();
+        try {
+            int i = 0;
+            for (Vector<Pair<Entity, SrlMatchRegion>> match : matches) {
+                addTagsToDocument(docName + " " + i, match, reader, null, wait);
+                i++;
+            }
+        } finally {
+            corpus.releaseReader(reader);
         }
         if(id != 0)
             corpus.closeIndex(id);
-        reader.close();
     }
 
     private void addTagsToDocument(String docName, Vector<Pair<Entity, SrlMatchRegion>> matches, IndexReader reader, ProgressMonitor monitor, boolean wait)
             throws IOException, CorruptIndexException {
-        String docNameProper = docName.toLowerCase().split(" ")[0];
-        Term t = new Term("name", docNameProper);
-        int docNo = Integer.parseInt(docName.split(" ")[1]);
-        TermDocs td = reader.termDocs(t);
-        Document old;
-        while (true) {
-            if (!td.next()) {
-                throw new RuntimeException("Lost document: " + docName);
-            }
-            old = reader.document(td.doc());
-            String dn = old.getField("name").stringValue();
-            String[] ss = dn.split(" ");
-            if (dn.matches(".* .*") && ss[0].equals(docNameProper) &&
-                    Integer.parseInt(ss[1]) == docNo) {
-                break;
-            }
+        String[] ss = docName.toLowerCase().split(" ");
+        Document old = corpus.getDoc(reader, ss[0] + " " + Integer.parseInt(ss[1]));
+        if (old == null) {
+            throw new RuntimeException("Lost document: " + docName);
         }
-        String taggedContents = addEntities(new SrlDocument(old, corpus.processor, false), matches);
+        String taggedContents = addEntities(corpus.readContext(old, false), matches);
         try {
             corpus.updateContext(old, old.getField("contents").stringValue(),
                 taggedContents, wait);
@@ -358,18 +505,25 @@ public class CorpusExtractor {
      * Add Named Entity Tags
      */
     private static String addEntities(SrlDocument sentence, Vector<Pair<Entity, SrlMatchRegion>> matches) {
-        List<String> tokens = new LinkedList<String>();
-        for (org.apache.lucene.analysis.Token tk : sentence) {
-            if(tk instanceof EndTagToken) {
-                tokens.add(((EndTagToken)tk).getTag());
-            } else if(tk instanceof BeginTagToken) {
-                tokens.add(((BeginTagToken)tk).getTag());
-            } else {    
-                tokens.add(tk.termText());
+        List<String> tokens = new ArrayList<String>(sentence.size());
+        if(sentence instanceof TokenArrayDocument) {
+            TokenArrayDocument tad = (TokenArrayDocument)sentence;
+            for(int i = 0; i < tad.size(); i++) {
+                tokens.add(tad.kind(i) == TokenArrayDocument.TERM ? tad.termText(i) : tad.getTag(i));
+            }
+        } else {
+            for (org.apache.lucene.analysis.Token tk : sentence) {
+                if(tk instanceof EndTagToken) {
+                    tokens.add(((EndTagToken)tk).getTag());
+                } else if(tk instanceof BeginTagToken) {
+                    tokens.add(((BeginTagToken)tk).getTag());
+                } else {
+                    tokens.add(tk.termText());
+                }
             }
         }
-        List<List<String>> begins = new LinkedList<List<String>>();
-        List<List<String>> ends = new LinkedList<List<String>>();
+        List<List<String>> begins = new ArrayList<List<String>>(tokens.size() + 2);
+        List<List<String>> ends = new ArrayList<List<String>>(tokens.size() + 3);
         for (int i = 0; i <= tokens.size() + 1; i++) {
             ends.add(new LinkedList<String>());
             begins.add(new LinkedList<String>());
@@ -387,18 +541,18 @@ public class CorpusExtractor {
                 x.printStackTrace();
             }
         }
-        int offset = 0;
+        // Tags ending at a token come before tags beginning there, which come before the token
+        List<String> tagged = new ArrayList<String>(tokens.size() + 2 * matches.size());
         for (int i = 0; i < ends.size(); i++) {
-            for (String s : ends.get(i)) {
-                tokens.add(i + offset++, s);
-            }
+            tagged.addAll(ends.get(i));
             if (i < begins.size()) {
-                for (String s : begins.get(i)) {
-                    tokens.add(i + offset++, s);
-                }
+                tagged.addAll(begins.get(i));
+            }
+            if (i < tokens.size()) {
+                tagged.add(tokens.get(i));
             }
         }
-        return Strings.join(" ", tokens);
+        return Strings.join(" ", tagged);
     }
 
     
@@ -424,43 +578,31 @@ public class CorpusExtractor {
      * @throws java.io.IOException
      */
     public void extractTemplates(Collection<RuleSet> ruleSets, ProgressMonitor monitor, boolean wait) throws IOException, CorpusConcurrencyException {
-        if (corpus.isIndexOpen()) {
-            corpus.closeIndex(0);
-        }
         //corpus.clearTemplateExtractions();
-        final HashMap<String, List<String>> allMatches =
-                new HashMap<String, List<String>>();
-        int i = 0;
-        for (RuleSet ruleSet : ruleSets) {
-            int j = 0;
-            for (final Pair<String, Rule> rulePair : ruleSet.rules) {
-                if (monitor != null) {
-                    monitor.setMessageVal("Matching rule " + rulePair.first);
-                    monitor.setProgressVal((float) (i * ruleSet.rules.size() + j) / (float) ruleSets.size() / (float) ruleSet.rules.size());
-                }
-                corpus.query(rulePair.second.getCorpusQuery(), new QueryHit() {
+        final CompiledRuleSet rules = compile(ruleSets);
+        HashMap<String, Pair<Document, BitSet>> candidates = findCandidates(rules, "uid", monitor);
+        // Sorted by uid so the index is updated in a fixed order
+        TreeMap<String, List<String>> allMatches = new TreeMap<String, List<String>>(matchCandidates(candidates,
+                new SentenceMatcher<List<String>>() {
 
-                    public void hit(Document d, StopSignal signal) {
-                        String name = d.getField("uid").stringValue();
-                        if (allMatches.get(name) == null) {
-                            allMatches.put(name, new LinkedList<String>());
-                        }
-                        List<String> heads = rulePair.second.getHeads(new SrlDocument(d, corpus.processor, true));
-                        for(String s : heads)
-                            allMatches.get(name).add(s);
+                    public List<String> match(Document d, BitSet active, MatchContext context) {
+                        return rules.getHeads(corpus.readContext(d, true), active, context);
                     }
-                });
-            }
-            i++;
-        }
+                }, monitor));
+        candidates = null;
         long lockID = corpus.reopenIndex(wait);
         IndexReader reader = null;
+        TermDocs td = null;
+        double ramBuffer = corpus.indexWriter.getRAMBufferSizeMB();
         try {
-            reader = IndexReader.open(corpus.indexWriter.getDirectory());
-            i = 0;
+            // Buffer all the updates in memory where possible, instead of flushing every few documents
+            corpus.indexWriter.setRAMBufferSizeMB(Math.max(ramBuffer, UPDATE_BUFFER_MB));
+            reader = corpus.acquireReader();
+            td = reader.termDocs();
+            int i = 0;
             for (Map.Entry<String, List<String>> entry : allMatches.entrySet()) {
-
-                TermDocs td = reader.termDocs(new Term("uid", entry.getKey()));
+                Term uid = new Term("uid", entry.getKey());
+                td.seek(uid);
                 if (!td.next()) {
                     throw new RuntimeException("Lost Document!");
                 }
@@ -471,10 +613,18 @@ public class CorpusExtractor {
                 }
                 d.removeFields("extracted");
                 d.add(new Field("extracted", Strings.join("\n", entry.getValue()), Field.Store.YES, Field.Index.NO));
-                corpus.indexWriter.updateDocument(new Term("uid", entry.getKey()), d);
+                // The trigrams are not stored, so they are not in d
+                corpus.addCharacterFields(d, d.getField("contents").stringValue());
+                corpus.indexWriter.updateDocument(uid, d);
             }
         } finally {
-            reader.close();
+            if (td != null) {
+                td.close();
+            }
+            if (reader != null) {
+                corpus.releaseReader(reader);
+            }
+            corpus.indexWriter.setRAMBufferSizeMB(ramBuffer);
             corpus.optimizeIndex(lockID);
         }
         if (monitor != null) {
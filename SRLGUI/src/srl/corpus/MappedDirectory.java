@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.corpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockFactory;
+
+/**
+ * A directory which reads the index files by mapping them into memory, so
+ * that the operating system's page cache holds the parts of the index in use
+ * and reads do not copy the data through a buffer. Everything other than
+ * reading (writing, locking, listing and deleting files) is done by the
+ * underlying FSDirectory. Files are mapped in chunks, so they may be larger
+ * than 2GB. Note that a mapped file is only unmapped when its inputs are
+ * garbage collected.
+ *
+ * @author John McCrae, National Institute of Informatics
+ */
+final class MappedDirectory extends Directory {
+    private final FSDirectory dir;
+    private final int chunkBits;
+
+    /**
+     * Create a directory
+     * @param dir The directory on disk
+     */
+    MappedDirectory(FSDirectory dir) {
+        this(dir, 30);
+    }
+
+    /**
+     * Create a directory
+     * @param dir The directory on disk
+     * @param chunkBits Files are mapped in chunks of 2^chunkBits bytes
+     */
+    MappedDirectory(FSDirectory dir, int chunkBits) {
+        if(chunkBits < 1 || chunkBits > 30)
+            throw new IllegalArgumentException("Chunk size must be between 2^1 and 2^30 bytes");
+        this.dir = dir;
+        this.chunkBits = chunkBits;
+    }
+
+    /** The directory on disk */
+    FSDirectory getDirectory() {
+        return dir;
+    }
+
+    @Override
+    public String[] list() throws IOException {
+        return dir.list();
+    }
+
+    @Override
+    public boolean fileExists(String name) throws IOException {
+        return dir.fileExists(name);
+    }
+
+    @Override
+    public long fileModified(String name) throws IOException {
+        return dir.fileModified(name);
+    }
+
+    @Override
+    public void touchFile(String name) throws IOException {
+        dir.touchFile(name);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        dir.deleteFile(name);
+    }
+
+    @Override
+    public void renameFile(String from, String to) throws IOException {
+        dir.renameFile(from, to);
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        return dir.fileLength(name);
+    }
+
+    @Override
+    public IndexOutput createOutput(String name) throws IOException {
+        return dir.createOutput(name);
+    }
+
+    @Override
+    public void sync(String name) throws IOException {
+        dir.sync(name);
+    }
+
+    @Override
+    public IndexInput openInput(String name) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(new File(dir.getFile(), name), "r");
+        try {
+            return new MappedInput(raf.getChannel(), raf.length(), chunkBits);
+        } finally {
+            // The mapping remains valid after the file is closed
+            raf.close();
+        }
+    }
+
+    @Override
+    public IndexInput openInput(String name, int bufferSize) throws IOException {
+        return openInput(name);
+    }
+
+    @Override
+    public Lock makeLock(String name) {
+        return dir.makeLock(name);
+    }
+
+    @Override
+    public void clearLock(String name) throws IOException {
+        dir.clearLock(name);
+    }
+
+    @Override
+    public LockFactory getLockFactory() {
+        return dir.getLockFactory();
+    }
+
+    @Override
+    public String getLockID() {
+        return dir.getLockID();
+    }
+
+    @Override
+    public void close() throws IOException {
+        dir.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedDirectory@" + dir.getFile();
+    }
+
+    /** An index file read from memory mapped chunks */
+    private static final class MappedInput extends IndexInput {
+        private ByteBuffer[] chunks;
+        private ByteBuffer current;
+        private int chunk;
+        private final long length;
+        private final int chunkBits;
+
+        MappedInput(FileChannel channel, long length, int chunkBits) throws IOException {
+            this.length = length;
+            this.chunkBits = chunkBits;
+            // There is always a chunk after the last byte, so that the end of
+            // the file can be seeked to
+            chunks = new ByteBuffer[(int)(length >>> chunkBits) + 1];
+            for(int i = 0; i < chunks.length; i++) {
+                long start = (long)i << chunkBits;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(1L << chunkBits, length - start));
+            }
+            current = chunks[0];
+        }
+
+        private void nextChunk() throws IOException {
+            if(chunk + 1 >= chunks.length)
+                throw new IOException("Read past EOF");
+            current = chunks[++chunk];
+            current.position(0);
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if(!current.hasRemaining())
+                nextChunk();
+            return current.get();
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            while(len > current.remaining()) {
+                int n = current.remaining();
+                current.get(b, offset, n);
+                offset += n;
+                len -= n;
+                nextChunk();
+            }
+            current.get(b, offset, len);
+        }
+
+        @Override
+        public long getFilePointer() {
+            return ((long)chunk << chunkBits) + current.position();
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            int c = (int)(pos >>> chunkBits);
+            if(pos < 0 || c >= chunks.length)
+                throw new IOException("Seek past EOF");
+            chunk = c;
+            current = chunks[c];
+            current.position((int)(pos & ((1L << chunkBits) - 1)));
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+
+        @Override
+        public Object clone() {
+            // Clones are used by other threads, so each needs its own positions
+            MappedInput clone = (MappedInput)super.clone();
+            clone.chunks = new ByteBuffer[chunks.length];
+            for(int i = 0; i < chunks.length; i++) {
+                clone.chunks[i] = chunks[i].duplicate();
+            }
+            clone.current = clone.chunks[chunk];
+            clone.current.position(current.position());
+            return clone;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.corpus;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A cache of the contexts hit by each query on the corpus. The hits are stored
+ * as the (sorted) document numbers of the contexts in a snapshot of the index,
+ * together with the generations of the corpus they were found in. The size of
+ * the cache is bounded, and the least recently used queries are removed first.
+ * <p>
+ * Document numbers are only valid for one snapshot, however, a query only needs to
+ * be repeated if the contents (or word lists) of the corpus have changed, or if it
+ * queries the tags and these have changed. Otherwise the names of the contexts
+ * are used to find their document numbers in the new snapshot.
+ * @author John McCrae, National Institute of Informatics
+ * @see Corpus#query(SrlQuery, Corpus.QueryHit, srl.tools.process.StopSignal)
+ */
+final class QueryCache {
+    /** The hits of a query. Entries are not changed once created */
+    static final class Entry {
+        /** The generation of the snapshot the document numbers are valid for */
+        final long snapshotGeneration;
+        /** The generation of the contents and word lists of the corpus */
+        final long contentsGeneration;
+        /** The generation of the tags of the corpus, or -1 if the query does not use tags */
+        final long tagsGeneration;
+        /** The document numbers of the contexts hit, in increasing order */
+        final int[] docs;
+        /** The names of the contexts hit, in the same order, or null if the corpus has no "key" field */
+        final String[] names;
+
+        Entry(long snapshotGeneration, long contentsGeneration, long tagsGeneration, int[] docs, String[] names) {
+            this.snapshotGeneration = snapshotGeneration;
+            this.contentsGeneration = contentsGeneration;
+            this.tagsGeneration = tagsGeneration;
+            this.docs = docs;
+            this.names = names;
+        }
+
+        long memorySize() {
+            long size = 64 + 4L * docs.length;
+            if(names != null) {
+                for(String name : names) {
+                    size += 48 + 2L * name.length();
+                }
+            }
+            return size;
+        }
+    }
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long capacity;
+    private long size = 0;
+    private long hits = 0, misses = 0;
+
+    /**
+     * Create a cache
+     * @param capacity The maximum total size of the cached hits (in bytes)
+     */
+    QueryCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the hits of a query. The entry returned may be for an older snapshot,
+     * but never for older contents or tags
+     * @param key The query, as given by SrlQuery.key()
+     * @param contentsGeneration The current generation of the contents
+     * @param tagsGeneration The current generation of the tags, or -1 if the query does not use tags
+     * @return The entry or null if the query is not in the cache (or out of date)
+     */
+    synchronized Entry get(String key, long contentsGeneration, long tagsGeneration) {
+        Entry entry = cache.get(key);
+        if(entry != null && (entry.contentsGeneration != contentsGeneration ||
+                entry.tagsGeneration != tagsGeneration)) {
+            size -= cache.remove(key).memorySize();
+            entry = null;
+        }
+        if(entry == null)
+            misses++;
+        else
+            hits++;
+        return entry;
+    }
+
+    /**
+     * Add the hits of a query to the cache, removing the least recently used
+     * queries if the cache is full
+     * @param key The query, as given by SrlQuery.key()
+     * @param entry The hits
+     */
+    synchronized void put(String key, Entry entry) {
+        long entrySize = entry.memorySize();
+        Entry old = cache.remove(key);
+        if(old != null)
+            size -= old.memorySize();
+        if(entrySize > capacity)
+            return;
+        cache.put(key, entry);
+        size += entrySize;
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Entry> iter = cache.values().iterator();
+        while(size > capacity && iter.hasNext()) {
+            size -= iter.next().memorySize();
+            iter.remove();
+        }
+    }
+
+    /** Remove all queries from the cache */
+    synchronized void clear() {
+        cache.clear();
+        size = 0;
+    }
+
+    /**
+     * Change the maximum size of the cache
+     * @param capacity The maximum total size of the cached hits (in bytes)
+     */
+    synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        trim();
+    }
+
+    /** The total size of the cached hits (in bytes) */
+    synchronized long size() {
+        return size;
+    }
+
+    /** The number of queries in the cache */
+    synchronized int count() {
+        return cache.size();
+    }
+
+    /** The number of calls to get() which found the query */
+    synchronized long hits() {
+        return hits;
+    }
+
+    /** The number of calls to get() which did not find the query, i.e., the number of queries executed */
+    synchronized long misses() {
+        return misses;
+    }
+}
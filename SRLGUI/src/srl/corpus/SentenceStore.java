@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.corpus;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/**
+ * A store of the tokenized contexts of a corpus, kept in two files beside the
+ * Lucene index. Each context is given a dense integer ID (its "sid" field) when it
+ * is added, and its record holds the token arrays of its contents and, if they are
+ * different, of its tagged contents (see TokenArrayDocument.write()). A context
+ * can then be matched without being tokenized again, and without its text being
+ * read from the index.
+ * <p>
+ * Records are never changed: a context which is changed is stored again under a
+ * new ID, so readers of an older snapshot of the index still find the records of
+ * the contexts they see. Records of contexts which are no longer in the index are
+ * removed by compact(), when the corpus is opened. The contents remain stored in the
+ * index, so a context with no record (e.g., in a corpus made before this store,
+ * or whose record could not be written) is simply tokenized.
+ * <p>
+ * The file "sentences.dat" holds the records one after another (each preceded by
+ * its length and ID), and "sentences.idx" holds the offset of each record in "sentences.dat"
+ * by ID, or -1 for a record that was removed. New records are only made durable
+ * by sync(), which the corpus calls before it commits the index. This class may
+ * be used by several threads at once.
+ * @author John McCrae, National Institute of Informatics
+ */
+final class SentenceStore {
+    static final String DATA_FILE = "sentences.dat";
+    static final String INDEX_FILE = "sentences.idx";
+    /** The records are mapped in chunks of this size */
+    private static final int CHUNK_BITS = 30;
+
+    private final File dir;
+    private final boolean map;
+    private RandomAccessFile data, index;
+    /** The offset of each record by ID, and the number of IDs */
+    private long[] offsets;
+    private int size;
+    private long dataLength;
+    /** The synced part of the data file, mapped (if map is set) */
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    private SentenceStore(File dir, boolean map) {
+        this.dir = dir;
+        this.map = map;
+    }
+
+    /**
+     * Open the store of a corpus
+     * @param dir The directory of the index
+     * @param create If true any existing store is removed
+     * @param map If true the records are read from memory mapped files
+     * @throws IOException If the files could not be opened
+     */
+    static SentenceStore open(File dir, boolean create, boolean map) throws IOException {
+        SentenceStore store = new SentenceStore(dir, map);
+        if (create) {
+            new File(dir, DATA_FILE).delete();
+            new File(dir, INDEX_FILE).delete();
+        }
+        store.openFiles();
+        return store;
+    }
+
+    private void openFiles() throws IOException {
+        data = new RandomAccessFile(new File(dir, DATA_FILE), "rw");
+        index = new RandomAccessFile(new File(dir, INDEX_FILE), "rw");
+        dataLength = data.length();
+        int n = (int) (index.length() / 8);
+        offsets = new long[Math.max(16, n)];
+        size = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(dir, INDEX_FILE))));
+        try {
+            while (size < n) {
+                long offset = in.readLong();
+                // A record which was not synced before a crash is dropped, with any after it
+                if (offset >= dataLength) {
+                    break;
+                }
+                offsets[size++] = offset;
+            }
+        } finally {
+            in.close();
+        }
+        index.setLength(8L * size);
+        index.seek(8L * size);
+        remap();
+    }
+
+    /**
+     * Add a context
+     * @param contents The tokenized contents
+     * @param tagged The tokenized tagged contents, or null if they are the same as the contents
+     * @return The ID of the record
+     * @throws IOException If the record could not be written
+     */
+    int add(TokenArrayDocument contents, TokenArrayDocument tagged) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        // The length and ID are filled in below
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeBoolean(tagged != null);
+        writeDoc(out, contents);
+        if (tagged != null) {
+            writeDoc(out, tagged);
+        }
+        out.close();
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.capacity() - 4);
+        synchronized (this) {
+            // The files are appended to as they are, in case the store has been
+            // opened twice (records added by the other store are not read)
+            long offset = data.length();
+            int sid = (int) (index.length() / 8);
+            record.putInt(4, sid);
+            data.seek(offset);
+            data.write(record.array());
+            dataLength = offset + record.capacity();
+            index.seek(8L * sid);
+            index.writeLong(offset);
+            if (sid >= offsets.length) {
+                long[] o = new long[Math.max(sid + 1, offsets.length * 2)];
+                System.arraycopy(offsets, 0, o, 0, size);
+                offsets = o;
+            }
+            while (size < sid) {
+                offsets[size++] = -1;
+            }
+            offsets[sid] = offset;
+            size = sid + 1;
+            return sid;
+        }
+    }
+
+    /** Write a document preceded by its length, so it can be skipped */
+    private static void writeDoc(DataOutputStream out, TokenArrayDocument doc) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream docOut = new DataOutputStream(bytes);
+        doc.write(docOut);
+        docOut.close();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Read a context
+     * @param sid The ID of the record
+     * @param name The name of the context
+     * @param tagged If true read the tagged contents, otherwise the contents
+     * @return The tokenized context, or null if there is no record with this ID
+     * @throws IOException If the record could not be read
+     */
+    TokenArrayDocument get(int sid, String name, boolean tagged) throws IOException {
+        long offset;
+        synchronized (this) {
+            if (sid < 0 || sid >= size || offsets[sid] < 0) {
+                return null;
+            }
+            offset = offsets[sid];
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(offset)));
+        if (in.readInt() != sid) {
+            // The index and data files do not match, e.g., after a crash while compacting
+            return null;
+        }
+        boolean hasTagged = in.readBoolean();
+        int length = in.readInt();
+        if (tagged && hasTagged) {
+            in.skipBytes(length);
+            in.readInt();
+        }
+        return new TokenArrayDocument(name, in);
+    }
+
+    /** Read the record at an offset of the data file (without its length) */
+    private byte[] read(long offset) throws IOException {
+        MappedByteBuffer[] c = chunks;
+        int chunk = (int) (offset >>> CHUNK_BITS);
+        int pos = (int) (offset & ((1L << CHUNK_BITS) - 1));
+        if (chunk < c.length && pos + 4 <= c[chunk].capacity()) {
+            ByteBuffer b = c[chunk].duplicate();
+            int length = checkLength(b.getInt(pos), offset);
+            if (pos + 4 + length <= b.capacity()) {
+                byte[] record = new byte[length];
+                b.position(pos + 4);
+                b.get(record);
+                return record;
+            }
+        }
+        // Not mapped or split between chunks. (The file is not read through a
+        // FileChannel, as a channel is closed if a thread using it is interrupted)
+        synchronized (this) {
+            data.seek(offset);
+            byte[] record = new byte[checkLength(data.readInt(), offset)];
+            data.readFully(record);
+            return record;
+        }
+    }
+
+    private synchronized int checkLength(int length, long offset) throws IOException {
+        if (length < 4 || offset + 4 + length > dataLength) {
+            throw new IOException("Corrupt record at " + offset + " of the sentence store");
+        }
+        return length;
+    }
+
+    /** Make the records added so far durable. This is called before the index
+     * is committed, so that every context in the index has its record */
+    synchronized void sync() throws IOException {
+        data.getFD().sync();
+        index.getFD().sync();
+        remap();
+    }
+
+    private void remap() throws IOException {
+        if (!map) {
+            return;
+        }
+        MappedByteBuffer[] c = new MappedByteBuffer[(int) ((dataLength + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+        RandomAccessFile raf = new RandomAccessFile(new File(dir, DATA_FILE), "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            for (int i = 0; i < c.length; i++) {
+                long start = (long) i << CHUNK_BITS;
+                c[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << CHUNK_BITS, dataLength - start));
+            }
+        } finally {
+            // The mapping remains valid after the file is closed
+            raf.close();
+        }
+        chunks = c;
+    }
+
+    /** The number of IDs given to records, including removed records */
+    synchronized int size() {
+        return size;
+    }
+
+    /** The number of records which have not been removed */
+    synchronized int records() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (offsets[i] >= 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Remove the records of contexts no longer in the index, by copying the others to
+     * new files which then replace the old ones. The IDs of the records kept are not
+     * changed. This must not be called while other threads use the store
+     * @param live The IDs of the records to keep
+     * @throws IOException If the store could not be rewritten
+     */
+    synchronized void compact(BitSet live) throws IOException {
+        File newData = new File(dir, DATA_FILE + ".new");
+        File newIndex = new File(dir, INDEX_FILE + ".new");
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newData)));
+        DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newIndex)));
+        try {
+            long offset = 0;
+            for (int i = 0; i < size; i++) {
+                if (offsets[i] < 0 || !live.get(i)) {
+                    indexOut.writeLong(-1);
+                    continue;
+                }
+                byte[] record = read(offsets[i]);
+                dataOut.writeInt(record.length);
+                dataOut.write(record);
+                indexOut.writeLong(offset);
+                offset += 4 + record.length;
+            }
+        } finally {
+            dataOut.close();
+            indexOut.close();
+        }
+        close();
+        try {
+            replace(newData, new File(dir, DATA_FILE));
+            replace(newIndex, new File(dir, INDEX_FILE));
+        } finally {
+            // If only the data was replaced, the IDs in the records do not match
+            // the index, so the records are not read
+            openFiles();
+        }
+    }
+
+    private static void replace(File from, File to) throws IOException {
+        if (!to.delete() || !from.renameTo(to)) {
+            throw new IOException("Could not replace " + to);
+        }
+    }
+
+    /** Close the files of the store */
+    synchronized void close() throws IOException {
+        chunks = new MappedByteBuffer[0];
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+}
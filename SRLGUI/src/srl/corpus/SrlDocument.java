@@ -47,10 +47,11 @@ public class SrlDocument extends AbstractList<Token> {
      * documents data should be in the field taggedContents if tagged is true
      * and contents if tagged is false. (SRL documents created this way are not
      * modifiable)
+     * @see Corpus#taggedContents(Document)
      */
     public SrlDocument(Document doc, Processor processor, boolean tagged) {
         try {
-            init(doc.getField(tagged ? "taggedContents" : "contents").stringValue(), processor);
+            init(tagged ? Corpus.taggedContents(doc) : doc.getField("contents").stringValue(), processor);
         } catch(NullPointerException x) {
             if(tagged) {
                 init("",processor);
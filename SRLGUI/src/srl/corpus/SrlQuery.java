@@ -12,12 +12,14 @@ package srl.corpus;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 import srl.tools.strings.Strings;
 import srl.tools.struct.Pair;
 
 /**
- * This represents a query on the Corpus object. Corpus can be queried on 4
- * indices, the raw text, matches to any word list or word list set and any tagged entities
+ * This represents a query on the Corpus object. Corpus can be queried on 6
+ * indices, the raw text, matches to any word list or word list set, any tagged entities,
+ * the character trigrams of the tokens and the character categories of the tokens
  * @author John McCrae, National Institute of Informatics
  */
 public class SrlQuery {
@@ -29,12 +31,99 @@ public class SrlQuery {
     public Set<String> wordListSets;
     /** The entities in this query */
     public Set<Pair<String,String>> entities;
+    /** The character trigrams in this query. The start and end of a token are
+     * marked by ^ and $, e.g., "^ab" */
+    public Set<String> grams;
+    /** The character categories in this query, e.g., "Lu" or "N" (see Character.getType()) */
+    public Set<String> categories;
     
     public SrlQuery() {
         wordLists = new HashSet<String>();
         wordListSets = new HashSet<String>();
         query = new StringBuffer("\"");
         entities = new HashSet<Pair<String,String>>();
+        grams = new HashSet<String>();
+        categories = new HashSet<String>();
+    }
+
+    /**
+     * Add a string that must occur in some token of the sentence. The string is
+     * added as its (lower case) character trigrams, so strings shorter than three
+     * characters are ignored
+     * @param s The string. Start it with ^ if it must begin a token and end it with
+     * $ if it must end a token, e.g., "^xyz" for begins("xyz")
+     */
+    public void addString(String s) {
+        addGrams(lowerCase(s), grams);
+    }
+
+    /**
+     * Convert to lower case, so that a substring of the result is the lower case
+     * of the substring. (Final sigma is the only letter whose lower case
+     * depends on the letters around it)
+     */
+    static String lowerCase(String s) {
+        return s.toLowerCase().replace('\u03c2', '\u03c3');
+    }
+
+    /**
+     * Find the character trigrams of a string
+     * @param s The string, e.g., a token marked with ^ and $
+     * @param rval The set to add the trigrams to
+     */
+    static void addGrams(String s, Set<String> rval) {
+        for(int i = 0; i + 3 <= s.length(); i++) {
+            rval.add(s.substring(i, i + 3));
+        }
+    }
+
+    /**
+     * The name of a character category as used in regular expressions, e.g., "Lu" for an upper case letter
+     * @param type The type as given by Character.getType()
+     * @return The name or null if the type is not known
+     */
+    static String categoryName(int type) {
+        switch(type) {
+            case Character.UPPERCASE_LETTER: return "Lu";
+            case Character.LOWERCASE_LETTER: return "Ll";
+            case Character.TITLECASE_LETTER: return "Lt";
+            case Character.MODIFIER_LETTER: return "Lm";
+            case Character.OTHER_LETTER: return "Lo";
+            case Character.NON_SPACING_MARK: return "Mn";
+            case Character.ENCLOSING_MARK: return "Me";
+            case Character.COMBINING_SPACING_MARK: return "Mc";
+            case Character.DECIMAL_DIGIT_NUMBER: return "Nd";
+            case Character.LETTER_NUMBER: return "Nl";
+            case Character.OTHER_NUMBER: return "No";
+            case Character.SPACE_SEPARATOR: return "Zs";
+            case Character.LINE_SEPARATOR: return "Zl";
+            case Character.PARAGRAPH_SEPARATOR: return "Zp";
+            case Character.CONTROL: return "Cc";
+            case Character.FORMAT: return "Cf";
+            case Character.PRIVATE_USE: return "Co";
+            case Character.SURROGATE: return "Cs";
+            case Character.DASH_PUNCTUATION: return "Pd";
+            case Character.START_PUNCTUATION: return "Ps";
+            case Character.END_PUNCTUATION: return "Pe";
+            case Character.CONNECTOR_PUNCTUATION: return "Pc";
+            case Character.OTHER_PUNCTUATION: return "Po";
+            case Character.INITIAL_QUOTE_PUNCTUATION: return "Pi";
+            case Character.FINAL_QUOTE_PUNCTUATION: return "Pf";
+            case Character.MATH_SYMBOL: return "Sm";
+            case Character.CURRENCY_SYMBOL: return "Sc";
+            case Character.MODIFIER_SYMBOL: return "Sk";
+            case Character.OTHER_SYMBOL: return "So";
+            case Character.UNASSIGNED: return "Cn";
+            default: return null;
+        }
+    }
+
+    /**
+     * Check if a name is a character category which can be queried
+     * @param name The name, e.g., "Lu" or "L"
+     */
+    public static boolean isCategory(String name) {
+        return name.matches("L[ultmo]?|M[nec]?|N[dlo]?|Z[slp]?|C[cfosn]?|P[dsecoif]?|S[mcko]?");
     }
 
     @Override
@@ -43,15 +132,38 @@ public class SrlQuery {
             return query.toString().equals(((SrlQuery)arg0).query.toString()) &&
                     wordListSets.equals(((SrlQuery)arg0).wordListSets) &&
                     wordLists.equals(((SrlQuery)arg0).wordLists) &&
-                    entities.equals(((SrlQuery)arg0).entities);
+                    entities.equals(((SrlQuery)arg0).entities) &&
+                    grams.equals(((SrlQuery)arg0).grams) &&
+                    categories.equals(((SrlQuery)arg0).categories);
         } else
             return false;
     }
 
+    @Override
+    public int hashCode() {
+        return query.toString().hashCode() ^ wordLists.hashCode() ^
+                wordListSets.hashCode() ^ entities.hashCode() ^ grams.hashCode() ^ categories.hashCode();
+    }
+
+    /**
+     * A normalized form of this query, which is the same for all equal queries
+     * (independent of the order of the sets)
+     */
+    String key() {
+        Set<String> ents = new TreeSet<String>();
+        for(Pair<String, String> entity : entities) {
+            ents.add(entity.first + " " + entity.second);
+        }
+        return query.toString() + "\n" + Strings.join(",", new TreeSet<String>(wordLists)) +
+                "\n" + Strings.join(",", new TreeSet<String>(wordListSets)) + "\n" + Strings.join(",", ents) +
+                "\n" + Strings.join("\t", new TreeSet<String>(grams)) + "\n" + Strings.join(",", new TreeSet<String>(categories));
+    }
+
     @Override
     public String toString() {
         return "<query: " + query.toString() + " ||| wordLists: " + Strings.join(",", wordLists) +
                 " ||| wordListSets: " + Strings.join(",", wordListSets) + " ||| entities " +
-                Strings.join(",", entities) + ">";
+                Strings.join(",", entities) + " ||| grams: " + Strings.join(",", grams) +
+                " ||| categories: " + Strings.join(",", categories) + ">";
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.corpus;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The dictionary of the terms of rules and word lists, mapping each lower case
+ * term to an integer ID. Terms are given IDs as rules and word lists are compiled,
+ * and the terms of documents are only looked up (see TokenArrayDocument), so that
+ * literals and word list entries can be matched by comparing integers rather than
+ * strings. A term of a document which is not in the dictionary has the ID NONE,
+ * which is never equal to the ID of a rule term. The same term always has the
+ * same ID, and IDs are never removed. This class may be used by several threads
+ * at once.
+ * @author John McCrae, National Institute of Informatics
+ */
+public final class TermDictionary {
+    /** The ID of tag tokens and of terms not in the dictionary */
+    public static final int NONE = -1;
+
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private static volatile String[] terms = new String[1024];
+    private static int size = 0;
+
+    private TermDictionary() {
+    }
+
+    /**
+     * Get the ID of a term, adding it to the dictionary if necessary
+     * @param term The term (it is converted to lower case)
+     * @return The ID of the lower case term
+     */
+    public static int getID(String term) {
+        term = term.toLowerCase();
+        Integer id = ids.get(term);
+        if(id != null)
+            return id.intValue();
+        synchronized(ids) {
+            id = ids.get(term);
+            if(id != null)
+                return id.intValue();
+            if(size == terms.length) {
+                String[] t = new String[size * 2];
+                System.arraycopy(terms, 0, t, 0, size);
+                terms = t;
+            }
+            terms[size] = term;
+            ids.put(term, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Get the ID of a term without adding it to the dictionary
+     * @param term The term (it is converted to lower case)
+     * @return The ID or NONE if the term is not in the dictionary
+     */
+    public static int lookup(String term) {
+        Integer id = ids.get(term.toLowerCase());
+        return id == null ? NONE : id.intValue();
+    }
+
+    /**
+     * Get the (lower case) term with a given ID
+     * @param id The ID
+     * @throws IllegalArgumentException If no term has this ID
+     */
+    public static String getTerm(int id) {
+        String[] t = terms;
+        if(id < 0 || id >= t.length || t[id] == null)
+            throw new IllegalArgumentException("No term with ID " + id);
+        return t[id];
+    }
+
+    /** The number of terms in the dictionary */
+    public static int size() {
+        synchronized(ids) {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.corpus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import org.apache.lucene.analysis.Token;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.document.Document;
+
+/**
+ * A read-only SrlDocument stored in arrays. The text of all tokens is kept in a
+ * single character buffer, with the offset, length and kind (term, begin tag or
+ * end tag) of each token in primitive arrays. The tokenizer is read completely when
+ * the document is created, so unlike SrlDocument, get() and size() may be called at
+ * any time and take constant time, and no Token objects are kept. Token objects are
+ * only created if the document is accessed as a list; the methods such as
+ * kind(), termText() and termEquals() read the arrays directly.
+ * <p>
+ * For tags, the buffer holds the tag type, and for begin tags this is followed
+ * by a zero character and the tag value (cl="..."). Each term is also looked up
+ * in the TermDictionary as it is read, so terms can be compared by termID(). Terms
+ * are not added to the dictionary, so a term which is in no rule or word list has
+ * the ID TermDictionary.NONE.
+ * @author John McCrae, National Institute of Informatics
+ */
+public class TokenArrayDocument extends SrlDocument {
+    /** Token kind: a normal term */
+    public static final byte TERM = 0;
+    /** Token kind: a begin tag (BeginTagToken) */
+    public static final byte BEGIN_TAG = 1;
+    /** Token kind: an end tag (EndTagToken) */
+    public static final byte END_TAG = 2;
+
+    private char[] buffer;
+    private int[] offset;
+    private int[] length;
+    private int[] startOffset;
+    private int[] endOffset;
+    private byte[] kind;
+    private int[] termID;
+    private int size;
+    private int bufferSize;
+
+    /**
+     * Create a document from a Lucene object and a processor. The
+     * documents data should be in the field taggedContents if tagged is true
+     * and contents if tagged is false.
+     * @see SrlDocument#SrlDocument(Document, Processor, boolean)
+     */
+    public TokenArrayDocument(Document doc, Processor processor, boolean tagged) {
+        super(doc.getField("name").stringValue());
+        String contents = tagged ? Corpus.taggedContents(doc) : 
+            (doc.getField("contents") != null ? doc.getField("contents").stringValue() : null);
+        if(contents != null) {
+            read(processor.getTokenStream(contents));
+        } else if(tagged) {
+            read(processor.getTokenStream(""));
+        } else {
+            throw new RuntimeException("Document has no contents");
+        }
+    }
+
+    /** Create a document from raw text
+     * @param name The document name
+     * @param contents The text
+     * @param processor The linguistic processor
+     */
+    public TokenArrayDocument(String name, String contents, Processor processor) {
+        super(name);
+        read(processor.getTokenStream(contents));
+    }
+
+    /** Copy a document
+     * @param doc The document to copy
+     */
+    public TokenArrayDocument(SrlDocument doc) {
+        super(doc.getName());
+        init(16, 64);
+        for(Token tk : doc) {
+            append(tk);
+        }
+    }
+
+    /** Read a document written by write()
+     * @param name The document name
+     * @param in The input
+     * @throws IOException If the input could not be read, or is not a document
+     * @see SentenceStore
+     */
+    TokenArrayDocument(String name, DataInput in) throws IOException {
+        super(name);
+        int n = readVarInt(in);
+        int chars = readVarInt(in);
+        init(Math.max(n, 1), Math.max(chars, 1));
+        if(in.readBoolean()) {
+            byte[] utf8 = new byte[readVarInt(in)];
+            in.readFully(utf8);
+            String text = new String(utf8, "UTF-8");
+            if(text.length() != chars)
+                throw new IOException("Corrupt document " + name);
+            text.getChars(0, chars, buffer, 0);
+        } else {
+            for(int i = 0; i < chars; i++) {
+                buffer[i] = in.readChar();
+            }
+        }
+        bufferSize = chars;
+        int end = 0;
+        for(size = 0; size < n; size++) {
+            kind[size] = in.readByte();
+            offset[size] = size == 0 ? 0 : offset[size - 1] + length[size - 1];
+            length[size] = readVarInt(in);
+            startOffset[size] = end + unZigZag(readVarInt(in));
+            end = endOffset[size] = startOffset[size] + unZigZag(readVarInt(in));
+            if(offset[size] + length[size] > chars || kind[size] < TERM || kind[size] > END_TAG)
+                throw new IOException("Corrupt document " + name);
+            termID[size] = kind[size] == TERM ?
+                TermDictionary.lookup(new String(buffer, offset[size], length[size])) :
+                TermDictionary.NONE;
+        }
+    }
+
+    /** Write this document in a compact form, which can be read by
+     * TokenArrayDocument(String, DataInput). The name is not written. The
+     * text of the tokens is written as UTF-8 and the lengths and offsets as
+     * variable length integers, so a term usually takes only a few bytes more
+     * than its text
+     * @param out The output
+     * @throws IOException If the output could not be written
+     */
+    void write(DataOutput out) throws IOException {
+        writeVarInt(out, size);
+        writeVarInt(out, bufferSize);
+        String text = new String(buffer, 0, bufferSize);
+        byte[] utf8 = text.getBytes("UTF-8");
+        // Unpaired surrogates are not kept by UTF-8, so write such text as it is
+        boolean isUTF8 = new String(utf8, "UTF-8").equals(text);
+        out.writeBoolean(isUTF8);
+        if(isUTF8) {
+            writeVarInt(out, utf8.length);
+            out.write(utf8);
+        } else {
+            out.writeChars(text);
+        }
+        int end = 0;
+        for(int i = 0; i < size; i++) {
+            out.writeByte(kind[i]);
+            writeVarInt(out, length[i]);
+            writeVarInt(out, zigZag(startOffset[i] - end));
+            writeVarInt(out, zigZag(endOffset[i] - startOffset[i]));
+            end = endOffset[i];
+        }
+    }
+
+    // Zig-zag encoding maps small signed numbers to small unsigned numbers
+    private static int zigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int unZigZag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int n) throws IOException {
+        while((n & ~0x7f) != 0) {
+            out.writeByte((n & 0x7f) | 0x80);
+            n >>>= 7;
+        }
+        out.writeByte(n);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int n = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            n |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0)
+                return n;
+        }
+        throw new IOException("Corrupt variable length integer");
+    }
+
+    private void read(TokenStream ts) {
+        init(16, 64);
+        try {
+            for(Token tk = ts.next(); tk != null; tk = ts.next()) {
+                append(tk);
+            }
+        } catch(IOException x) {
+            x.printStackTrace();
+            throw new RuntimeException(x.getMessage());
+        }
+    }
+
+    private void init(int tokens, int chars) {
+        buffer = new char[chars];
+        offset = new int[tokens];
+        length = new int[tokens];
+        startOffset = new int[tokens];
+        endOffset = new int[tokens];
+        kind = new byte[tokens];
+        termID = new int[tokens];
+        size = 0;
+        bufferSize = 0;
+    }
+
+    private void append(Token tk) {
+        if(size == kind.length) {
+            int n = size * 2;
+            offset = grow(offset, n);
+            length = grow(length, n);
+            startOffset = grow(startOffset, n);
+            endOffset = grow(endOffset, n);
+            termID = grow(termID, n);
+            byte[] k = new byte[n];
+            System.arraycopy(kind, 0, k, 0, size);
+            kind = k;
+        }
+        offset[size] = bufferSize;
+        startOffset[size] = tk.startOffset();
+        endOffset[size] = tk.endOffset();
+        if(tk instanceof BeginTagToken) {
+            BeginTagToken btt = (BeginTagToken)tk;
+            kind[size] = BEGIN_TAG;
+            termID[size] = TermDictionary.NONE;
+            appendChars(btt.type);
+            appendChars("\u0000");
+            appendChars(btt.val);
+        } else if(tk instanceof EndTagToken) {
+            kind[size] = END_TAG;
+            termID[size] = TermDictionary.NONE;
+            appendChars(((EndTagToken)tk).type);
+        } else {
+            kind[size] = TERM;
+            ensureBuffer(tk.termLength());
+            System.arraycopy(tk.termBuffer(), 0, buffer, bufferSize, tk.termLength());
+            bufferSize += tk.termLength();
+            termID[size] = TermDictionary.lookup(new String(tk.termBuffer(), 0, tk.termLength()));
+        }
+        length[size] = bufferSize - offset[size];
+        size++;
+    }
+
+    private static int[] grow(int[] a, int n) {
+        int[] b = new int[n];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    private void ensureBuffer(int n) {
+        if(bufferSize + n > buffer.length) {
+            char[] b = new char[Math.max(buffer.length * 2, bufferSize + n)];
+            System.arraycopy(buffer, 0, b, 0, bufferSize);
+            buffer = b;
+        }
+    }
+
+    private void appendChars(String s) {
+        ensureBuffer(s.length());
+        s.getChars(0, s.length(), buffer, bufferSize);
+        bufferSize += s.length();
+    }
+
+    /** Get the kind of a token
+     * @return One of TERM, BEGIN_TAG or END_TAG */
+    public byte kind(int i) {
+        checkIndex(i);
+        return kind[i];
+    }
+
+    /** Get the text of a term, or "" for a tag (as Token.termText()) */
+    public String termText(int i) {
+        checkIndex(i);
+        if(kind[i] != TERM)
+            return "";
+        return new String(buffer, offset[i], length[i]);
+    }
+
+    /** Get the ID of the lower case text of a term, or TermDictionary.NONE for a tag
+     * or a term not in the dictionary
+     * @see TermDictionary */
+    public int termID(int i) {
+        checkIndex(i);
+        if(termID[i] == TermDictionary.NONE && kind[i] == TERM) {
+            // A rule or word list may have added the term since this document was read
+            termID[i] = TermDictionary.lookup(termText(i));
+        }
+        return termID[i];
+    }
+
+    /** Get the length of the text of a term, or 0 for a tag */
+    public int termLength(int i) {
+        checkIndex(i);
+        return kind[i] == TERM ? length[i] : 0;
+    }
+
+    /** Get a character of the text of a term
+     * @param i The token
+     * @param j The index of the character in the term
+     */
+    public char charAt(int i, int j) {
+        if(j < 0 || j >= termLength(i))
+            throw new IndexOutOfBoundsException("Index: " + j + ", Length: " + termLength(i));
+        return buffer[offset[i] + j];
+    }
+
+    /** Check if a term has the given text, without creating any objects
+     * @param i The token
+     * @param s The text
+     * @return False if the token is a tag or its text is not s
+     */
+    public boolean termEquals(int i, String s) {
+        checkIndex(i);
+        if(kind[i] != TERM || length[i] != s.length())
+            return false;
+        for(int j = 0; j < length[i]; j++) {
+            if(buffer[offset[i] + j] != s.charAt(j))
+                return false;
+        }
+        return true;
+    }
+
+    /** Check if a term has the given text, ignoring case, without creating any objects
+     * @param i The token
+     * @param s The text
+     * @return False if the token is a tag or its text is not s
+     */
+    public boolean termEqualsIgnoreCase(int i, String s) {
+        checkIndex(i);
+        if(kind[i] != TERM || length[i] != s.length())
+            return false;
+        for(int j = 0; j < length[i]; j++) {
+            char c1 = buffer[offset[i] + j], c2 = s.charAt(j);
+            if(c1 != c2 && Character.toLowerCase(c1) != Character.toLowerCase(c2))
+                return false;
+        }
+        return true;
+    }
+
+    /** Get the type of a begin or end tag
+     * @throws IllegalArgumentException If the token is not a tag */
+    public String tagType(int i) {
+        checkIndex(i);
+        if(kind[i] == END_TAG)
+            return new String(buffer, offset[i], length[i]);
+        else if(kind[i] == BEGIN_TAG)
+            return new String(buffer, offset[i], separator(i) - offset[i]);
+        else
+            throw new IllegalArgumentException("Token " + i + " is not a tag");
+    }
+
+    /** Get the value (cl="...") of a begin tag
+     * @throws IllegalArgumentException If the token is not a begin tag */
+    public String tagValue(int i) {
+        checkIndex(i);
+        if(kind[i] != BEGIN_TAG)
+            throw new IllegalArgumentException("Token " + i + " is not a begin tag");
+        int sep = separator(i);
+        return new String(buffer, sep + 1, offset[i] + length[i] - sep - 1);
+    }
+
+    /** Get the tag as it is written in tagged text, e.g., &lt;name cl="location"&gt;
+     * @throws IllegalArgumentException If the token is not a tag */
+    public String getTag(int i) {
+        if(kind(i) == BEGIN_TAG)
+            return "<" + tagType(i) + " cl=\"" + tagValue(i) + "\">";
+        else
+            return "</" + tagType(i) + ">";
+    }
+
+    /** An estimate of the memory used by this document (in bytes) */
+    long memorySize() {
+        // The arrays, the name, and the object headers
+        return 2L * buffer.length + 21L * kind.length + (name == null ? 0 : 2L * name.length()) + 128;
+    }
+
+    private int separator(int i) {
+        int j = offset[i];
+        while(buffer[j] != '\u0000')
+            j++;
+        return j;
+    }
+
+    private void checkIndex(int i) {
+        if(i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+
+    /** Get a token. This creates a new Token object */
+    @Override
+    public Token get(int index) {
+        checkIndex(index);
+        if(kind[index] == BEGIN_TAG)
+            return new BeginTagToken(getTag(index), startOffset[index], endOffset[index]);
+        else if(kind[index] == END_TAG)
+            return new EndTagToken(getTag(index), startOffset[index], endOffset[index]);
+        else
+            return new SrlToken(termText(index), startOffset[index], endOffset[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Token array documents cannot be modified
+     * @throws IllegalStateException Always */
+    @Override
+    public boolean add(Token arg0) {
+        throw new IllegalStateException("Attempting to add to token array document");
+    }
+
+    @Override
+    public Iterator<Token> iterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<Token> listIterator(final int index) {
+        if(index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return new ListIterator<Token>() {
+            int pos = index;
+
+            public boolean hasNext() {
+                return pos < size;
+            }
+
+            public Token next() {
+                if(pos >= size)
+                    throw new NoSuchElementException();
+                return get(pos++);
+            }
+
+            public boolean hasPrevious() {
+                return pos > 0;
+            }
+
+            public Token previous() {
+                if(pos <= 0)
+                    throw new NoSuchElementException();
+                return get(--pos);
+            }
+
+            public int nextIndex() {
+                return pos;
+            }
+
+            public int previousIndex() {
+                return pos - 1;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            public void set(Token e) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void add(Token e) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer rval = new StringBuffer();
+        for(int i = 0; i < size; i++) {
+            if(kind[i] == TERM)
+                rval.append(buffer, offset[i], length[i]);
+            if(i + 1 < size)
+                rval.append(" ");
+        }
+        return rval.toString();
+    }
+
+    @Override
+    public String toStringTagged() {
+        StringBuffer rval = new StringBuffer();
+        for(int i = 0; i < size; i++) {
+            if(kind[i] == TERM)
+                rval.append(buffer, offset[i], length[i]);
+            else
+                rval.append(getTag(i));
+            if(i + 1 < size)
+                rval.append(" ");
+        }
+        return rval.toString();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.corpus;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of tokenized contexts, keyed by the UID of the context and the field
+ * tokenized. The total size of the cached documents is bounded, and the least
+ * recently used documents are removed first. As the documents are read-only they
+ * may be shared by any number of threads.
+ * <p>
+ * A context is given a new UID when its contents change, so a cached document
+ * never becomes out of date; however, the corpus removes documents from the cache
+ * when it changes them, so that the memory is freed at once.
+ * @author John McCrae, National Institute of Informatics
+ * @see Corpus#getTokenizedContext(org.apache.lucene.document.Document, boolean)
+ */
+final class TokenCache {
+    private final LinkedHashMap<String, TokenArrayDocument> cache = new LinkedHashMap<String, TokenArrayDocument>(16, 0.75f, true);
+    private long capacity;
+    private long size = 0;
+    private long hits = 0, misses = 0;
+
+    /**
+     * Create a cache
+     * @param capacity The maximum total size of the cached documents (in bytes)
+     */
+    TokenCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    private static String key(String uid, boolean tagged) {
+        return uid + (tagged ? " taggedContents" : " contents");
+    }
+
+    /**
+     * Get a document from the cache
+     * @param uid The UID of the context
+     * @param tagged If true the document of the tagged contents, otherwise of the contents
+     * @return The document or null if it is not in the cache
+     */
+    synchronized TokenArrayDocument get(String uid, boolean tagged) {
+        TokenArrayDocument doc = cache.get(key(uid, tagged));
+        if(doc == null)
+            misses++;
+        else
+            hits++;
+        return doc;
+    }
+
+    /**
+     * Add a document to the cache, removing the least recently used documents if
+     * the cache is full. A document larger than the cache is not added
+     * @param uid The UID of the context
+     * @param tagged If true the document is of the tagged contents, otherwise of the contents
+     * @param doc The document
+     */
+    synchronized void put(String uid, boolean tagged, TokenArrayDocument doc) {
+        long docSize = doc.memorySize();
+        if(docSize > capacity)
+            return;
+        TokenArrayDocument old = cache.put(key(uid, tagged), doc);
+        if(old != null)
+            size -= old.memorySize();
+        size += docSize;
+        trim();
+    }
+
+    private void trim() {
+        Iterator<TokenArrayDocument> iter = cache.values().iterator();
+        while(size > capacity && iter.hasNext()) {
+            size -= iter.next().memorySize();
+            iter.remove();
+        }
+    }
+
+    /**
+     * Remove both documents of a context from the cache
+     * @param uid The UID of the context
+     */
+    synchronized void remove(String uid) {
+        for(boolean tagged : new boolean[] { false, true }) {
+            TokenArrayDocument old = cache.remove(key(uid, tagged));
+            if(old != null)
+                size -= old.memorySize();
+        }
+    }
+
+    /**
+     * Remove all the contexts of a document from the cache
+     * @param docName The name of the document
+     */
+    synchronized void removeDoc(String docName) {
+        String prefix = docName + " ";
+        Iterator<Map.Entry<String, TokenArrayDocument>> iter = cache.entrySet().iterator();
+        while(iter.hasNext()) {
+            TokenArrayDocument doc = iter.next().getValue();
+            if(doc.getName().startsWith(prefix)) {
+                size -= doc.memorySize();
+                iter.remove();
+            }
+        }
+    }
+
+    /** Remove all documents from the cache */
+    synchronized void clear() {
+        cache.clear();
+        size = 0;
+    }
+
+    /**
+     * Change the maximum size of the cache
+     * @param capacity The maximum total size of the cached documents (in bytes)
+     */
+    synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        trim();
+    }
+
+    /** The total size of the cached documents (in bytes) */
+    synchronized long size() {
+        return size;
+    }
+
+    /** The number of documents in the cache */
+    synchronized int count() {
+        return cache.size();
+    }
+
+    /** The number of calls to get() which found a document */
+    synchronized long hits() {
+        return hits;
+    }
+
+    /** The number of calls to get() which did not find a document */
+    synchronized long misses() {
+        return misses;
+    }
+}
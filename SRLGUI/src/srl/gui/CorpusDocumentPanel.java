@@ -407,10 +407,10 @@ public class CorpusDocumentPanel extends javax.swing.JPanel {
             saveButtonActionPerformed(evt);
         }
         if(docList.getSelectedIndex() != -1) {
-            List<String> docTexts;
+            List<TokenArrayDocument> docTexts;
             mainPane.setText("");
             try {
-                docTexts = corpus.getDocSentences((String)docList.getSelectedValue());
+                docTexts = corpus.getDocTokenizedSentences((String)docList.getSelectedValue());
             } catch (IOException x) {
                 x.printStackTrace();
                 mainPane.setText("<<<<IO Error>>>>");
@@ -421,8 +421,7 @@ public class CorpusDocumentPanel extends javax.swing.JPanel {
                 return;
             }   
             StringBuffer s = new StringBuffer();
-            for(String docText : docTexts) {
-                SrlDocument doc = new SrlDocument("", docText, corpus.getProcessor());
+            for(TokenArrayDocument doc : docTexts) {
                 for (Token t : doc) {
                     s.append(t.termText());
                     s.append("\u00b7");
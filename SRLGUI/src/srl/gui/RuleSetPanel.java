@@ -571,7 +571,8 @@ private void ruleEditorActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FI
         if (matcherThread != null && matcherThread.isAlive()) {
             matchFinder.sig.stop();
         }
-        matcherThread = new Thread(matchFinder = new RuleMatchFinder(rule));
+        // The rule has changed so the profile of the last run is not shown
+        matcherThread = new Thread(matchFinder = new RuleMatchFinder(rule, null));
         matchesLabel.setText("Matching...");
         if (!rule.body.isEmpty()) {
             matcherThread.start();
@@ -722,7 +723,7 @@ private void matchesTableMouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRS
             matchFinder.sig.stop();
         }
         if (!dontMatch) {
-            matcherThread = new Thread(matchFinder = new RuleMatchFinder(r));
+            matcherThread = new Thread(matchFinder = new RuleMatchFinder(r, ruleSet.rules.get(ruleList.getSelectedRow()).first));
             if (!r.body.isEmpty()) {
                 matchesLabel.setText("Matching...");
                 matcherThread.start();
@@ -751,10 +752,12 @@ private void matchesTableMouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRS
     private class RuleMatchFinder implements Runnable {
 
         Rule rule;
+        String ruleID;
         StopSignal sig;
 
-        RuleMatchFinder(Rule r) {
+        RuleMatchFinder(Rule r, String ruleID) {
             this.rule = r;
+            this.ruleID = ruleID;
             sig = new StopSignal();
         }
 
@@ -772,7 +775,7 @@ private void matchesTableMouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRS
                         if (signal.isStopped()) {
                             return;
                         }
-                        SrlDocument doc = new SrlDocument(d, corpus.getProcessor(), ruleSet.ruleType == Rule.TEMPLATE_RULE);
+                        SrlDocument doc = corpus.getTokenizedContext(d, ruleSet.ruleType == Rule.TEMPLATE_RULE);
                         List<HashMap<Entity, SrlMatchRegion>> results = rule.getMatch(doc, false);
                         //RuleSetPanel.this.results.addAll(results);
                         if (results != null) {
@@ -803,7 +806,7 @@ private void matchesTableMouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRS
                     rowData[1] = varIter.next();
                     dtm.addRow(rowData);
                 }
-                matchesLabel.setText("Matches: " + docs.size());
+                matchesLabel.setText("Matches: " + docs.size() + profileSummary(ruleID));
 
             } catch (IOException x) {
                 JOptionPane.showMessageDialog(RuleSetPanel.this, x.getMessage(), "Disk Error", JOptionPane.ERROR_MESSAGE);
@@ -813,6 +816,22 @@ private void matchesTableMouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRS
         }
     }
 
+    /** The counts for a rule from the last time the corpus was tagged or templates extracted */
+    private String profileSummary(String ruleID) {
+        RuleProfile profile = ruleSet.ruleType == Rule.ENTITY_RULE ? SRLGUIApp.getApplication().entityProfile
+                : SRLGUIApp.getApplication().templateProfile;
+        if (profile == null || ruleID == null) {
+            return "";
+        }
+        int i = profile.indexOf(ruleSet.name, ruleID);
+        if (i < 0) {
+            return "";
+        }
+        return String.format(" (last run: %d candidates, %d sentences matched, %d matches, %d steps, %.1f ms)",
+                profile.getCandidates(i), profile.getMatchedSentences(i), profile.getMatches(i),
+                profile.getSteps(i), profile.getTime(i) / 1e6);
+    }
+
     @Action
     public void acceptRule() {
         ruleEditorActionPerformed(null);
@@ -36,6 +36,9 @@ public class SRLGUIApp extends SingleFrameApplication {
     HashMap<String,RuleSet> templateRuleSets;
     HashMap<String,WordListSet> wordLists;
     public SrlProject proj;
+    /** The profiles of the rules from the last time the corpus was tagged and
+     * templates were extracted (null if not done yet) */
+    RuleProfile entityProfile, templateProfile;
     
     public static final int SRL_ENTITY_RULESET = 1;
     public static final int SRL_TEMPLATE_RULESET = 2;
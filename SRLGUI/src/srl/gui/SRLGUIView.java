@@ -27,6 +27,7 @@ import java.io.*;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
@@ -43,6 +44,7 @@ import srl.corpus.CorpusExtractor;
 import srl.project.SrlProject;
 import srl.rule.*;
 import srl.wordlist.WordListSet;
+import srl.tools.struct.Pair;
 
 /**
  * The application's main frame.
@@ -1627,25 +1629,56 @@ private void mainTreeMouseReleased(java.awt.event.MouseEvent evt) {//GEN-FIRST:e
                 try {
                     int replaceDoc = 0; // 0=? 1=YES -1=NO
                     JPanel p = getPanel(SRLGUIApp.getApplication().SRL_CORPUS, "");
-                    int i = 0;
+                    // New documents are added together, documents which already exist
+                    // are dealt with afterwards
+                    final List<File> newFiles = new LinkedList<File>();
+                    List<File> existingFiles = new LinkedList<File>();
+                    Set<String> names = new HashSet<String>();
                     for (File file : selectedFiles) {
                         String fName = file.getName().replaceAll("[^A-Za-z0-9]", "");
-                        setMessage("Adding " + fName);
-                        setProgress((float)i++ / (float)selectedFiles.length);
-                        BufferedReader br;
-                        if(encoding == null) {
-                            br= new BufferedReader(new FileReader(file));
+                        if(corpus.containsDoc(fName.toLowerCase()) || !names.add(fName.toLowerCase())) {
+                            existingFiles.add(file);
                         } else {
-                            br = new BufferedReader(new InputStreamReader(new FileInputStream(file),encoding));
+                            newFiles.add(file);
+                        }
+                    }
+                    corpus.addDocs(new Iterable<Pair<String, String>>() {
+                        public Iterator<Pair<String, String>> iterator() {
+                            final Iterator<File> files = newFiles.iterator();
+                            return new Iterator<Pair<String, String>>() {
+                                int i = 0;
+                                public boolean hasNext() {
+                                    return files.hasNext();
+                                }
+                                public Pair<String, String> next() {
+                                    File file = files.next();
+                                    String fName = file.getName().replaceAll("[^A-Za-z0-9]", "");
+                                    setMessage("Adding " + fName);
+                                    setProgress((float)i++ / (float)selectedFiles.length);
+                                    try {
+                                        return new Pair<String, String>(fName, readFile(file));
+                                    } catch(IOException x) {
+                                        throw new RuntimeException(x);
+                                    }
+                                }
+                                public void remove() {
+                                    throw new UnsupportedOperationException();
+                                }
+                            };
                         }
-                        StringBuffer contents = new StringBuffer();
-                        String in = br.readLine();
-                        while (in != null) {
-                            contents.append(in + "\n");
-                            in = br.readLine();
+                    }, tagged, false);
+                    int i = newFiles.size();
+                    if (p != null) {
+                        for (File file : newFiles) {
+                            ((CorpusDocumentPanel) p).addDoc(file.getName().replaceAll("[^A-Za-z0-9]", ""));
                         }
-                        br.close();
-                        if(corpus.containsDoc(fName)) {
+                    }
+                    for (File file : existingFiles) {
+                        String fName = file.getName().replaceAll("[^A-Za-z0-9]", "");
+                        setMessage("Adding " + fName);
+                        setProgress((float)i++ / (float)selectedFiles.length);
+                        String contents = readFile(file);
+                        if(corpus.containsDoc(fName.toLowerCase())) {
                             if(replaceDoc == 0) {
                                 String[] opts = { "Skip", "Replace", "Skip All", "Replace All" };
                                 int opt = JOptionPane.showOptionDialog(SRLGUIApp.getApplication().getMainFrame(), "Document called "+fName+" already exists", "Duplicate Document", 
@@ -1653,13 +1686,13 @@ private void mainTreeMouseReleased(java.awt.event.MouseEvent evt) {//GEN-FIRST:e
                                 if(opt == 2) { replaceDoc = -1; }
                                 if(opt == 3) { replaceDoc = 1; }
                                 if(opt == 0 || opt == 2) {
-                                    corpus.updateDoc(fName, contents.toString(),false);
+                                    corpus.updateDoc(fName, contents,false);
                                 }
                             } else if(replaceDoc == 1) {
-                                corpus.updateDoc(fName, contents.toString(),false);
+                                corpus.updateDoc(fName, contents,false);
                             }
                         } else
-                            corpus.addDoc(fName, contents.toString(), tagged,false);
+                            corpus.addDoc(fName, contents, tagged,false);
                         if (p != null) {
                             ((CorpusDocumentPanel) p).addDoc(fName);
                         }
@@ -1676,6 +1709,23 @@ private void mainTreeMouseReleased(java.awt.event.MouseEvent evt) {//GEN-FIRST:e
             }
             return null;
         }
+
+        private String readFile(File file) throws IOException {
+            BufferedReader br;
+            if(encoding == null) {
+                br= new BufferedReader(new FileReader(file));
+            } else {
+                br = new BufferedReader(new InputStreamReader(new FileInputStream(file),encoding));
+            }
+            StringBuffer contents = new StringBuffer();
+            String in = br.readLine();
+            while (in != null) {
+                contents.append(in + "\n");
+                in = br.readLine();
+            }
+            br.close();
+            return contents.toString();
+        }
     }
 
     @Action
@@ -1702,9 +1752,11 @@ private void mainTreeMouseReleased(java.awt.event.MouseEvent evt) {//GEN-FIRST:e
 
         public Object doInBackground() throws Exception {
             try {
-                CorpusExtractor ce = new CorpusExtractor(SRLGUIApp.getApplication().proj.corpus);
+                CorpusExtractor ce = new CorpusExtractor(SRLGUIApp.getApplication().proj.corpus, Runtime.getRuntime().availableProcessors());
                 LinkedList<CorpusExtractor.Overlap> overlaps = new LinkedList<CorpusExtractor.Overlap>();
+                ce.setProfiling(true);
                 ce.tagCorpus(SRLGUIApp.getApplication().proj.entityRulesets,overlaps, this, false);
+                SRLGUIApp.getApplication().entityProfile = ce.getProfile();
                 if(overlaps.isEmpty())
                     JOptionPane.showMessageDialog(SRLGUIApp.getApplication().getMainFrame(), "Corpus tagging complete", "Corpus tagger", JOptionPane.INFORMATION_MESSAGE);
                 else {
@@ -1742,8 +1794,10 @@ private void mainTreeMouseReleased(java.awt.event.MouseEvent evt) {//GEN-FIRST:e
 
         public Object doInBackground() throws Exception {
             try {
-                CorpusExtractor ce = new CorpusExtractor(SRLGUIApp.getApplication().proj.corpus);
+                CorpusExtractor ce = new CorpusExtractor(SRLGUIApp.getApplication().proj.corpus, Runtime.getRuntime().availableProcessors());
+                ce.setProfiling(true);
                 ce.extractTemplates(SRLGUIApp.getApplication().proj.templateRulesets, this,false);
+                SRLGUIApp.getApplication().templateProfile = ce.getProfile();
                 JOptionPane.showMessageDialog(SRLGUIApp.getApplication().getMainFrame(), "Template Extraction Complete", "Template Extraction", JOptionPane.INFORMATION_MESSAGE);
             } catch(IOException x) {
                 error(x, "Corpus Tagging Failed");
@@ -21,6 +21,7 @@ import org.apache.lucene.search.Hits;
 import org.jdesktop.application.Action;
 import srl.corpus.CorpusConcurrencyException;
 import srl.corpus.SrlDocument;
+import srl.corpus.TokenArrayDocument;
 
 /**
  *
@@ -177,11 +178,10 @@ public class SearchPanel extends javax.swing.JPanel {
                     queryTokens.add(t.termText());
                 }
                 String docName = ((String)searchTable.getValueAt(searchTable.getSelectedRow(), 0));
-                List<String> docSents = SRLGUIApp.getApplication().proj.corpus.getDocSentences(docName);
+                List<TokenArrayDocument> docSents = SRLGUIApp.getApplication().proj.corpus.getDocTokenizedSentences(docName);
                 TreeSet<DocHighlight> highlights = new TreeSet<DocHighlight>();
                 int sentNo = 0;
-                for(String sent : docSents) {
-                    SrlDocument sentDoc = new SrlDocument("null",sent, SRLGUIApp.getApplication().proj.processor);
+                for(TokenArrayDocument sentDoc : docSents) {
                     int i = 0;
                     for(Token t : sentDoc) {
                         if(queryTokens.contains(t.termText().toLowerCase()))
@@ -8,6 +8,7 @@ package srl.gui;
 
 import java.awt.Color;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeSet;
 import javax.swing.text.Style;
@@ -42,13 +43,17 @@ public class ShowDocPanel extends javax.swing.JPanel {
         StyledDocument styledDoc = jTextPane1.getStyledDocument();
         Style defaultStyle = styledDoc.addStyle("default", null);
         try {
-            List<String> doc;
+            List<? extends SrlDocument> doc;
             if(mode == TEXT) {
-                doc = corpus.getDocSentences(docName);
+                doc = corpus.getDocTokenizedSentences(docName);
             } else if(mode == TAGGED) {
-                doc = corpus.getDocTaggedContents(docName);
+                doc = corpus.getDocTokenizedTaggedContents(docName);
             } else if(mode == TEMPLATES) {
-                doc = corpus.getDocTemplateExtractions(docName);
+                List<SrlDocument> templates = new LinkedList<SrlDocument>();
+                for(String sent : corpus.getDocTemplateExtractions(docName)) {
+                    templates.add(new SrlDocument("null", sent, corpus.getProcessor()));
+                }
+                doc = templates;
             } else {
                 throw new IllegalArgumentException("unrecognized mode");
             }
@@ -56,8 +61,7 @@ public class ShowDocPanel extends javax.swing.JPanel {
             DocHighlight dhl = hlIter.hasNext() ? hlIter.next() : null;
             int index = 0;
             int sentenceNo = 0;
-            for(String sent : doc) {
-                SrlDocument srlDoc = new SrlDocument("null", sent, corpus.getProcessor());
+            for(SrlDocument srlDoc : doc) {
                 Iterator<Token> tkIter = srlDoc.iterator();
                 int i = 0;
                 Token tk = tkIter.next();
@@ -11,41 +11,96 @@
 package srl.project;
 import java.io.*;
 import java.util.*;
-import srl.tools.struct.Pair;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.lucene.analysis.Token;
 import srl.corpus.BeginTagToken;
 import srl.corpus.CorpusExtractor;
 import srl.corpus.EndTagToken;
+import srl.corpus.Processor;
 import srl.corpus.SrlDocument;
-import srl.rule.Rule;
-import srl.rule.RuleSet;
+import srl.rule.CompiledRuleSet;
+import srl.rule.MatchContext;
+import srl.rule.RuleProfile;
 import gnu.getopt.Getopt;
 
 /**
  * Command line interface. This is run as following
  * <code>java -cp SRLGUI.jar srl.project.Run -p project_dir/ [-i input_file] [-o output_file]
- *              [-n] [-e encoding]</code>
+ *              [-n] [-e encoding] [-t threads] [-r report_file]</code>
+ * or in batch mode as
+ * <code>java -cp SRLGUI.jar srl.project.Run -p project_dir/ -o output_dir/ [-d input_dir/]
+ *              [-l file_list] [-n] [-e encoding] [-t threads] [-r report_file] [input_files...]</code>
  * <ul>
  *   <li> <code>-p</code>: A project directory </li>
  *   <li> <code>-i</code>: An input file (STDIN is used if no file is specified) </li>
- *   <li> <code>-o</code>: An output file (STDOUT is used if no file is specified) </li>
+ *   <li> <code>-o</code>: An output file (STDOUT is used if no file is specified), or in
+ *          batch mode the directory to write the output for each file to, under the
+ *          same name as the input file </li>
+ *   <li> <code>-d</code>: Process every file in this directory </li>
+ *   <li> <code>-l</code>: Process every file listed (one per line) in this file </li>
  *   <li> <code>-e</code>: The input file encoding (e.g., UTF-8, windows-1252) </li>
  *   <li> <code>-n</code>: If specifed output tagged document, otherwise the template extractions </li>
+ *   <li> <code>-t</code>: The number of threads to tag and extract with (default 1) </li>
+ *   <li> <code>-r</code>: Profile the rules and write a report of the sentences
+ *          matched, matches, steps and time of each rule to this file. The report is
+ *          in JSON if the file name ends with <code>.json</code>, otherwise it is CSV </li>
  * </ul>
+ * Any other arguments are also taken as input files to process in batch mode.
+ * The input is read, tagged and output a few sentences at a time, so any size
+ * of input may be processed in a fixed amount of memory. With several threads,
+ * the input is still read and split into sentences by one thread, and batches of
+ * sentences are matched by the others. The output is in the same order as the input.
+ * In batch mode the project is only loaded once, and each thread processes a
+ * different file.
  *
  * @author John McCrae, National Institute of Informatics
  */
 public class Run {
+    /** The number of sentences matched by a thread at once */
+    private static final int BATCH_SIZE = 100;
+
+    private final Processor processor;
+    private final CompiledRuleSet entityRules, templateRules;
+    private final boolean namedEntity;
+    private final int threads;
+    private final ExecutorService pool;
+
+    /**
+     * Create a runner
+     * @param proj The project, whose rules are compiled
+     * @param namedEntity If true output the tagged sentences, otherwise the template extractions
+     * @param threads The number of threads to match rules or process files with
+     * @throws IllegalArgumentException If the rules cannot be compiled or threads is less than 1
+     */
+    Run(SrlProject proj, boolean namedEntity, int threads) {
+        if(threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        this.processor = proj.processor;
+        this.entityRules = new CompiledRuleSet(proj.entityRulesets);
+        this.templateRules = new CompiledRuleSet(proj.templateRulesets);
+        this.namedEntity = namedEntity;
+        this.threads = threads;
+        this.pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    }
 
     public static void main(String[] args) {
-        PrintStream out = System.out;
-        BufferedReader in;
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        Reader in;
         String inFile = null;
+        String outFile = null;
         SrlProject proj = null;
         boolean namedEntity = false;
         String encoding = null;
+        int threads = 1;
+        List<File> inFiles = new LinkedList<File>();
+        boolean batch = false;
+        String reportFile = null;
         
-        Getopt opt = new Getopt("applyrules", args, "i:o:p:e:n");
+        Getopt opt = new Getopt("applyrules", args, "i:o:p:e:nt:d:l:r:");
         int c;
         try {
             while((c = opt.getopt()) != -1) {
@@ -54,7 +109,7 @@ public class Run {
                         inFile = opt.getOptarg();
                         break;
                     case 'o':
-                        out = new PrintStream(new File(opt.getOptarg()));
+                        outFile = opt.getOptarg();
                         break;
                     case 'p':
                         proj = SrlProject.openSrlProject(new File(opt.getOptarg()), false);
@@ -65,16 +120,39 @@ public class Run {
                     case 'e':
                         encoding = opt.getOptarg();
                         break;
+                    case 't':
+                        threads = Integer.parseInt(opt.getOptarg());
+                        break;
+                    case 'd':
+                        inFiles.addAll(listDirectory(new File(opt.getOptarg())));
+                        batch = true;
+                        break;
+                    case 'l':
+                        inFiles.addAll(readFileList(new File(opt.getOptarg())));
+                        batch = true;
+                        break;
+                    case 'r':
+                        reportFile = opt.getOptarg();
+                        break;
                         
                 }
             }
-            if(encoding != null && inFile != null)
-                in = new BufferedReader(new InputStreamReader(
-                        new FileInputStream(inFile), encoding));
+            for(int i = opt.getOptind(); i < args.length; i++) {
+                inFiles.add(new File(args[i]));
+                batch = true;
+            }
+            if(batch) {
+                if(inFile != null)
+                    inFiles.add(0, new File(inFile));
+                in = null;
+            } else if(encoding != null && inFile != null)
+                in = new InputStreamReader(new FileInputStream(inFile), encoding);
             else if(inFile != null)
-                in = new BufferedReader(new InputStreamReader(new FileInputStream(inFile)));
+                in = new InputStreamReader(new FileInputStream(inFile));
             else
-                in = new BufferedReader(new InputStreamReader(System.in));
+                in = new InputStreamReader(System.in);
+            if(outFile != null && !batch)
+                out = new PrintStream(new BufferedOutputStream(new FileOutputStream(outFile)));
         } catch(Exception x) {
                 x.printStackTrace();
                 System.err.println("Could not initialize: " + x.getMessage());
@@ -84,54 +162,272 @@ public class Run {
             System.out.println("Please specify project");
             return;
         }
-        StringBuffer doc = new StringBuffer();
-        String s;
+        if(batch && (outFile == null || !new File(outFile).isDirectory())) {
+            System.out.println("Please specify an existing output directory");
+            return;
+        }
+        Run run;
         try {
-            while((s = in.readLine()) != null) {
-                doc.append(s + "\n");
+            run = new Run(proj, namedEntity, threads);
+        } catch(IllegalArgumentException x) {
+            x.printStackTrace();
+            System.err.println("Could not compile rules: " + x.getMessage());
+            return;
+        }
+        if(reportFile != null)
+            run.profile();
+        try {
+            if(batch)
+                run.processFiles(inFiles, new File(outFile), encoding);
+            else
+                run.process(in, out);
+        } catch(IOException x) {
+            x.printStackTrace();
+        } finally {
+            run.close();
+            out.flush();
+        }
+        if(reportFile != null) {
+            try {
+                run.writeProfile(new File(reportFile));
+            } catch(IOException x) {
+                x.printStackTrace();
+                System.err.println("Could not write report: " + x.getMessage());
             }
-        
-       
-            List<SrlDocument> sents = proj.processor.getSplitter().split(
-                new SrlDocument("test", doc.toString(), proj.processor),"doc");
-            List<SrlDocument> tagged = CorpusExtractor.tagSentences(sents, proj.entityRulesets,proj.processor);
-            if(namedEntity) {
-                for(SrlDocument srlDoc : tagged) {
-                    for(Token tk : srlDoc) {
-                        if(tk instanceof EndTagToken) {
-                            out.print(((EndTagToken)tk).getTag() + " ");
-                        } else if(tk instanceof BeginTagToken) {
-                            out.print(((BeginTagToken)tk).getTag() + " ");
-                        } else {
-                            out.print(tk.termText() + " ");
+        }
+    }
+
+    /**
+     * Tag a document and write the output
+     * @param in The document
+     * @param out The stream to write the output to
+     * @throws IOException If the document could not be read
+     */
+    void process(Reader in, PrintStream out) throws IOException {
+        if(pool == null) {
+            processSerial(in, out, new MatchContext());
+            return;
+        }
+        SentenceReader sentences = new SentenceReader(in, processor, "doc");
+        List<SrlDocument> sents;
+        LinkedList<Future<String>> pending = new LinkedList<Future<String>>();
+        try {
+            while((sents = sentences.next()) != null) {
+                // Submit the sentences in batches, and write out the oldest batches
+                // once enough are waiting so the queue does not grow without limit
+                ArrayList<SrlDocument> sentList = new ArrayList<SrlDocument>(sents);
+                for(int i = 0; i < sentList.size(); i += BATCH_SIZE) {
+                    final List<SrlDocument> batch = sentList.subList(i, Math.min(i + BATCH_SIZE, sentList.size()));
+                    pending.add(pool.submit(new Callable<String>() {
+                        public String call() {
+                            return tag(batch, new MatchContext());
                         }
+                    }));
+                    if(pending.size() >= threads * 4) {
+                        out.print(pending.removeFirst().get());
                     }
-                    out.println("");
                 }
-                return;
             }
-            for(SrlDocument srlDoc : tagged) {
-                for(RuleSet rs : proj.templateRulesets) {
-                    for(Pair<String,Rule> r : rs.rules) {
-                        List<String> heads;
-                        try {
-                             heads = r.second.getHeads(srlDoc);
-                        } catch(Exception x) {
-                            System.err.println("Error with rule " + r.first);
-                            x.printStackTrace();
-                            continue;
-                        }
-                        for(String s2 : heads) {
-                            out.println(s2);
+            while(!pending.isEmpty()) {
+                out.print(pending.removeFirst().get());
+            }
+        } catch(InterruptedException x) {
+            throw new RuntimeException(x);
+        } catch(ExecutionException x) {
+            if(x.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)x.getCause();
+            }
+            throw new RuntimeException(x.getCause());
+        } finally {
+            for(Future<String> f : pending) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    /** Tag a document using only the calling thread */
+    private void processSerial(Reader in, PrintStream out, MatchContext context) throws IOException {
+        SentenceReader sentences = new SentenceReader(in, processor, "doc");
+        List<SrlDocument> sents;
+        while((sents = sentences.next()) != null) {
+            out.print(tag(sents, context));
+        }
+    }
+
+    /**
+     * Tag several documents, each of which is processed by a single thread. The
+     * output for each document is written to a file of the same name in the output
+     * directory. An error with one document is reported, and the other documents
+     * are still processed
+     * @param inFiles The documents
+     * @param outDir The directory to write the output to
+     * @param encoding The encoding of the documents or null for the default encoding
+     * @throws IOException Not thrown, errors are reported for each document
+     */
+    void processFiles(List<File> inFiles, final File outDir, final String encoding) throws IOException {
+        Set<String> names = new HashSet<String>();
+        LinkedList<Future<?>> pending = new LinkedList<Future<?>>();
+        try {
+            for(final File inFile : inFiles) {
+                if(!names.add(inFile.getName())) {
+                    System.err.println("Skipping " + inFile + " as another input file has the same name");
+                    continue;
+                }
+                if(pool == null) {
+                    processFile(inFile, new File(outDir, inFile.getName()), encoding);
+                } else {
+                    pending.add(pool.submit(new Runnable() {
+                        public void run() {
+                            processFile(inFile, new File(outDir, inFile.getName()), encoding);
                         }
-                    }
+                    }));
                 }
             }
-        
-        } catch(IOException x) {
+            while(!pending.isEmpty()) {
+                pending.removeFirst().get();
+            }
+        } catch(InterruptedException x) {
+            throw new RuntimeException(x);
+        } catch(ExecutionException x) {
+            if(x.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)x.getCause();
+            }
+            throw new RuntimeException(x.getCause());
+        } finally {
+            for(Future<?> f : pending) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    private void processFile(File inFile, File outFile, String encoding) {
+        try {
+            Reader in = encoding != null ? new InputStreamReader(new FileInputStream(inFile), encoding)
+                    : new InputStreamReader(new FileInputStream(inFile));
+            try {
+                PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+                try {
+                    processSerial(in, out, new MatchContext());
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+        } catch(Exception x) {
+            x.printStackTrace();
+            System.err.println("Could not process " + inFile + ": " + x.getMessage());
+        }
+    }
+
+    /** The files (not subdirectories) in a directory, in order of name */
+    private static List<File> listDirectory(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if(files == null)
+            throw new IOException(dir + " is not a directory");
+        Arrays.sort(files);
+        List<File> rval = new LinkedList<File>();
+        for(File f : files) {
+            if(f.isFile())
+                rval.add(f);
+        }
+        return rval;
+    }
+
+    /** The files listed in a file, one per line. Blank lines are ignored */
+    private static List<File> readFileList(File list) throws IOException {
+        BufferedReader in = new BufferedReader(new FileReader(list));
+        List<File> rval = new LinkedList<File>();
+        try {
+            String s;
+            while((s = in.readLine()) != null) {
+                if(s.trim().length() > 0)
+                    rval.add(new File(s.trim()));
+            }
+        } finally {
+            in.close();
+        }
+        return rval;
+    }
+
+    /** Count the work done by each rule from now on
+     * @see #writeProfile(java.io.File) */
+    void profile() {
+        entityRules.setProfile(new RuleProfile(entityRules));
+        if(!namedEntity)
+            templateRules.setProfile(new RuleProfile(templateRules));
+    }
+
+    /**
+     * Write the profile of the rules
+     * @param file The file to write to, as JSON if its name ends with .json
+     * otherwise as CSV
+     * @throws IOException If the file could not be written
+     * @throws IllegalStateException If the rules were not profiled
+     */
+    void writeProfile(File file) throws IOException {
+        if(entityRules.getProfile() == null)
+            throw new IllegalStateException("Rules were not profiled");
+        RuleProfile[] profiles = namedEntity ? new RuleProfile[] { entityRules.getProfile() }
+                : new RuleProfile[] { entityRules.getProfile(), templateRules.getProfile() };
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        try {
+            if(file.getName().toLowerCase().endsWith(".json"))
+                RuleProfile.writeJSON(out, profiles);
+            else
+                RuleProfile.writeCSV(out, profiles);
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Stop the threads used for matching */
+    void close() {
+        if(pool != null)
+            pool.shutdown();
+    }
+
+    private String tag(List<SrlDocument> sents, MatchContext context) {
+        StringWriter sw = new StringWriter();
+        PrintWriter out = new PrintWriter(sw);
+        for(SrlDocument sent : sents) {
+            SrlDocument srlDoc = CorpusExtractor.tagSentence(sent, entityRules, context, processor);
+            if(namedEntity) {
+                printTagged(srlDoc, out);
+            } else {
+                printHeads(srlDoc, templateRules, context, out);
+            }
+        }
+        out.flush();
+        return sw.toString();
+    }
+
+    /** Write a tagged sentence on one line, with the tokens and tags separated by spaces */
+    static void printTagged(SrlDocument srlDoc, PrintWriter out) {
+        for(Token tk : srlDoc) {
+            if(tk instanceof EndTagToken) {
+                out.print(((EndTagToken)tk).getTag() + " ");
+            } else if(tk instanceof BeginTagToken) {
+                out.print(((BeginTagToken)tk).getTag() + " ");
+            } else {
+                out.print(tk.termText() + " ");
+            }
+        }
+        out.println("");
+    }
+
+    private static void printHeads(SrlDocument srlDoc, CompiledRuleSet templateRules, MatchContext context, PrintWriter out) {
+        List<String> heads;
+        try {
+            heads = templateRules.getHeads(srlDoc, null, context);
+        } catch(Exception x) {
+            System.err.println("Error with sentence " + srlDoc.toString());
             x.printStackTrace();
             return;
         }
+        for(String s : heads) {
+            out.println(s);
+        }
     }
     
 }
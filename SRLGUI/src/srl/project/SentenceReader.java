@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+*/
+package srl.project;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import srl.corpus.Processor;
+import srl.corpus.SrlDocument;
+
+/**
+ * Reads a document from a stream a few sentences at a time. The text is read in
+ * chunks of around CHUNK_SIZE characters, ended at a line break, and each chunk is
+ * split into sentences by the processor's splitter. As the last sentence of a
+ * chunk may continue in the next chunk, it is not returned but read again with
+ * the next chunk, so the document is split exactly as if it were read in whole.
+ * Only sentences longer than MAX_CHUNK_SIZE characters may be broken. Line
+ * endings are converted to "\n".
+ *
+ * @author John McCrae, National Institute of Informatics
+ */
+class SentenceReader {
+    /** The size of text after which a chunk is ended at the next line break */
+    static final int CHUNK_SIZE = 65536;
+    /** The size of text after which a chunk is ended at the next whitespace, and
+     * its last sentence is returned */
+    static final int MAX_CHUNK_SIZE = 4 * CHUNK_SIZE;
+
+    private final Reader in;
+    private final Processor processor;
+    private final String docName;
+    private final char[] buf = new char[8192];
+    private int pos = 0, len = 0;
+    private boolean cr = false;
+    private final StringBuffer text = new StringBuffer();
+    private int chunks = 0;
+
+    /**
+     * Create a sentence reader
+     * @param in The document. It is read through a buffer, so need not be buffered
+     * @param processor The processor, whose splitter is used
+     * @param docName The name of the document
+     */
+    public SentenceReader(Reader in, Processor processor, String docName) {
+        this.in = in;
+        this.processor = processor;
+        this.docName = docName;
+    }
+
+    /**
+     * Read the next group of sentences
+     * @return The sentences, or null if the end of the document has been reached
+     * @throws IOException If the document could not be read
+     */
+    public List<SrlDocument> next() throws IOException {
+        while(true) {
+            boolean more = readChunk();
+            if(text.length() == 0)
+                return null;
+            // As BufferedReader.readLine() would give
+            if(!more && text.charAt(text.length() - 1) != '\n')
+                text.append('\n');
+            String chunk = text.toString();
+            text.setLength(0);
+            String name = docName + " " + chunks++;
+            List<SrlDocument> sents = processor.getSplitter().split(new SrlDocument(name, chunk, processor), name);
+            if(more && !sents.isEmpty() && chunk.length() < MAX_CHUNK_SIZE) {
+                SrlDocument last = sents.get(sents.size() - 1);
+                int offset = last.isEmpty() ? -1 : last.iterator().next().startOffset();
+                if(offset >= 0 && offset < chunk.length()) {
+                    sents.remove(sents.size() - 1);
+                    text.append(chunk.substring(offset));
+                }
+            }
+            if(!sents.isEmpty() || !more)
+                return sents;
+        }
+    }
+
+    /** Read text until the end of the chunk
+     * @return false if the end of the stream was reached */
+    private boolean readChunk() throws IOException {
+        while(true) {
+            if(pos == len) {
+                len = in.read(buf);
+                pos = 0;
+                if(len <= 0) {
+                    len = 0;
+                    return false;
+                }
+            }
+            char c = buf[pos++];
+            if(c == '\n' && cr) {
+                cr = false;
+                continue;
+            }
+            cr = c == '\r';
+            if(cr)
+                c = '\n';
+            text.append(c);
+            if(c == '\n' && text.length() >= CHUNK_SIZE)
+                return true;
+            if(text.length() >= MAX_CHUNK_SIZE && Character.isWhitespace(c))
+                return true;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+*/
+package srl.project;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import srl.corpus.CorpusExtractor;
+import srl.corpus.Processor;
+import srl.corpus.SrlDocument;
+import srl.rule.CompiledRuleSet;
+import srl.rule.MatchContext;
+import srl.wordlist.WordListSet;
+import gnu.getopt.Getopt;
+
+/**
+ * Extraction server. This loads a project once and then tags or extracts
+ * templates from documents as they are sent to it. It is run as following
+ * <code>java -cp SRLGUI.jar srl.project.Server -p project_dir/ [-s port] [-t threads] [-e encoding]</code>
+ * <ul>
+ *   <li> <code>-p</code>: A project directory </li>
+ *   <li> <code>-s</code>: Listen for connections on this port of the local machine. If
+ *          not specified requests are read from STDIN and the responses written to STDOUT </li>
+ *   <li> <code>-t</code>: The number of connections to serve at once (default 4) </li>
+ *   <li> <code>-e</code>: The encoding of requests and responses (e.g., UTF-8, windows-1252) </li>
+ * </ul>
+ * Each request is a single line, and is one of
+ * <ul>
+ *   <li> <code>TAG <i>text</i></code>: Tag the text, the response is each sentence with tags </li>
+ *   <li> <code>EXTRACT <i>text</i></code>: Tag the text and extract templates, the response
+ *          is each template extraction </li>
+ *   <li> <code>RELOAD</code>: Reload the project now </li>
+ *   <li> <code>QUIT</code>: Close the connection </li>
+ * </ul>
+ * The response is a line <code>OK <i>n</i></code> followed by <i>n</i> lines, or a
+ * single line <code>ERROR <i>message</i></code>. The project is reloaded when
+ * any of its rule sets or word lists change. If it cannot be reloaded (for example
+ * as a rule set is only half written) the error is reported, requests are still
+ * served with the previous rules, and the project is reloaded again when it next changes.
+ *
+ * @author John McCrae, National Institute of Informatics
+ */
+public class Server {
+    /** The time between checks for changes to the project (in ms) */
+    private static final long RELOAD_CHECK_INTERVAL = 1000;
+
+    private final File path;
+    // Loading a project resets the (static) word lists, so requests must not be
+    // matched while the project is loaded
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private SrlProject proj;
+    private CompiledRuleSet entityRules, templateRules;
+    private volatile long loadedVersion;
+    private Thread projectWatch;
+
+    /**
+     * Create a server and load the project
+     * @param path The project directory
+     * @throws Exception If the project could not be loaded
+     */
+    Server(File path) throws Exception {
+        this.path = path;
+        reload();
+    }
+
+    public static void main(String[] args) {
+        File path = null;
+        int port = -1;
+        int threads = 4;
+        String encoding = null;
+
+        Getopt opt = new Getopt("srlserver", args, "p:s:t:e:");
+        int c;
+        try {
+            while((c = opt.getopt()) != -1) {
+                switch(c) {
+                    case 'p':
+                        path = new File(opt.getOptarg());
+                        break;
+                    case 's':
+                        port = Integer.parseInt(opt.getOptarg());
+                        break;
+                    case 't':
+                        threads = Integer.parseInt(opt.getOptarg());
+                        break;
+                    case 'e':
+                        encoding = opt.getOptarg();
+                        break;
+                }
+            }
+        } catch(Exception x) {
+            x.printStackTrace();
+            System.err.println("Could not initialize: " + x.getMessage());
+            return;
+        }
+        if(path == null) {
+            System.out.println("Please specify project");
+            return;
+        }
+        Server server;
+        try {
+            server = new Server(path);
+        } catch(Exception x) {
+            x.printStackTrace();
+            System.err.println("Could not load project: " + x.getMessage());
+            return;
+        }
+        server.watchProject();
+        try {
+            if(port < 0) {
+                server.serve(reader(System.in, encoding), writer(System.out, encoding));
+            } else {
+                server.listen(port, threads, encoding);
+            }
+        } catch(IOException x) {
+            x.printStackTrace();
+        }
+    }
+
+    private static BufferedReader reader(InputStream in, String encoding) throws IOException {
+        return new BufferedReader(encoding == null ? new InputStreamReader(in) : new InputStreamReader(in, encoding));
+    }
+
+    private static PrintWriter writer(OutputStream out, String encoding) throws IOException {
+        return new PrintWriter(new BufferedWriter(encoding == null ? new OutputStreamWriter(out) : new OutputStreamWriter(out, encoding)));
+    }
+
+    /**
+     * Accept connections from the local machine, until the server is stopped
+     * @param port The port to listen on
+     * @param threads The number of connections to serve at once
+     * @param encoding The encoding of requests and responses, or null for the default encoding
+     * @throws IOException If the port could not be listened on
+     */
+    void listen(int port, int threads, final String encoding) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            while(true) {
+                final Socket socket = serverSocket.accept();
+                pool.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            serve(reader(socket.getInputStream(), encoding), writer(socket.getOutputStream(), encoding));
+                        } catch(IOException x) {
+                            x.printStackTrace();
+                        } finally {
+                            try {
+                                socket.close();
+                            } catch(IOException x) {
+                                x.printStackTrace();
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            serverSocket.close();
+        }
+    }
+
+    /**
+     * Answer requests until the end of the stream or a QUIT request
+     * @param in The requests
+     * @param out The stream to write the responses to
+     * @throws IOException If the requests could not be read
+     */
+    void serve(BufferedReader in, PrintWriter out) throws IOException {
+        MatchContext context = new MatchContext();
+        String s;
+        while((s = in.readLine()) != null) {
+            int space = s.indexOf(' ');
+            String command = (space < 0 ? s : s.substring(0, space)).toUpperCase();
+            String text = space < 0 ? "" : s.substring(space + 1);
+            try {
+                if(command.equals("TAG")) {
+                    respond(out, process(text, true, context));
+                } else if(command.equals("EXTRACT")) {
+                    respond(out, process(text, false, context));
+                } else if(command.equals("RELOAD")) {
+                    reload();
+                    respond(out, Collections.<String>emptyList());
+                } else if(command.equals("QUIT")) {
+                    return;
+                } else {
+                    out.println("ERROR Unknown command " + command);
+                }
+            } catch(Exception x) {
+                x.printStackTrace();
+                out.println("ERROR " + String.valueOf(x.getMessage()).replaceAll("[\r\n]+", " "));
+            }
+            out.flush();
+        }
+    }
+
+    private static void respond(PrintWriter out, List<String> lines) {
+        out.println("OK " + lines.size());
+        for(String line : lines) {
+            out.println(line);
+        }
+    }
+
+    /**
+     * Tag a text
+     * @param text The text
+     * @param tag If true return the tagged sentences, otherwise the template extractions
+     * @param context The working memory for matching
+     * @return The tagged sentences or the extractions
+     */
+    List<String> process(String text, boolean tag, MatchContext context) {
+        List<String> rval = new ArrayList<String>();
+        lock.readLock().lock();
+        try {
+            Processor processor = proj.processor;
+            for(SrlDocument sent : processor.getSplitter().split(new SrlDocument("request", text, processor), "request")) {
+                SrlDocument srlDoc = CorpusExtractor.tagSentence(sent, entityRules, context, processor);
+                if(tag) {
+                    StringWriter sw = new StringWriter();
+                    PrintWriter pw = new PrintWriter(sw);
+                    Run.printTagged(srlDoc, pw);
+                    pw.flush();
+                    rval.add(sw.toString().trim());
+                } else {
+                    rval.addAll(templateRules.getHeads(srlDoc, null, context));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rval;
+    }
+
+    /**
+     * Load the project again and recompile its rules. If this fails the previous
+     * rules and word lists are kept
+     * @throws Exception If the project could not be loaded
+     */
+    synchronized void reload() throws Exception {
+        long version = projectVersion();
+        lock.writeLock().lock();
+        try {
+            SrlProject newProj = SrlProject.openSrlProject(path, false);
+            CompiledRuleSet newEntityRules = new CompiledRuleSet(newProj.entityRulesets);
+            CompiledRuleSet newTemplateRules = new CompiledRuleSet(newProj.templateRulesets);
+            proj = newProj;
+            entityRules = newEntityRules;
+            templateRules = newTemplateRules;
+        } catch(Exception x) {
+            if(proj != null) {
+                WordListSet.reset();
+                for(WordListSet wl : proj.wordlists) {
+                    wl.restore();
+                }
+            }
+            throw x;
+        } finally {
+            // Do not try again until the project changes
+            loadedVersion = version;
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** A value which changes whenever a file in the project (other than the corpus) changes */
+    private long projectVersion() {
+        long version = new File(path, "project.xml").lastModified();
+        for(String dir : new String[] { "entity_rules", "template_rules", "wordlists" }) {
+            File[] files = new File(path, dir).listFiles();
+            if(files == null)
+                continue;
+            Arrays.sort(files);
+            for(File f : files) {
+                version = version * 31 + f.getName().hashCode();
+                version = version * 31 + f.lastModified();
+                version = version * 31 + f.length();
+            }
+        }
+        return version;
+    }
+
+    /** Start a thread which reloads the project when it changes */
+    synchronized void watchProject() {
+        if(projectWatch != null)
+            return;
+        projectWatch = new Thread("projectWatch") {
+            @Override
+            public void run() {
+                while(true) {
+                    try {
+                        Thread.sleep(RELOAD_CHECK_INTERVAL);
+                    } catch(InterruptedException x) {
+                        return;
+                    }
+                    if(projectVersion() != loadedVersion) {
+                        try {
+                            reload();
+                            System.err.println("Reloaded project " + path);
+                        } catch(Exception x) {
+                            x.printStackTrace();
+                            System.err.println("Could not reload project: " + x.getMessage());
+                        }
+                    }
+                }
+            }
+        };
+        projectWatch.setDaemon(true);
+        projectWatch.start();
+    }
+}
@@ -53,6 +53,8 @@ public class SrlProject {
     public Corpus corpus;
     File path;
     boolean modified;
+    /** Read the corpus from memory mapped files */
+    boolean mapCorpus;
 
     /**
      * Create a new (empty) SRL project
@@ -123,8 +125,21 @@ public class SrlProject {
      * @param openCorpus Set to false to supress opening the corpus
      */
     public static SrlProject openSrlProject(File path, boolean openCorpus) throws IllegalArgumentException, IOException, SAXException {
+        return openSrlProject(path, openCorpus, false);
+    }
+
+    /**
+     * Open a existing SRL project
+     * @param path The directory containing all the project files
+     * @param openCorpus Set to false to supress opening the corpus
+     * @param mapCorpus Set to true to read the corpus from memory mapped files, this
+     * is recommended for tagging or extracting templates from large corpora
+     * @see Corpus#openCorpus(File, Processor, boolean, boolean)
+     */
+    public static SrlProject openSrlProject(File path, boolean openCorpus, boolean mapCorpus) throws IllegalArgumentException, IOException, SAXException {
         SrlProject proj = new SrlProject();
         proj.path = path;
+        proj.mapCorpus = mapCorpus;
         WordListSet.reset();
         XMLReader xr = XMLReaderFactory.createXMLReader();
         SrlProjectDocumentHandler handler = new SrlProjectDocumentHandler(proj);
@@ -143,7 +158,7 @@ public class SrlProject {
     void openCorpus(Processor processor) throws IOException {
 	if(processor == null)
 	    processor = this.processor;
-        corpus = Corpus.openCorpus(new File(path, "corpus"), processor, false);
+        corpus = Corpus.openCorpus(new File(path, "corpus"), processor, false, mapCorpus);
     }
 
     /**
@@ -10,10 +10,8 @@
  */
 package srl.rule;
 
-import org.apache.lucene.analysis.Token;
 import srl.corpus.*;
 import srl.tools.struct.*;
-import java.util.*;
 
 /**
  * This matcher represents a begin tag. This does not correspond to a element of
@@ -22,7 +20,6 @@ import java.util.*;
  */
 public class BeginTag implements TypeExpr {
     final String entityType, entityValue;
-    TypeExpr next;
 
     /**
      * Create an instance
@@ -43,47 +40,6 @@ public class BeginTag implements TypeExpr {
         query.query.append("\" \"");
     }
 
-    /**
-     * Does this match.
-     * @param token The token
-     * @param tokenNo The token number (ignored)
-     * @param stack The fork stack (ignored)
-     * @param lookBackStack The reverse stack (ignored)
-     */
-    public TypeExpr matches(Token token, int tokenNo, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(token instanceof BeginTagToken) {
-            BeginTagToken btt = (BeginTagToken)token;
-            if(btt.type.equals(entityType) && btt.val.equals(entityValue))
-                return next;
-            else
-                return null;
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * Set the next matcher.
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        this.next = te;
-    }
-
-    /**
-     * Reset the matcher. Does nothing
-     */
-    public void reset() {
-        
-    }
-
-    /**
-     * Are we at the end of a completed match. Answer is always no
-     */
-    public boolean canEnd() {
-        return false;
-    }
-
     @Override
     public boolean equals(Object obj) {
         if(obj instanceof BeginTag) {
@@ -10,9 +10,7 @@
  */
 package srl.rule;
 
-import org.apache.lucene.analysis.Token;
 import srl.corpus.SrlQuery;
-import java.util.*;
 
 /**
  * A case-sensitive literal. This corresponds to case("LiTeRaL") in the SRL language
@@ -25,7 +23,6 @@ public class CaseSensitiveLiteral implements TypeExpr {
 
     final String literal;
     
-    TypeExpr next;
 
     /**
      * Create an instance. Parameter doesn't need double quotes (").
@@ -47,36 +44,6 @@ public class CaseSensitiveLiteral implements TypeExpr {
         query.query.append(literal.replaceAll("([\\\"\\\'])", "\\$1"));
     }
 
-    /**
-     * Does this match the current token?
-     * @param token The token
-     * @param no The token number (ignored)
-     * @param stack The fork stack (ignored)
-     * @param lookBackStack The reverse stack (ignored)
-     */
-    public TypeExpr matches(Token token, int no, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(token.termText().equals(literal)) {
-            return next;
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * Set the next matcher
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
-    }
-
-    /**
-     * Reset  this matcher. (Does nothing)
-     */
-    public void reset() {
-       
-    }
-
     /**
      * Get the value of the literal.
      * @return The value of the literal
@@ -90,13 +57,6 @@ public class CaseSensitiveLiteral implements TypeExpr {
         return "case(\"" + literal + "\")";
     }
 
-    /**
-     * Are we at the end of a completed match. Answer is always no.
-     */
-    public boolean canEnd() {
-        return false;
-    }
-
     @Override
     public boolean equals(Object obj) {
         if(obj instanceof CaseSensitiveLiteral) {
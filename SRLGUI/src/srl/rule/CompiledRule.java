@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.rule;
+
+import java.util.*;
+import srl.corpus.SrlDocument;
+
+/**
+ * A rule compiled into a table of nodes (see RuleAutomaton). The compiled rule
+ * finds exactly the matches Rule.getMatch() always has: where a rule could match
+ * in more than one way from the same token, for example
+ * <code>"to" words(,3) name(location,X) { list(@city) }</code> before "New York",
+ * each way is a match. The literals a rule starts with are found by a single
+ * walk of a trie of term IDs, so the rule is only tried where they occur.
+ * <p>
+ * The compiled rule is immutable and holds no match state (see MatchContext), so
+ * it may be shared between threads. It is a snapshot of the rule and must be
+ * recompiled if the rule is changed. Word lists are read as the rule is matched,
+ * so changes to word lists do not require recompilation.
+ * @author John McCrae, National Institute of Informatics
+ * @see Rule#compile()
+ */
+public class CompiledRule {
+    /** The rule this was compiled from */
+    final Rule rule;
+    /** The automaton */
+    final RuleAutomaton automaton;
+
+    /**
+     * Compile a rule
+     * @param rule The rule
+     * @throws IllegalArgumentException If the rule contains an expression that cannot be compiled
+     * @see Rule#compile()
+     */
+    public CompiledRule(Rule rule) {
+        this.rule = rule;
+        this.automaton = new RuleAutomaton(Collections.singletonList(rule));
+    }
+
+    /**
+     * Get the rule this was compiled from
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * Check if a sentence as a sequence of tokens
+     * @param sentence A tokenized string
+     * @return True if there is at least one match in the string
+     */
+    public boolean matches(SrlDocument sentence) {
+        return !getMatch(sentence, true).isEmpty();
+    }
+
+    /**
+     * Find the matches. The result is the same form as Rule.getMatch(), that is
+     * one map for each match in order of the first matched token, giving the
+     * region matched by each entity in the rule
+     * @param sentence The sentence
+     * @param firstOnly Stop at the first match found
+     * @return The list of matches
+     * @see Rule#getMatch(SrlDocument, boolean)
+     */
+    public List<HashMap<Entity, SrlMatchRegion>> getMatch(SrlDocument sentence, boolean firstOnly) {
+        return getMatch(sentence, firstOnly, new MatchContext());
+    }
+
+    /**
+     * Find the matches, using a given working memory. This method may be
+     * called by several threads at once, if each has its own context
+     * @param sentence The sentence
+     * @param firstOnly Stop at the first match found
+     * @param context The working memory
+     * @return The list of matches
+     */
+    public List<HashMap<Entity, SrlMatchRegion>> getMatch(SrlDocument sentence, boolean firstOnly, MatchContext context) {
+        return automaton.match(new MatchInput(sentence), null, firstOnly, context).get(0);
+    }
+
+    /** Match the rule and output on the heads. The output is given by
+     * replacing each head's variable by the region of the sentence matched
+     * @param sentence The sentence to match
+     * @return The matches
+     * @see Rule#getHeads(SrlDocument)
+     */
+    public List<String> getHeads(SrlDocument sentence) {
+        return Rule.getHeads(rule.heads, getMatch(sentence, false));
+    }
+
+    @Override
+    public String toString() {
+        return rule.toString();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.rule;
+
+import java.util.*;
+import srl.corpus.SrlDocument;
+import srl.tools.struct.Pair;
+
+/**
+ * A group of rules compiled into a single automaton. The literals the rules start
+ * with are found for all the rules in one pass over each sentence, and rules
+ * starting with literals are only tried where their literals occur in the
+ * sentence, so adding rules with distinct literal prefixes costs very little per
+ * sentence. The rules are
+ * numbered in the order they were given, and the results are always returned in
+ * this order.
+ * <p>
+ * As with CompiledRule, this is a snapshot of the rules and must be recompiled
+ * if the rules change. It holds no match state, so it may be shared between
+ * threads, each using its own MatchContext.
+ * @author John McCrae, National Institute of Informatics
+ * @see RuleSet#compile()
+ */
+public class CompiledRuleSet {
+    private final List<Pair<String, Rule>> rules;
+    private final List<String> ruleSetNames;
+    private final RuleAutomaton automaton;
+    private volatile RuleProfile profile;
+
+    /**
+     * Compile a single rule set
+     * @param ruleSet The rule set
+     * @throws IllegalArgumentException If a rule contains an expression that cannot be compiled
+     */
+    public CompiledRuleSet(RuleSet ruleSet) {
+        this(Collections.singletonList(ruleSet));
+    }
+
+    /**
+     * Compile several rule sets together
+     * @param ruleSets The rule sets
+     * @throws IllegalArgumentException If a rule contains an expression that cannot be compiled
+     */
+    public CompiledRuleSet(Collection<RuleSet> ruleSets) {
+        rules = new ArrayList<Pair<String, Rule>>();
+        ruleSetNames = new ArrayList<String>();
+        List<Rule> r = new ArrayList<Rule>();
+        for(RuleSet ruleSet : ruleSets) {
+            for(Pair<String, Rule> rulePair : ruleSet.rules) {
+                rules.add(rulePair);
+                ruleSetNames.add(ruleSet.name);
+                r.add(rulePair.second);
+            }
+        }
+        automaton = new RuleAutomaton(r);
+    }
+
+    /** The number of rules */
+    public int size() {
+        return rules.size();
+    }
+
+    /** Get a rule
+     * @param i The rule number */
+    public Rule getRule(int i) {
+        return rules.get(i).second;
+    }
+
+    /** Get the identifier of a rule
+     * @param i The rule number */
+    public String getRuleName(int i) {
+        return rules.get(i).first;
+    }
+
+    /** Get the name of the rule set a rule came from
+     * @param i The rule number */
+    public String getRuleSetName(int i) {
+        return ruleSetNames.get(i);
+    }
+
+    /**
+     * Profile the matching of these rules. Every match made with this rule set
+     * from now on is counted in the profile
+     * @param profile The profile to count matches in, or null to stop profiling
+     * @throws IllegalArgumentException If the profile is for a different number of rules
+     */
+    public void setProfile(RuleProfile profile) {
+        if(profile != null && profile.size() != rules.size())
+            throw new IllegalArgumentException("Profile is not for these rules");
+        this.profile = profile;
+    }
+
+    /** Get the profile matches are counted in, or null if these rules are not being profiled */
+    public RuleProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Find the matches of each rule
+     * @param sentence The sentence
+     * @param active The rules to match, or null to match all rules
+     * @return For each rule the matches in the same form as Rule.getMatch()
+     */
+    public List<List<HashMap<Entity, SrlMatchRegion>>> getMatches(SrlDocument sentence, BitSet active) {
+        return getMatches(sentence, active, new MatchContext());
+    }
+
+    /**
+     * Find the matches of each rule, using a given working memory. This method
+     * may be called by several threads at once, if each has its own context
+     * @param sentence The sentence
+     * @param active The rules to match, or null to match all rules
+     * @param context The working memory
+     * @return For each rule the matches in the same form as Rule.getMatch()
+     */
+    public List<List<HashMap<Entity, SrlMatchRegion>>> getMatches(SrlDocument sentence, BitSet active, MatchContext context) {
+        RuleProfile p = profile;
+        if(p == null)
+            return automaton.match(new MatchInput(sentence), active, false, context);
+        int[] steps = new int[rules.size()];
+        long start = System.nanoTime();
+        List<List<HashMap<Entity, SrlMatchRegion>>> rval = automaton.match(new MatchInput(sentence), active, false, context, steps);
+        p.record(active, rval, steps, System.nanoTime() - start);
+        return rval;
+    }
+
+    /**
+     * Find the matches of all rules. This is the same as calling getMatch() for each
+     * rule and concatenating the results
+     * @param sentence The sentence
+     * @param active The rules to match, or null to match all rules
+     * @return The list of matches
+     */
+    public List<HashMap<Entity, SrlMatchRegion>> getMatch(SrlDocument sentence, BitSet active) {
+        return getMatch(sentence, active, new MatchContext());
+    }
+
+    /**
+     * Find the matches of all rules, using a given working memory
+     * @param sentence The sentence
+     * @param active The rules to match, or null to match all rules
+     * @param context The working memory
+     * @return The list of matches
+     */
+    public List<HashMap<Entity, SrlMatchRegion>> getMatch(SrlDocument sentence, BitSet active, MatchContext context) {
+        List<HashMap<Entity, SrlMatchRegion>> rval = new LinkedList<HashMap<Entity, SrlMatchRegion>>();
+        for(List<HashMap<Entity, SrlMatchRegion>> matches : getMatches(sentence, active, context)) {
+            rval.addAll(matches);
+        }
+        return rval;
+    }
+
+    /**
+     * Match all the rules and output on their heads. This is the same as calling
+     * getHeads() for each rule and concatenating the results
+     * @param sentence The sentence
+     * @param active The rules to match, or null to match all rules
+     * @return The matches
+     */
+    public List<String> getHeads(SrlDocument sentence, BitSet active) {
+        return getHeads(sentence, active, new MatchContext());
+    }
+
+    /**
+     * Match all the rules and output on their heads, using a given working memory
+     * @param sentence The sentence
+     * @param active The rules to match, or null to match all rules
+     * @param context The working memory
+     * @return The matches
+     */
+    public List<String> getHeads(SrlDocument sentence, BitSet active, MatchContext context) {
+        List<String> rval = new LinkedList<String>();
+        List<List<HashMap<Entity, SrlMatchRegion>>> matches = getMatches(sentence, active, context);
+        for(int i = 0; i < rules.size(); i++) {
+            rval.addAll(Rule.getHeads(rules.get(i).second.heads, matches.get(i)));
+        }
+        return rval;
+    }
+}
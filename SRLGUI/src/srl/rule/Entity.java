@@ -13,8 +13,6 @@ package srl.rule;
 import java.util.*;
 import srl.tools.strings.Strings;
 import srl.corpus.SrlQuery;
-import org.apache.lucene.analysis.Token;
-import srl.corpus.BeginTagToken;
 
 
 /**
@@ -34,9 +32,8 @@ public class Entity implements TypeExpr, Expr, Comparable<Entity> {
      */
     public final String entityType, entityValue, var;
     
-    TypeExpr current;
-    TypeExpr next;
-    SrlMatchRegion match;
+    /** The rule this entity is in (if known) */
+    Rule rule;
     /**
      * The rule type
      */
@@ -58,14 +55,9 @@ public class Entity implements TypeExpr, Expr, Comparable<Entity> {
         this.ruleType = ruleType;
         body = new LinkedList<TypeExpr>();
         if(ruleType == Rule.TEMPLATE_RULE) {
-            EndTag endTag = new EndTag(entityType);
-            BeginTag bt = new BeginTag(entityType, entityValue);
-            bt.setNext(endTag);
-            body.add(bt);
-            body.add(endTag);
-            current = bt;
+            body.add(new BeginTag(entityType, entityValue));
+            body.add(new EndTag(entityType));
         } 
-        match = new SrlMatchRegion();
     }
     
     /**
@@ -78,97 +70,17 @@ public class Entity implements TypeExpr, Expr, Comparable<Entity> {
         }
     }
 
-    /**
-     * Does this match the current token
-     * @param token The current token
-     * @param tokenNo The token number
-     * @param stack The fork stack
-     * @param lookBackStack The reverse stack
-     * @return <code>this</code> if the matching is still in the entity,
-     * <code>next</code> if the match is succesful, <code>null</code> is the
-     * match fails.
-     */
-    public TypeExpr matches(Token token, int tokenNo, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        current = current.matches(token, tokenNo,stack, lookBackStack);
-        if(current == null)
-            return null;
-        if(match.beginRegion < 0) {
-            if(token instanceof BeginTagToken)
-                match.beginRegion = tokenNo + 1;
-            else 
-                match.beginRegion = tokenNo;
-        }
-	
-        if(!body.contains(current) && current == next) {
-            if(token.termText().length() >= 1)
-                match.value.append(token.termText());
-            /*if(token instanceof EndTagToken)
-                match.endRegion = tokenNo;
-            else*/
-                match.endRegion = tokenNo+1;
-            if(match.value.toString().matches(".* "))
-                match.value.deleteCharAt(match.value.length()-1);
-	    return current;
-        } else if(!body.contains(current)) { // Change this if nesting occurs
-            match.endRegion = tokenNo;
-            return current;
-        } else {
-            if(token.termText().length() >= 1)
-                match.value.append(token.termText() + (current instanceof EndTag ? "" : " "));
-        }
-        return this;
-    }
-
-    /** Are we at the end of a completed match. Entity rules depend on the body,
-     * however template rules require an end tag to be found
-     */
-    public boolean canEnd() {
-        if(ruleType == Rule.ENTITY_RULE)
-            return current.canEnd();
-        else // Actually current.canEnd() always returns false in this case
-            return false;
-    }
-
-    /**
-     * Set the next matcher
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
-        if(!body.isEmpty())
-            body.get(body.size()-1).setNext(te);
-    }
-
-    /**
-     * Reset the matcher. Returns the matching to the beginning of the entity
-     * expression
-     */
-    public void reset() {
-        current = body.get(0);
-        match = new SrlMatchRegion();
-        for(TypeExpr te : body)
-            te.reset();
-    }
-    
     /**
      * Add an element to the body of this expression
      * @param typeExpr
      */
     public void addTypeExpr(TypeExpr typeExpr) {
-        if(!body.isEmpty()) {
-            if(ruleType == Rule.ENTITY_RULE)
-                body.get(body.size()-1).setNext(typeExpr);
-            else
-                body.get(body.size()-2).setNext(typeExpr);
-        } else {
-            current = typeExpr;
-        }
+        if(rule != null)
+            rule.invalidate();
         if(ruleType == Rule.ENTITY_RULE) {
-            typeExpr.setNext(next);
             body.add(typeExpr);
         } else {
             body.add(body.size()-1,typeExpr);
-            typeExpr.setNext(body.get(body.size()-1));
             if(typeExpr instanceof SkipWords) {
                 ((SkipWords)typeExpr).setSkipTags(false);
             }
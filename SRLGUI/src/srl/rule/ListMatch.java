@@ -10,10 +10,7 @@
  */
 package srl.rule;
 
-import srl.wordlist.*;
-import java.util.*;
 import srl.tools.struct.ListenableSet;
-import org.apache.lucene.analysis.Token;
 import srl.corpus.SrlQuery;
 
 /**
@@ -23,10 +20,7 @@ import srl.corpus.SrlQuery;
  */
 public class ListMatch implements TypeExpr {
 
-    TypeExpr next;
     String wordListName;
-    SortedSet<WordListEntry> matches = null;
-    WordListEntry currentMatch = null;
     final boolean set;
 
     /**
@@ -55,87 +49,11 @@ public class ListMatch implements TypeExpr {
             query.wordLists.add(wordListName);
     }
 
-    /**
-     * Does this match?
-     * @param token The current token
-     * @param no The token number
-     * @param stack The fork stack... may be used if there are partial matches
-     * @param lookBackStack The reverse stack (ignored)
-     */
-    public TypeExpr matches(Token token, int no, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(matches == null) {
-            if(set) {
-                matches = new TreeSet<WordListEntry>();
-                WordListSet wls = WordListSet.getWordListSetByName(wordListName);
-                if(wls == null) {
-                        throw new IllegalArgumentException("Cannot find word list set %" + wordListName);
-                }
-                for(Map.Entry<String,WordList> entry : wls.getWordListSets()) {
-                    matches.addAll(WordListSet.getMatchSet(entry.getKey(), token.termText().toLowerCase()));
-                }
-                //currentMatch = wls.getEntry(token.termText().toLowerCase());
-                currentMatch = new WordListEntry(new LinkedList<String>());
-                currentMatch.addWord(token.term().toLowerCase());
-            } else {
-                matches = new TreeSet<WordListEntry>(WordListSet.getMatchSet(wordListName, token.termText().toLowerCase()));
-                //currentMatch = WordListSet.getWordListSetByList(wordListName).getEntry(token.termText().toLowerCase());
-                currentMatch = new WordListEntry(new LinkedList<String>());
-                currentMatch.addWord(token.term().toLowerCase());
-            }
-        } else {
-            currentMatch.addWord(token.termText().toLowerCase());
-        }
-        MatchFork mf = MatchFork.find(stack, no, this);
-        if(mf != null && (mf.used == true || stack.peek() == mf)) {
-            stack.peek().split(no, this);
-            return this;
-        }
-        Iterator<WordListEntry> wleIter = matches.iterator();
-        while(wleIter.hasNext()) {
-            WordListEntry wle = wleIter.next();
-            if(wle.equals(currentMatch)) {
-                if(matches.size() > 1 && (stack.empty() || stack.peek().tokenNo < no))
-                    stack.push(new MatchFork(no,this));
-                return next;
-            }
-            if(!wle.matchable(currentMatch))
-                wleIter.remove();
-        }
-        if(matches.isEmpty())
-            return null;
-        else
-            return this;
-    }
-
-    /**
-     * Set the next matcher
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
-    }
-
-    /**
-     * Reset this matcher to the beginning
-     */
-    public void reset() {
-        matches = null;
-        currentMatch = null;
-    }
-
     @Override
     public String toString() {
         return "list(" + (set ? "%" : "@") + wordListName + ")";
     }
 
-    /**
-     * Can this end. Always returns false, if it is possible for this to complete
-     * this is handled by the fork stack (see "fire breathing dragons" example)
-     */
-    public boolean canEnd() {
-        return false;
-    }
-
     @Override
     public boolean equals(Object obj) {
         if(obj instanceof ListMatch) {
@@ -10,9 +10,7 @@
  */
 package srl.rule;
 
-import org.apache.lucene.analysis.Token;
 import srl.corpus.SrlQuery;
-import java.util.*;
 import srl.tools.struct.*;
 
 /**
@@ -23,7 +21,6 @@ public class Literal implements TypeExpr {
 
     final String literal;
     
-    TypeExpr next;
 
     /**
      * Create an instance
@@ -43,36 +40,6 @@ public class Literal implements TypeExpr {
         query.query.append(literal.replaceAll("([\\\"\\\'])", "\\$1"));
     }
 
-    /**
-     * Does it match
-     * @param token The token
-     * @param no The token number (ignored)
-     * @param stack The fork stack (ignored)
-     * @param lookBackStack The reverse stack (ignored)
-     */
-    public TypeExpr matches(Token token, int no, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(token.termText().toLowerCase().equals(literal.toLowerCase())) {
-            return next;
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * Set the next matcher
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
-    }
-
-
-    /**
-     * Reset the matcher. Does nothing
-     */
-    public void reset() {
-       
-    }
-
     /**
      * Get the literal.
      */
@@ -85,14 +52,6 @@ public class Literal implements TypeExpr {
         return "\"" + literal + "\"";
     }
 
-    /**
-     * Can this end? Always no
-     * @return false
-     */
-    public boolean canEnd() {
-        return false;
-    }
-
     @Override
     public boolean equals(Object obj) {
         if(obj instanceof Literal) {
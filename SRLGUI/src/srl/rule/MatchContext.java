@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.rule;
+
+/**
+ * The working memory used while matching compiled rules. All the state of a match
+ * is held here and not in the rules, so a compiled rule (or rule set) can be shared
+ * by any number of threads, as long as each thread uses its own context. Reusing a
+ * context for many sentences avoids allocating the working memory for each
+ * sentence. A context may be used with any compiled rule, but not by two
+ * threads at once.
+ * @author John McCrae, National Institute of Informatics
+ * @see CompiledRule#getMatch(srl.corpus.SrlDocument, boolean, MatchContext)
+ * @see CompiledRuleSet#getMatches(srl.corpus.SrlDocument, java.util.BitSet, MatchContext)
+ */
+public final class MatchContext {
+    // The state of each node of the automaton: the words skipped and the tags
+    // open for SKIP, the node reached, the region and the value for ENTITY,
+    // whether an OPTIONAL list is still on its first word and the terms read
+    // by a LIST
+    int[] count = new int[0];
+    int[] depth = new int[0];
+    int[] current = new int[0];
+    int[] first = new int[0];
+    int[] listLength = new int[0];
+    int[] listBase = new int[0];
+    int[][] listIds = new int[0][];
+    int[] begin = new int[0];
+    int[] end = new int[0];
+    StringBuffer[] value = new StringBuffer[0];
+    /** The forks not yet explored, as token number and node */
+    int[] forkNo = new int[8];
+    int[] forkNode = new int[8];
+    boolean[] forkUsed = new boolean[8];
+    /** The tokens before the token being matched */
+    int[] lookBack = new int[16];
+
+    /** Create a new context */
+    public MatchContext() {
+    }
+
+    /** Make room for the state of an automaton with the given number of nodes */
+    void ensure(int nodes, int tokens) {
+        if(count.length < nodes) {
+            count = new int[nodes];
+            depth = new int[nodes];
+            current = new int[nodes];
+            first = new int[nodes];
+            listLength = new int[nodes];
+            listBase = new int[nodes];
+            listIds = new int[nodes][];
+            begin = new int[nodes];
+            end = new int[nodes];
+            value = new StringBuffer[nodes];
+            for(int i = 0; i < nodes; i++) {
+                value[i] = new StringBuffer();
+            }
+        }
+        if(lookBack.length < tokens) {
+            lookBack = new int[tokens];
+        }
+    }
+}
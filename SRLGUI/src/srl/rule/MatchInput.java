@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.rule;
+
+import java.util.ArrayList;
+import org.apache.lucene.analysis.Token;
+import srl.corpus.BeginTagToken;
+import srl.corpus.EndTagToken;
+import srl.corpus.SrlDocument;
+import srl.corpus.TermDictionary;
+import srl.corpus.TokenArrayDocument;
+
+/**
+ * A sentence prepared for matching by a compiled rule. The tokens are read once
+ * into arrays, whitespace tokens are dropped (but counted) and the lower case form of each
+ * term and its ID in the TermDictionary are found once, so that the matcher
+ * never has to walk the document, and literals and word lists are matched by
+ * comparing IDs.
+ * @author John McCrae, National Institute of Informatics
+ */
+final class MatchInput {
+    /** Token kind: a normal term */
+    static final byte WORD = 0;
+    /** Token kind: a begin tag */
+    static final byte BEGIN = 1;
+    /** Token kind: an end tag */
+    static final byte END = 2;
+
+    /** The number of (non-whitespace) tokens */
+    final int size;
+    /** The term text of each token */
+    final String[] text;
+    /** The lower case term text of each token */
+    final String[] lower;
+    /** The ID of the lower case term text of each token (TermDictionary.NONE for tags
+     * and for terms not in the dictionary, which no rule or word list contains) */
+    final int[] id;
+    /** The kind of each token (WORD, BEGIN or END) */
+    final byte[] kind;
+    /** The type of each tag, or null for terms */
+    final String[] tagType;
+    /** The value (cl="...") of each begin tag, or null */
+    final String[] tagValue;
+    /** The token number, as reported in SrlMatchRegion, at which each token begins.
+     * Tag tokens are not counted, so a tag has the number of the term after it.
+     * This array has one extra element, the number of the end of the sentence */
+    final int[] pos;
+    /** The number of whitespace tokens just before each token. These are not
+     * matched, but are counted as tokens when looking back from a token. This
+     * array has one extra element, the number at the end of the sentence */
+    final int[] space;
+
+    /**
+     * Read a sentence. A TokenArrayDocument is read from its arrays, without
+     * creating any Token objects
+     * @param sentence The sentence
+     */
+    MatchInput(SrlDocument sentence) {
+        if(sentence instanceof TokenArrayDocument) {
+            TokenArrayDocument tad = (TokenArrayDocument)sentence;
+            int m = 0;
+            for(int i = 0; i < tad.size(); i++) {
+                if(tad.kind(i) != TokenArrayDocument.TERM || !isWhitespace(tad, i))
+                    m++;
+            }
+            size = m;
+            text = new String[size];
+            lower = new String[size];
+            id = new int[size];
+            kind = new byte[size];
+            tagType = new String[size];
+            tagValue = new String[size];
+            pos = new int[size + 1];
+            space = new int[size + 1];
+            int n = 0, j = 0;
+            for(int i = 0; i < tad.size(); i++) {
+                byte k = tad.kind(i);
+                if(k == TokenArrayDocument.TERM) {
+                    if(isWhitespace(tad, i)) {
+                        space[j]++;
+                    } else {
+                        pos[j] = n;
+                        kind[j] = WORD;
+                        text[j] = tad.termText(i);
+                        id[j] = tad.termID(i);
+                        lower[j] = text[j].toLowerCase();
+                        j++;
+                    }
+                    n++;
+                } else {
+                    pos[j] = n;
+                    text[j] = lower[j] = "";
+                    id[j] = TermDictionary.NONE;
+                    tagType[j] = tad.tagType(i);
+                    if(k == TokenArrayDocument.BEGIN_TAG) {
+                        kind[j] = BEGIN;
+                        tagValue[j] = tad.tagValue(i);
+                    } else {
+                        kind[j] = END;
+                    }
+                    j++;
+                }
+            }
+            pos[size] = n;
+            return;
+        }
+        ArrayList<Token> toks = new ArrayList<Token>();
+        ArrayList<Integer> poss = new ArrayList<Integer>();
+        ArrayList<Integer> spaces = new ArrayList<Integer>();
+        int n = 0, sp = 0;
+        for(Token tk : sentence) {
+            if(tk instanceof BeginTagToken || tk instanceof EndTagToken) {
+                toks.add(tk);
+                poss.add(n);
+                spaces.add(sp);
+                sp = 0;
+            } else {
+                if(!isWhitespace(tk.termText())) {
+                    toks.add(tk);
+                    poss.add(n);
+                    spaces.add(sp);
+                    sp = 0;
+                } else {
+                    sp++;
+                }
+                n++;
+            }
+        }
+        size = toks.size();
+        text = new String[size];
+        lower = new String[size];
+        id = new int[size];
+        kind = new byte[size];
+        tagType = new String[size];
+        tagValue = new String[size];
+        pos = new int[size + 1];
+        space = new int[size + 1];
+        for(int i = 0; i < size; i++) {
+            Token tk = toks.get(i);
+            pos[i] = poss.get(i);
+            space[i] = spaces.get(i);
+            if(tk instanceof BeginTagToken) {
+                kind[i] = BEGIN;
+                text[i] = lower[i] = "";
+                id[i] = TermDictionary.NONE;
+                tagType[i] = ((BeginTagToken)tk).type;
+                tagValue[i] = ((BeginTagToken)tk).val;
+            } else if(tk instanceof EndTagToken) {
+                kind[i] = END;
+                text[i] = lower[i] = "";
+                id[i] = TermDictionary.NONE;
+                tagType[i] = ((EndTagToken)tk).type;
+            } else {
+                kind[i] = WORD;
+                text[i] = tk.termText();
+                lower[i] = text[i].toLowerCase();
+                id[i] = TermDictionary.lookup(lower[i]);
+            }
+        }
+        pos[size] = n;
+        space[size] = sp;
+    }
+
+    private static boolean isWhitespace(TokenArrayDocument tad, int i) {
+        for(int j = 0; j < tad.termLength(i); j++) {
+            if(!Character.isWhitespace(tad.charAt(i, j)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(String s) {
+        for(int i = 0; i < s.length(); i++) {
+            if(!Character.isWhitespace(s.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+}
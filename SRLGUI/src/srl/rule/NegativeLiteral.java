@@ -10,9 +10,6 @@
 */
 package srl.rule;
 
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import srl.corpus.SrlQuery;
 
 /**
@@ -25,8 +22,6 @@ import srl.corpus.SrlQuery;
 public class NegativeLiteral implements TypeExpr {
     public final String literal;
     public final ListMatch listMatcher;
-    private TypeExpr next;
-    private DummyNode dummy;
 
     /**
      * Create a new instance
@@ -41,51 +36,9 @@ public class NegativeLiteral implements TypeExpr {
         } else {
             this.literal = null;
             listMatcher = new ListMatch(literal);
-            dummy = new DummyNode();
-            listMatcher.setNext(dummy);
         }
     }
 
-    /**
-     * Does this match the current token. In fact this matcher does not check the
-     * current token but instead the top element(s) of <code>lookBackStack</code>
-     * @param token The current token (ignored)
-     * @param tokenNo The token number (ignoed)
-     * @param stack The fork stack (ignored)
-     * @param lookBackStack The reverse stack
-     */
-    public TypeExpr matches(Token token, int tokenNo, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(literal != null) {
-            if(lookBackStack.isEmpty()) 
-                return next.matches(token,tokenNo,stack,lookBackStack);
-            if(lookBackStack.get(lookBackStack.size()-1).termText().toLowerCase().equals(literal)) {
-                return null;
-            } else 
-                return next.matches(token, tokenNo, stack,lookBackStack);
-        } else {
-            
-            for(int i = lookBackStack.size()-1; i >= 0; i--) {
-                TypeExpr te = listMatcher.matches(lookBackStack.get(i),tokenNo,stack,lookBackStack);
-                if(te == null)
-                    return next.matches(token, tokenNo, stack, lookBackStack);
-                if(te == dummy)
-                    return null;
-                if(te == listMatcher)
-                    continue;
-                else
-                    throw new IllegalStateException();
-            }
-            return next.matches(token, tokenNo, stack, lookBackStack);
-        }
-    }
-
-    /**
-     * Can this end. Answer depends on following matchers
-     */
-    public boolean canEnd() {
-        return next.canEnd();
-    }
-
     /**
      * Create an exact copy
      */
@@ -104,23 +57,6 @@ public class NegativeLiteral implements TypeExpr {
         query.query.append("\" \"");
     }
 
-    /**
-     * Reset the matcher
-     */
-    public void reset() {
-        if(listMatcher != null)
-            listMatcher.reset();
-    }
-
-    /**
-     * Set the next matcher
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
-    }
-
-    
     public String toString() {
         if(literal != null)
             return "not(\"" + literal + "\")";
@@ -10,9 +10,6 @@
 */
 package srl.rule;
 
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import srl.corpus.SrlQuery;
 
 /**
@@ -23,9 +20,6 @@ import srl.corpus.SrlQuery;
 public class OptionalLiteral implements TypeExpr {
     public final String literal;
     public final ListMatch listMatcher;
-    private TypeExpr next;
-    private DummyNode dummy;
-    private boolean first = true;
 
     /**
      * Create a new instance.
@@ -40,59 +34,9 @@ public class OptionalLiteral implements TypeExpr {
         } else {
             this.literal = null;
             listMatcher = new ListMatch(param);
-            dummy = new DummyNode();
-            listMatcher.setNext(dummy);
         }
     }
 
-    /**
-     * Does this match?
-     * @param token The current token
-     * @param tokenNo The token number
-     * @param stack The fork stack... may be used if there are partial matches
-     * @param lookBackStack The reverse stack (ignored)
-     */
-    public TypeExpr matches(Token token, int tokenNo, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(literal != null) {
-            MatchFork mf = MatchFork.find(stack, tokenNo, this);
-            if(mf != null && (mf.used || stack.peek() == mf)) {
-                mf.split(tokenNo, this);
-                return next.matches(token, tokenNo, stack, lookBackStack);
-            }
-            if(token.termText().toLowerCase().equals(literal)) {
-                if(next.matches(token, tokenNo, stack, lookBackStack) != null) {
-                    if((stack.empty() || stack.peek().tokenNo < tokenNo) &&
-                        !(next == Rule.successState))
-                        stack.push(new MatchFork(tokenNo, this));
-                }
-                next.reset();
-                return next;
-            } else 
-                return next.matches(token, tokenNo, stack,lookBackStack);
-        } else {
-            TypeExpr te = listMatcher.matches(token,tokenNo,stack,lookBackStack);
-            if(te == null && first)
-                return next.matches(token, tokenNo, stack,lookBackStack);
-            if(te == null)
-                return null;
-            if(te == dummy)
-                return next;
-            if(te == listMatcher) {
-                first = false;
-                return this;
-            }
-            else
-                throw new IllegalStateException();
-        }
-    }
-
-    /**
-     * Can this end. Depeneds on the next statements
-     */
-    public boolean canEnd() {
-        return next.canEnd();
-    }
-
     /**
      * Create an exact copy of this
      */
@@ -111,24 +55,6 @@ public class OptionalLiteral implements TypeExpr {
         query.query.append("\" \"");
     }
 
-    /**
-     * Reset the matcher
-     */
-    public void reset() {
-        if(listMatcher != null)
-            listMatcher.reset();
-        first = true;
-    }
-
-    /**
-     * Set the next matcher
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
-    }
-
-    
     public String toString() {
         if(literal != null)
             return "optional(\"" + literal + "\")";
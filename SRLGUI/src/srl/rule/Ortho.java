@@ -10,9 +10,6 @@
  */
 package srl.rule;
 
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import srl.corpus.SrlQuery;
 import java.util.regex.*;
 
@@ -25,7 +22,6 @@ public class Ortho implements TypeExpr {
     final String[][] expressions;
     final String baseExpr;
     
-    TypeExpr next;
 
     /**
      * Create a new instance
@@ -42,41 +38,21 @@ public class Ortho implements TypeExpr {
      */
     public void getQuery(SrlQuery query) {
         query.query.append("\" \"");
-    }
-
-    /**
-     * Does this match?
-     * @param token The current token
-     * @param no The token number
-     * @param stack The fork stack... may be used if there are partial matches
-     * @param lookBackStack The reverse stack (ignored)
-     */
-    public TypeExpr matches(Token token, int no, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        LOOP: for(String[] expBlock : expressions) {
-            for(String exp : expBlock) {
-                if(!token.termText().matches(exp))
-                    continue LOOP;
-            }
-            return next;
+        String[] blockExprs = baseExpr.split("\\|");
+        if(blockExprs.length != 1)
+            return;
+        // Every token matched has a character of each type in the block
+        for(String expr : blockExprs[0].split("&")) {
+            Matcher m = Pattern.compile("(\\^)?(\\d*)(\\+)?(\\w+)").matcher(expr);
+            if(!m.matches())
+                continue;
+            if(m.group(4).equals("Np"))
+                query.categories.add("Nd");
+            else if(SrlQuery.isCategory(m.group(4)))
+                query.categories.add(m.group(4));
         }
-        return null;
-    }
-
-    /**
-     * Set the next matcher
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
     }
 
-    /**
-     * Reset the matcher. Does nothing
-     */
-    public void reset() {
-       
-    }
-    
     boolean hasStartCheck = false;
     private String[][] readExpressions(String expression) {
         String[] blockExprs = expression.split("\\|");
@@ -157,13 +133,6 @@ public class Ortho implements TypeExpr {
         return "ortho(\"" + baseExpr + "\")";
     }
 
-    /**
-     * Can this end. Always no
-     */
-    public boolean canEnd() {
-        return false;
-    }
-
     @Override
     public boolean equals(Object obj) {
         if(obj instanceof Ortho) {
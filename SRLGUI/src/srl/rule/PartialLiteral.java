@@ -10,9 +10,6 @@
 */
 package srl.rule;
 
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import srl.corpus.SrlQuery;
 
 /**
@@ -30,7 +27,6 @@ public class PartialLiteral implements TypeExpr {
      * Match begins, ends or contains
      */
     public final int part;
-    private TypeExpr next;
     /**
      * Constant for begin match
      */
@@ -54,25 +50,6 @@ public class PartialLiteral implements TypeExpr {
         this.part = part;
     }
 
-    /**
-     * Does this match?
-     * @param token The current token
-     * @param tokenNo The token number
-     * @param stack The fork stack
-     * @param lookBackStack The reverse stack (ignored)
-     */
-    public TypeExpr matches(Token token, int tokenNo, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(token.termLength() < partLiteral.length()) {
-            return null;
-        }
-        if(part == BEGIN && token.termText().toLowerCase().substring(0, partLiteral.length()).equals(partLiteral) ||
-                part == END && endString(token.termText().toLowerCase(),partLiteral.length()).equals(partLiteral) ||
-                part == CONTAINS && token.termText().toLowerCase().contains(partLiteral))
-            return next;
-        else
-            return null;
-    }
-
     private static String endString(String string, int n) {
         if(n >= string.length())
             return string;
@@ -80,13 +57,6 @@ public class PartialLiteral implements TypeExpr {
             return string.substring(string.length()-n);
     }
 
-    /**
-     * Can this end? Always no
-     */
-    public boolean canEnd() {
-        return false;
-    }
-
     /**
      * Create an exact copy
      */
@@ -100,23 +70,9 @@ public class PartialLiteral implements TypeExpr {
      */
     public void getQuery(SrlQuery query) {
         query.query.append("\" \"");
+        query.addString((part == BEGIN ? "^" : "") + partLiteral + (part == END ? "$" : ""));
     }
 
-    /**
-     * Reset the matcher
-     */
-    public void reset() {
-    }
-
-    /**
-     * Set the next matcher
-     * @param te
-     */
-    public void setNext(TypeExpr te) {
-        next = te;
-    }
-
-    
     public String toString() {
         if(part == BEGIN) {
             return "begins(\"" + partLiteral + "\")";
@@ -10,9 +10,9 @@
  */
 package srl.rule;
 
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
+import java.util.regex.Pattern;
 import srl.corpus.SrlQuery;
 
 /**
@@ -24,7 +24,6 @@ public class Regex implements TypeExpr {
 
     final String expression;
     
-    TypeExpr next;
 
     /**
      * Create a new instance.
@@ -40,35 +39,197 @@ public class Regex implements TypeExpr {
      */
     public void getQuery(SrlQuery query) {
         query.query.append("\" \"");
+        for(String s : requiredStrings(expression)) {
+            query.addString(s);
+        }
     }
 
     /**
-     * Does this match
-     * @param token The token
-     * @param no The token number (ignored)
-     * @param stack The fork stack (ignored)
-     * @param lookBackStack The reverse stack (ignored)
+     * Find the strings which occur in every token matched by a regular expression,
+     * e.g., "^ab" and "cd$" for <code>ab.*cd</code>. The start and end of the token
+     * are marked by ^ and $. Only literal characters outside groups and character
+     * classes are used, so for complex expressions fewer (or no) strings are found. No
+     * strings are found for an expression with an alternation (<code>|</code>) or that
+     * the method does not understand
+     * @param expression The regular expression
+     * @return The strings
      */
-    public TypeExpr matches(Token token, int no, Stack<MatchFork> stack, List<Token> lookBackStack) {
-        if(token.termText().matches(expression)) {
-            return next;
-        } else {
-            return null;
+    static List<String> requiredStrings(String expression) {
+        List<String> rval = new LinkedList<String>();
+        if(COMMENTS.matcher(expression).find()) {
+            // White space is ignored
+            return rval;
+        }
+        // The run of literal characters read so far, it starts at the start of the token
+        StringBuffer run = new StringBuffer("^");
+        int i = 0;
+        if(expression.startsWith("^"))
+            i++;
+        while(i < expression.length()) {
+            char c = expression.charAt(i);
+            String literal = null;
+            int next = i + 1;
+            if(c == '\\') {
+                if(next >= expression.length())
+                    return new LinkedList<String>();
+                char e = expression.charAt(next);
+                if(e == 'Q' || e == 'E') {
+                    return new LinkedList<String>();
+                } else if(Character.isLetterOrDigit(e)) {
+                    next = endOfEscape(expression, next + 1, e);
+                    if(next < 0) {
+                        return new LinkedList<String>();
+                    }
+                } else {
+                    literal = String.valueOf(e);
+                    next++;
+                }
+            } else if(c == '[' || c == '(') {
+                next = c == '[' ? endOfClass(expression, i) : endOfGroup(expression, i);
+                if(next < 0) {
+                    return new LinkedList<String>();
+                }
+            } else if(c == '|') {
+                // Nothing is required by an alternation
+                return new LinkedList<String>();
+            } else if(c == '$' && next == expression.length()) {
+                break;
+            } else if(".^$?*+{)".indexOf(c) < 0) {
+                literal = String.valueOf(c);
+            }
+            boolean optional = false, repeated = false;
+            if(next < expression.length()) {
+                char q = expression.charAt(next);
+                if(q == '?' || q == '*') {
+                    optional = true;
+                    next++;
+                } else if(q == '+') {
+                    repeated = true;
+                    next++;
+                } else if(q == '{') {
+                    int close = expression.indexOf('}', next);
+                    if(close < 0) {
+                        return new LinkedList<String>();
+                    }
+                    String[] bounds = expression.substring(next + 1, close).split(",", -1);
+                    if(bounds[0].trim().equals("") || bounds[0].trim().equals("0"))
+                        optional = true;
+                    else if(bounds.length > 1 || !bounds[0].trim().equals("1"))
+                        repeated = true;
+                    next = close + 1;
+                }
+                // Reluctant and possessive quantifiers
+                if((optional || repeated) && next < expression.length() &&
+                        (expression.charAt(next) == '?' || expression.charAt(next) == '+'))
+                    next++;
+            }
+            if(literal != null && !optional) {
+                run.append(literal);
+                if(repeated) {
+                    addString(rval, run);
+                    run = new StringBuffer(literal);
+                }
+            } else {
+                addString(rval, run);
+                run = new StringBuffer();
+            }
+            i = next;
+        }
+        run.append("$");
+        addString(rval, run);
+        return rval;
+    }
+
+    private static final Pattern COMMENTS = Pattern.compile("\\(\\?[a-zA-Z-]*x");
+
+    /**
+     * Find the end of an escape such as <code>\\d</code>, <code>\\x41</code> or <code>\\p{Lu}</code>
+     * @param expression The regular expression
+     * @param i The index after the escaped character
+     * @param e The escaped character
+     * @return The index after the escape or -1 if the escape is not closed
+     */
+    private static int endOfEscape(String expression, int i, char e) {
+        if(i < expression.length() && expression.charAt(i) == '{' && "xpPN".indexOf(e) >= 0) {
+            int close = expression.indexOf('}', i);
+            return close < 0 ? -1 : close + 1;
+        }
+        int n;
+        switch(e) {
+            case 'x': n = 2; break;
+            case 'u': n = 4; break;
+            case 'c': case 'p': case 'P': n = 1; break;
+            case 'k':
+                int close = expression.indexOf('>', i);
+                return close < 0 ? -1 : close + 1;
+            default:
+                // Octal escapes and back references
+                if(Character.isDigit(e)) {
+                    while(i < expression.length() && Character.isDigit(expression.charAt(i)))
+                        i++;
+                }
+                return i;
         }
+        return Math.min(i + n, expression.length());
+    }
+
+    private static void addString(List<String> strings, StringBuffer s) {
+        if(s.length() >= 3)
+            strings.add(s.toString());
     }
 
     /**
-     * Set the next matcher
+     * Find the end of a character class, allowing for nested classes and escapes
+     * @param expression The regular expression
+     * @param i The index of the opening bracket
+     * @return The index after the closing bracket, or -1 if it is not closed
      */
-    public void setNext(TypeExpr te) {
-        next = te;
+    private static int endOfClass(String expression, int i) {
+        int j = i + 1;
+        if(j < expression.length() && expression.charAt(j) == '^')
+            j++;
+        // A "]" at the start of a class is a literal
+        if(j < expression.length() && expression.charAt(j) == ']')
+            j++;
+        int depth = 1;
+        for(; j < expression.length(); j++) {
+            char c = expression.charAt(j);
+            if(c == '\\') {
+                j++;
+            } else if(c == '[') {
+                depth++;
+            } else if(c == ']') {
+                if(--depth == 0)
+                    return j + 1;
+            }
+        }
+        return -1;
     }
 
-    /** Reset the matcher
-     *
+    /**
+     * Find the end of a group, allowing for nested groups, character classes and escapes
+     * @param expression The regular expression
+     * @param i The index of the opening bracket
+     * @return The index after the closing bracket, or -1 if it is not closed
      */
-    public void reset() {
-       
+    private static int endOfGroup(String expression, int i) {
+        int depth = 0;
+        for(int j = i; j < expression.length(); j++) {
+            char c = expression.charAt(j);
+            if(c == '\\') {
+                j++;
+            } else if(c == '[') {
+                j = endOfClass(expression, j) - 1;
+                if(j < 0)
+                    return -1;
+            } else if(c == '(') {
+                depth++;
+            } else if(c == ')') {
+                if(--depth == 0)
+                    return j + 1;
+            }
+        }
+        return -1;
     }
 
     @Override
@@ -76,12 +237,6 @@ public class Regex implements TypeExpr {
         return "regex(\"" + expression + "\")";
     }
 
-    /** Can this end. Always no
-     */
-    public boolean canEnd() {
-        return false;
-    }
-
     @Override
     public boolean equals(Object obj) {
         if(obj instanceof Regex) {
@@ -22,9 +22,6 @@ import srl.corpus.SrlDocument;
 import srl.rule.parser.ParseException;
 import srl.rule.parser.SrlParser;
 import srl.tools.struct.*;
-import org.apache.lucene.analysis.Token;
-import srl.corpus.BeginTagToken;
-import srl.corpus.EndTagToken;
 import srl.corpus.SrlQuery;
 import srl.rule.parser.TokenMgrError;
 
@@ -45,20 +42,17 @@ public class Rule implements Expr, Comparable<Rule> {
      * a string this will be null
      */
     public Map<String,Entity> variableEntityMap;
-    static TypeExpr successState;
     /** The rule comment */
     public String comment = "";
     public final int ruleType;
+    /** The compiled form of the rule, or null if the rule has changed since it was compiled */
+    private volatile CompiledRule compiled;
     /** Constant used to signify the rule is an entity rule */
     public static final int ENTITY_RULE = 0;
     /** Constant used to signify the rule is a template rule */
     public static final int TEMPLATE_RULE = 1;
     
 
-    static {
-        successState = new DummyNode();
-    }
-
     /**
      * Create a new rule
      * @param ruleType The rule's type. (entity or template)
@@ -70,6 +64,12 @@ public class Rule implements Expr, Comparable<Rule> {
         if (ruleType != ENTITY_RULE && ruleType != TEMPLATE_RULE) {
             throw new IllegalArgumentException();
         }
+        body.addCollectionChangeListener(new CollectionChangeListener<TypeExpr>() {
+
+            public void collectionChanged(CollectionChangeEvent<TypeExpr> e) {
+                compiled = null;
+            }
+        });
     }
 
     /**
@@ -151,6 +151,28 @@ public class Rule implements Expr, Comparable<Rule> {
         return !getMatch(sentence, true).isEmpty();
     }
 
+    /**
+     * Compile this rule into an automaton. The compiled rule is immutable and
+     * may be shared between threads. It is a snapshot of the rule and does not
+     * reflect later changes to the rule. The compiled rule is kept until the
+     * body of this rule (or of one of its entities) is changed through
+     * addTypeExpr() or the body list.
+     * @return The compiled rule
+     * @throws IllegalArgumentException If the rule cannot be compiled
+     */
+    public CompiledRule compile() {
+        CompiledRule c = compiled;
+        if(c == null) {
+            compiled = c = new CompiledRule(this);
+        }
+        return c;
+    }
+
+    /** Discard the compiled form of the rule, called when the body is changed */
+    void invalidate() {
+        compiled = null;
+    }
+
     /**
      * Find the matches. This function matches multiple times and so a list
      * of match results are returned in order of first matched element.
@@ -161,115 +183,7 @@ public class Rule implements Expr, Comparable<Rule> {
      * @return The list of matches.
      */
     public List<HashMap<Entity, SrlMatchRegion>> getMatch(SrlDocument sentence, boolean firstOnly) {
-        TypeExpr typeExpr;
-        ListIterator<Token> iter1 = sentence.listIterator();
-        LinkedList<HashMap<Entity, SrlMatchRegion>> rval = new LinkedList<HashMap<Entity, SrlMatchRegion>>();
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        LinkedList<Token> lookBackStack = new LinkedList<Token>();
-        
-        int i = -1;
-        Token tk = null;
-        MAIN: while (iter1.hasNext()) {
-            while(!stack.empty() && stack.peek().used) {
-                stack.pop();
-            }
-            // If the stack is not empty, keep looping until it is
-            if(stack.empty()) {
-                // Read next token
-                if(tk != null)
-                    lookBackStack.add(tk);
-                tk = iter1.next();
-                i++;
-            }
-            // Ignore empty tokens, do not count tag tokens
-            if (!(tk instanceof BeginTagToken) && !(tk instanceof EndTagToken) && tk.termText().matches("\\s*")) {
-                continue;
-            } else if ((tk instanceof BeginTagToken || tk instanceof EndTagToken) && stack.empty()) {
-                i--;
-            }
-            // Reset search
-            if(body.isEmpty())
-                return rval;
-            typeExpr = body.get(0);
-            resetSearch();
-            // Match first token
-            if ((typeExpr = typeExpr.matches(tk, i, stack, lookBackStack)) != null) {
-                // Otherwise carry on matching
-                int j = i+1;
-                // Check for single token match
-                if (typeExpr == successState) {
-                    onMatch(rval,i + (tk instanceof BeginTagToken ? 1 : 0),j);
-                    if (firstOnly) {
-                        return rval;
-                    }
-                    continue;
-                }
-                Iterator<Token> iter2 = sentence.listIterator(iter1.nextIndex());
-                while (iter2.hasNext()) {
-                    Token tk2 = iter2.next();
-                    // Skip whitespace tokens
-                    if (!(tk2 instanceof BeginTagToken) && !(tk2 instanceof EndTagToken) && tk2.termText().matches("\\s*")) {
-                        j++;
-                        lookBackStack.add(tk2);
-                        continue;
-                    } else if (tk2 instanceof BeginTagToken || tk2 instanceof EndTagToken) {
-                        j--;
-                    }
-                    if (typeExpr == null) {
-                        break;
-                    } // Match failed
-
-                    // Check next token
-                    typeExpr = typeExpr.matches(tk2, j++,stack,lookBackStack);
-                    if (typeExpr == successState) {
-                        onMatch(rval,i + (tk instanceof BeginTagToken ? 1 : 0),j);
-                        if (firstOnly) {
-                            return rval;
-                        }
-                        while(lookBackStack.size() > i && !lookBackStack.isEmpty())
-                            lookBackStack.removeLast();
-                        continue MAIN;
-                    }
-                    lookBackStack.add(tk2);
-                }
-                while(lookBackStack.size() > i && !lookBackStack.isEmpty())
-                    lookBackStack.removeLast();
-                // Check to see if we are caught in "words(1,) <EOL>" trap
-                if (typeExpr != null && typeExpr.canEnd()) {
-                    if(typeExpr instanceof Entity) {
-                       ((Entity)typeExpr).match.endRegion = j;
-                    }   
-                    onMatch(rval,i + (tk instanceof BeginTagToken ? 1 : 0),j);
-                    if (firstOnly) {
-                        return rval;
-                    }
-                }
-            }
-        }
-        resetSearch();
-        return rval;
-    }
-
-    private void onMatch(LinkedList<HashMap<Entity, SrlMatchRegion>> rval, int ruleBegin, int ruleEnd) {
-        HashMap<Entity, SrlMatchRegion> match = new HashMap<Entity, SrlMatchRegion>();
-        
-        for (TypeExpr te : body) {
-            if (te instanceof Entity) {
-                SrlMatchRegion smr = ((Entity) te).match;
-                smr.ruleBegin = ruleBegin;
-                smr.ruleEnd = ruleEnd;
-                match.put((Entity) te, smr);
-                ((Entity)te).match.sourceRule = this;
-            }
-        }
-        rval.add(match);
-        resetSearch();
-    }
-
-    private void resetSearch() {
-        for (TypeExpr te : body) {
-            te.reset();
-        }
+        return compile().getMatch(sentence, firstOnly);
     }
 
     /** Match the rule and output on the heads. The output is given by
@@ -278,8 +192,16 @@ public class Rule implements Expr, Comparable<Rule> {
      * @return The matches
      */
     public List<String> getHeads(SrlDocument sentence) {
+        return getHeads(heads, getMatch(sentence, false));
+    }
+
+    /** Create the output of a set of heads for each match
+     * @param heads The heads of the rule
+     * @param ents The matches, as returned by getMatch()
+     * @return The output for each match
+     */
+    static List<String> getHeads(Set<Head> heads, List<HashMap<Entity, SrlMatchRegion>> ents) {
         List<String> rv = new LinkedList<String>();
-        List<HashMap<Entity, SrlMatchRegion>> ents = getMatch(sentence, false);
         //Vector<Pair<Entity,SrlMatchRegion>> matches = srl.corpus.CorpusExtractor.sortMatches(ents);
         for (HashMap<Entity,SrlMatchRegion> matches : ents) {
             StringBuffer headStr = new StringBuffer();
@@ -316,10 +238,9 @@ public class Rule implements Expr, Comparable<Rule> {
      * @param typeExpr The typeExpr
      */
     public void addTypeExpr(TypeExpr typeExpr) {
-        if (!body.isEmpty()) {
-            body.get(body.size() - 1).setNext(typeExpr);
+        if (typeExpr instanceof Entity) {
+            ((Entity) typeExpr).rule = this;
         }
-        typeExpr.setNext(successState);
         body.add(typeExpr);
     }
 
@@ -0,0 +1,926 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.rule;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import srl.corpus.TermDictionary;
+import srl.wordlist.*;
+
+/**
+ * The compiled form of one or more rules. Every expression of every rule is a
+ * node in a single table, and the state of a match (the words skipped, the word
+ * list entry read so far, the region of each entity, the forks not yet explored
+ * and so on) is held in a MatchContext, so the table itself is never changed
+ * by matching.
+ * <p>
+ * A rule is matched as follows. The rule is tried at each token of the sentence
+ * in turn. A try reads tokens until the rule succeeds or fails. Where an
+ * expression could go two ways (e.g., <code>words(1,3)</code> may take one more
+ * word or stop) it takes the longest way and records a fork, and after the try
+ * the rule is tried again from the same token taking the other way at the
+ * most recent fork, until every fork has been explored. Every try that succeeds
+ * is a match, so the same token may start several matches. A try that reaches
+ * the end of the sentence succeeds if the rest of the rule may be empty.
+ * Whitespace is not matched, and tags are not counted as tokens when numbering
+ * the regions.
+ * <p>
+ * Rules which start with one or more literals (and do not look back with
+ * <code>not()</code>) are only tried where those literals occur. The literal
+ * prefixes of all rules are stored in a trie of tokens, so that at each token a
+ * single walk of the trie finds every rule whose prefix is found there. Literals
+ * are resolved to their IDs in the TermDictionary when the rules are compiled, so
+ * literals and word list entries are matched by comparing integers.
+ * @author John McCrae, National Institute of Informatics
+ * @see CompiledRule
+ * @see CompiledRuleSet
+ */
+final class RuleAutomaton {
+    // The operations of the nodes
+    static final int DUMMY = 0;
+    static final int LITERAL = 1;
+    static final int CASE_LITERAL = 2;
+    static final int REGEX = 3;
+    static final int ORTHO = 4;
+    static final int PARTIAL = 5;
+    static final int BEGIN_TAG = 6;
+    static final int END_TAG = 7;
+    static final int SKIP = 8;
+    static final int LIST = 9;
+    static final int OPTIONAL = 10;
+    static final int NOT = 11;
+    static final int ENTITY = 12;
+
+    /** No node, the try has failed */
+    static final int FAIL = -1;
+    /** A whitespace token on the look back stack */
+    private static final int SPACE = -1;
+    /** The value of an entity ending in a space */
+    private static final Pattern TRAILING_SPACE = Pattern.compile(".* ");
+
+    /** The rules */
+    final Rule[] rules;
+    /** The operation of each node */
+    final int[] op;
+    /** The node following each node, or FAIL for the last node of a rule */
+    final int[] next;
+    /** Integer parameters: the term ID for LITERAL, OPTIONAL and NOT (TermDictionary.NONE
+     * if the literal is empty or the parameter is a list), the minimum for SKIP
+     * and the part for PARTIAL */
+    final int[] arg1;
+    /** Integer parameters: the maximum for SKIP and the LIST node of an OPTIONAL or NOT
+     * (or FAIL if the parameter is a literal) */
+    final int[] arg2;
+    /** Object parameters, e.g., the literal or pattern to match */
+    final Object[] obj;
+    /** The body of each ENTITY node */
+    final int[][] body;
+    /** For each ENTITY node the nodes equal to an expression of its body */
+    final BitSet[] inBody;
+    /** The first node of each rule (or FAIL if the rule has an empty body) */
+    final int[] initial;
+    /** The node each rule ends on */
+    final int[] success;
+    /** The nodes of the body of each rule */
+    final int[][] top;
+    /** The ENTITY nodes of the body of each rule, and their entities */
+    final int[][] entityNodes;
+    final Entity[][] entities;
+    /** Does each rule look back with <code>not()</code> */
+    final boolean[] lookBack;
+    /** The rules without a literal prefix */
+    final int[] unanchored;
+    /** The literal prefixes */
+    final Prefix prefixes = new Prefix();
+
+    /** A node in the trie of literal prefixes, keyed by term ID */
+    static final class Prefix {
+        /** The term IDs of the children, in ascending order */
+        int[] keys = new int[0];
+        /** The children */
+        Prefix[] children = new Prefix[0];
+        /** The rules whose prefix ends here */
+        final List<Integer> starts = new ArrayList<Integer>();
+
+        /** Get the child for a term ID or null if there is none */
+        Prefix child(int id) {
+            int i = Arrays.binarySearch(keys, id);
+            return i < 0 ? null : children[i];
+        }
+
+        /** Get the child for a term ID, adding it if there is none */
+        Prefix addChild(int id) {
+            int i = Arrays.binarySearch(keys, id);
+            if(i >= 0)
+                return children[i];
+            i = -i - 1;
+            int[] k = new int[keys.length + 1];
+            Prefix[] c = new Prefix[keys.length + 1];
+            System.arraycopy(keys, 0, k, 0, i);
+            System.arraycopy(children, 0, c, 0, i);
+            System.arraycopy(keys, i, k, i + 1, keys.length - i);
+            System.arraycopy(children, i, c, i + 1, keys.length - i);
+            k[i] = id;
+            c[i] = new Prefix();
+            keys = k;
+            children = c;
+            return c[i];
+        }
+    }
+
+    // Used only during compilation
+    private List<int[]> nodes;
+    private List<Object> objs;
+    private List<TypeExpr> exprs;
+    private List<int[]> bodies;
+    private boolean hasNot;
+
+    /**
+     * Compile a list of rules
+     * @param rules The rules
+     * @throws IllegalArgumentException If a rule contains an expression that cannot be compiled
+     */
+    RuleAutomaton(List<Rule> rules) {
+        this.rules = rules.toArray(new Rule[rules.size()]);
+        int nRules = this.rules.length;
+        nodes = new ArrayList<int[]>();
+        objs = new ArrayList<Object>();
+        exprs = new ArrayList<TypeExpr>();
+        bodies = new ArrayList<int[]>();
+        initial = new int[nRules];
+        success = new int[nRules];
+        top = new int[nRules][];
+        entityNodes = new int[nRules][];
+        entities = new Entity[nRules][];
+        lookBack = new boolean[nRules];
+        List<int[]> ranges = new ArrayList<int[]>();
+        for(int r = 0; r < nRules; r++) {
+            List<TypeExpr> b = this.rules[r].body;
+            int from = nodes.size();
+            hasNot = false;
+            success[r] = emit(DUMMY, FAIL, 0, 0, null, null, null);
+            top[r] = new int[b.size()];
+            int s = success[r];
+            for(int i = b.size() - 1; i >= 0; i--) {
+                top[r][i] = s = compileExpr(b.get(i), s);
+            }
+            initial[r] = b.isEmpty() ? FAIL : s;
+            lookBack[r] = hasNot;
+            List<Integer> en = new ArrayList<Integer>();
+            List<Entity> ents = new ArrayList<Entity>();
+            for(int i = 0; i < b.size(); i++) {
+                if(b.get(i) instanceof Entity) {
+                    en.add(top[r][i]);
+                    ents.add((Entity)b.get(i));
+                }
+            }
+            entityNodes[r] = toArray(en);
+            entities[r] = ents.toArray(new Entity[ents.size()]);
+            ranges.add(new int[] { from, nodes.size() });
+        }
+        int n = nodes.size();
+        op = new int[n];
+        next = new int[n];
+        arg1 = new int[n];
+        arg2 = new int[n];
+        obj = objs.toArray();
+        body = bodies.toArray(new int[n][]);
+        inBody = new BitSet[n];
+        for(int i = 0; i < n; i++) {
+            int[] s = nodes.get(i);
+            op[i] = s[0];
+            next[i] = s[1];
+            arg1[i] = s[2];
+            arg2[i] = s[3];
+        }
+        // An entity has finished when it moves to a node not equal to any
+        // expression of its body
+        for(int[] range : ranges) {
+            for(int e = range[0]; e < range[1]; e++) {
+                if(op[e] != ENTITY)
+                    continue;
+                inBody[e] = new BitSet();
+                List<TypeExpr> b = ((Entity)obj[e]).body;
+                for(int i = range[0]; i < range[1]; i++) {
+                    if(b.contains(exprs.get(i)))
+                        inBody[e].set(i);
+                }
+            }
+        }
+        nodes = null;
+        objs = null;
+        exprs = null;
+        bodies = null;
+
+        List<Integer> unanch = new ArrayList<Integer>();
+        for(int r = 0; r < nRules; r++) {
+            if(initial[r] == FAIL)
+                continue;
+            Prefix node = prefixes;
+            if(!lookBack[r]) {
+                for(int s = initial[r]; op[s] == LITERAL && arg1[s] != TermDictionary.NONE; s = next[s]) {
+                    node = node.addChild(arg1[s]);
+                }
+            }
+            if(node == prefixes)
+                unanch.add(r);
+            else
+                node.starts.add(r);
+        }
+        unanchored = toArray(unanch);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] rv = new int[list.size()];
+        for(int i = 0; i < rv.length; i++) {
+            rv[i] = list.get(i);
+        }
+        return rv;
+    }
+
+    private int emit(int op, int next, int arg1, int arg2, Object obj, TypeExpr te, int[] body) {
+        nodes.add(new int[] { op, next, arg1, arg2 });
+        objs.add(obj);
+        exprs.add(te);
+        bodies.add(body);
+        return nodes.size() - 1;
+    }
+
+    private static int literalID(String literal) {
+        return literal.length() == 0 ? TermDictionary.NONE : TermDictionary.getID(literal);
+    }
+
+    // Compile a list used by an OPTIONAL or NOT node, followed by its own end node
+    private int compileInnerList(ListMatch lm) {
+        int end = emit(DUMMY, FAIL, 0, 0, null, null, null);
+        return emit(LIST, end, 0, 0, lm, lm, null);
+    }
+
+    private int compileExpr(TypeExpr te, int next) {
+        if(te instanceof Literal) {
+            String lit = ((Literal)te).literal.toLowerCase();
+            return emit(LITERAL, next, literalID(lit), 0, lit, te, null);
+        } else if(te instanceof CaseSensitiveLiteral) {
+            return emit(CASE_LITERAL, next, 0, 0, ((CaseSensitiveLiteral)te).literal, te, null);
+        } else if(te instanceof Regex) {
+            return emit(REGEX, next, 0, 0, Pattern.compile(((Regex)te).expression), te, null);
+        } else if(te instanceof Ortho) {
+            String[][] ex = ((Ortho)te).expressions;
+            Pattern[][] patterns = new Pattern[ex.length][];
+            for(int i = 0; i < ex.length; i++) {
+                patterns[i] = new Pattern[ex[i].length];
+                for(int j = 0; j < ex[i].length; j++) {
+                    patterns[i][j] = Pattern.compile(ex[i][j]);
+                }
+            }
+            return emit(ORTHO, next, 0, 0, patterns, te, null);
+        } else if(te instanceof PartialLiteral) {
+            PartialLiteral pl = (PartialLiteral)te;
+            return emit(PARTIAL, next, pl.part, 0, pl.partLiteral, te, null);
+        } else if(te instanceof BeginTag) {
+            BeginTag bt = (BeginTag)te;
+            return emit(BEGIN_TAG, next, 0, 0, new String[] { bt.entityType, bt.entityValue }, te, null);
+        } else if(te instanceof EndTag) {
+            return emit(END_TAG, next, 0, 0, ((EndTag)te).entityType, te, null);
+        } else if(te instanceof SkipWords) {
+            SkipWords sw = (SkipWords)te;
+            return emit(SKIP, next, sw.min, sw.max, Boolean.valueOf(sw.skipTags), te, null);
+        } else if(te instanceof ListMatch) {
+            return emit(LIST, next, 0, 0, te, te, null);
+        } else if(te instanceof OptionalLiteral) {
+            OptionalLiteral ol = (OptionalLiteral)te;
+            if(ol.literal != null)
+                return emit(OPTIONAL, next, literalID(ol.literal), FAIL, ol.literal, te, null);
+            else
+                return emit(OPTIONAL, next, TermDictionary.NONE, compileInnerList(ol.listMatcher), null, te, null);
+        } else if(te instanceof NegativeLiteral) {
+            NegativeLiteral nl = (NegativeLiteral)te;
+            hasNot = true;
+            if(nl.literal != null)
+                return emit(NOT, next, TermDictionary.NONE, FAIL, nl.literal, te, null);
+            else
+                return emit(NOT, next, TermDictionary.NONE, compileInnerList(nl.listMatcher), null, te, null);
+        } else if(te instanceof Entity) {
+            Entity e = (Entity)te;
+            int[] b = new int[e.body.size()];
+            int s = next;
+            for(int i = b.length - 1; i >= 0; i--) {
+                b[i] = s = compileExpr(e.body.get(i), s);
+            }
+            return emit(ENTITY, next, 0, 0, e, te, b);
+        } else {
+            throw new IllegalArgumentException("Cannot compile " + te);
+        }
+    }
+
+    /**
+     * Match the rules against a sentence
+     * @param in The sentence
+     * @param active The rules to match (or null for all rules)
+     * @param firstOnly Stop at the first match found
+     * @param context The working memory for the match
+     * @return For each rule, the list of matches in the same form as Rule.getMatch()
+     */
+    List<List<HashMap<Entity, SrlMatchRegion>>> match(MatchInput in, BitSet active, boolean firstOnly, MatchContext context) {
+        return match(in, active, firstOnly, context, null);
+    }
+
+    /**
+     * Match the rules against a sentence, counting the work done for each rule
+     * @param in The sentence
+     * @param active The rules to match (or null for all rules)
+     * @param firstOnly Stop at the first match found
+     * @param context The working memory for the match
+     * @param steps If not null, the number of steps (tokens read by a node) taken
+     * by each rule are added to this array
+     * @return For each rule, the list of matches in the same form as Rule.getMatch()
+     */
+    List<List<HashMap<Entity, SrlMatchRegion>>> match(MatchInput in, BitSet active, boolean firstOnly, MatchContext context, int[] steps) {
+        return new Simulation(in, context, steps).run(active, firstOnly);
+    }
+
+    /** The state of a single match */
+    private final class Simulation {
+        final MatchInput in;
+        final int n;
+        final MatchContext context;
+        final int[] steps;
+        final List<List<HashMap<Entity, SrlMatchRegion>>> rval;
+        // The state of the nodes, see MatchContext
+        final int[] count, depth, current, first, listLength, listBase, begin, end;
+        final int[][] listIds;
+        final StringBuffer[] value;
+        // The fork stack of the rule being matched
+        int[] forkNo, forkNode;
+        boolean[] forkUsed;
+        int forks;
+        // The look back stack of the rule being matched, as token indexes or SPACE
+        int[] lb;
+        int lbSize;
+        // The rule being matched
+        int rule;
+
+        Simulation(MatchInput in, MatchContext context, int[] steps) {
+            this.in = in;
+            this.n = in.size;
+            this.context = context;
+            this.steps = steps;
+            context.ensure(op.length, n);
+            count = context.count;
+            depth = context.depth;
+            current = context.current;
+            first = context.first;
+            listLength = context.listLength;
+            listBase = context.listBase;
+            listIds = context.listIds;
+            begin = context.begin;
+            end = context.end;
+            value = context.value;
+            forkNo = context.forkNo;
+            forkNode = context.forkNode;
+            forkUsed = context.forkUsed;
+            lb = context.lookBack;
+            rval = new ArrayList<List<HashMap<Entity, SrlMatchRegion>>>(rules.length);
+            for(int r = 0; r < rules.length; r++) {
+                rval.add(new LinkedList<HashMap<Entity, SrlMatchRegion>>());
+            }
+        }
+
+        List<List<HashMap<Entity, SrlMatchRegion>>> run(BitSet active, boolean firstOnly) {
+            // Find where the rules with a literal prefix start
+            int[][] starts = new int[rules.length][];
+            int[] nStarts = new int[rules.length];
+            if(prefixes.keys.length > 0) {
+                for(int k = 0; k < n; k++) {
+                    Prefix node = prefixes;
+                    for(int j = k; j < n && in.kind[j] == MatchInput.WORD; j++) {
+                        node = node.child(in.id[j]);
+                        if(node == null)
+                            break;
+                        for(int r : node.starts) {
+                            if(active != null && !active.get(r))
+                                continue;
+                            if(starts[r] == null)
+                                starts[r] = new int[n];
+                            starts[r][nStarts[r]++] = k;
+                        }
+                    }
+                }
+            }
+            for(int r = 0; r < rules.length; r++) {
+                if(active != null && !active.get(r))
+                    continue;
+                if(starts[r] == null && Arrays.binarySearch(unanchored, r) < 0)
+                    continue;
+                rule = r;
+                boolean found;
+                if(starts[r] != null)
+                    found = matchAt(starts[r], nStarts[r], firstOnly);
+                else
+                    found = matchAll(firstOnly);
+                if(found && firstOnly)
+                    break;
+            }
+            context.forkNo = forkNo;
+            context.forkNode = forkNode;
+            context.forkUsed = forkUsed;
+            context.lookBack = lb;
+            return rval;
+        }
+
+        // Try the rule at each of the given tokens
+        private boolean matchAt(int[] ks, int size, boolean firstOnly) {
+            for(int i = 0; i < size; i++) {
+                if(tryAt(ks[i], firstOnly) && firstOnly)
+                    return true;
+            }
+            return false;
+        }
+
+        // Try the rule at every token, keeping the look back stack if it is needed
+        private boolean matchAll(boolean firstOnly) {
+            boolean track = lookBack[rule];
+            lbSize = 0;
+            boolean read = false;
+            int prev = SPACE;
+            for(int t = 0; t < n; t++) {
+                if(track) {
+                    for(int w = 0; w < in.space[t]; w++) {
+                        if(read)
+                            push(prev);
+                        prev = SPACE;
+                        read = true;
+                    }
+                    if(read)
+                        push(prev);
+                    prev = t;
+                    read = true;
+                }
+                if(tryAt(t, firstOnly) && firstOnly)
+                    return true;
+            }
+            return false;
+        }
+
+        // The token number of a token (tags are numbered as the term before them)
+        private int no(int t) {
+            return in.kind[t] == MatchInput.WORD ? in.pos[t] : in.pos[t] - 1;
+        }
+
+        // Try the rule at token t, and again for each fork found. Returns true
+        // if there was a match
+        private boolean tryAt(int t, boolean firstOnly) {
+            final int r = rule;
+            final boolean track = lookBack[r];
+            // The forks are only explored if the sentence goes on after this token
+            final boolean last = t == n - 1 && in.space[n] == 0;
+            final int i = no(t);
+            final int ruleBegin = in.kind[t] == MatchInput.BEGIN ? i + 1 : i;
+            boolean matched = false;
+            forks = 0;
+            int explored = -1;
+            boolean again = false;
+            while(true) {
+                if(again) {
+                    // Each try takes the other way at the fork it explores, so
+                    // the fork is finished with after the try
+                    if(explored >= 0)
+                        forkUsed[explored] = true;
+                    while(forks > 0 && forkUsed[forks - 1]) {
+                        forks--;
+                    }
+                    if(forks == 0 || last)
+                        return matched;
+                    explored = forks - 1;
+                }
+                again = true;
+                resetRule(r);
+                int te = step(initial[r], t, i);
+                if(te == FAIL)
+                    continue;
+                if(te == success[r]) {
+                    found(r, ruleBegin, i + 1);
+                    matched = true;
+                    if(firstOnly)
+                        return true;
+                    continue;
+                }
+                boolean done = false;
+                int j = i + 1;
+                for(int u = t + 1; u < n && !done; u++) {
+                    j += in.space[u];
+                    if(track) {
+                        for(int w = 0; w < in.space[u]; w++) {
+                            push(SPACE);
+                        }
+                    }
+                    if(in.kind[u] != MatchInput.WORD)
+                        j--;
+                    if(te == FAIL)
+                        break;
+                    te = step(te, u, j++);
+                    if(te == success[r]) {
+                        found(r, ruleBegin, j);
+                        matched = true;
+                        if(firstOnly)
+                            return true;
+                        done = true;
+                    } else if(track) {
+                        push(u);
+                    }
+                }
+                if(!done) {
+                    j += in.space[n];
+                    if(track) {
+                        for(int w = 0; w < in.space[n]; w++) {
+                            push(SPACE);
+                        }
+                    }
+                }
+                if(track) {
+                    while(lbSize > i && lbSize > 0) {
+                        lbSize--;
+                    }
+                }
+                if(!done && te != FAIL && canEnd(te)) {
+                    if(op[te] == ENTITY)
+                        end[te] = j;
+                    found(r, ruleBegin, j);
+                    matched = true;
+                    if(firstOnly)
+                        return true;
+                }
+            }
+        }
+
+        // Record a match of the current state of the rule
+        private void found(int r, int ruleBegin, int ruleEnd) {
+            HashMap<Entity, SrlMatchRegion> match = new HashMap<Entity, SrlMatchRegion>();
+            for(int k = 0; k < entityNodes[r].length; k++) {
+                int e = entityNodes[r][k];
+                match.put(entities[r][k], new SrlMatchRegion(begin[e], end[e], value[e].toString(),
+                        rules[r], ruleBegin, ruleEnd));
+            }
+            rval.get(r).add(match);
+        }
+
+        private void push(int token) {
+            if(lbSize == lb.length) {
+                int[] l = new int[lb.length * 2];
+                System.arraycopy(lb, 0, l, 0, lbSize);
+                lb = l;
+            }
+            lb[lbSize++] = token;
+        }
+
+        private void resetRule(int r) {
+            for(int s : top[r]) {
+                reset(s);
+            }
+        }
+
+        private void reset(int s) {
+            switch(op[s]) {
+                case SKIP:
+                    count[s] = 0;
+                    depth[s] = 0;
+                    break;
+                case LIST:
+                    listLength[s] = -1;
+                    break;
+                case OPTIONAL:
+                    if(arg2[s] != FAIL)
+                        reset(arg2[s]);
+                    first[s] = 1;
+                    break;
+                case NOT:
+                    if(arg2[s] != FAIL)
+                        reset(arg2[s]);
+                    break;
+                case ENTITY:
+                    current[s] = body[s].length == 0 ? FAIL : body[s][0];
+                    begin[s] = end[s] = -1;
+                    value[s].setLength(0);
+                    for(int b : body[s]) {
+                        reset(b);
+                    }
+                    break;
+                default:
+            }
+        }
+
+        private boolean canEnd(int s) {
+            switch(op[s]) {
+                case DUMMY:
+                    return true;
+                case SKIP:
+                    return count[s] >= arg1[s] && canEnd(next[s]);
+                case OPTIONAL:
+                case NOT:
+                    return canEnd(next[s]);
+                case ENTITY:
+                    return ((Entity)obj[s]).ruleType == Rule.ENTITY_RULE && current[s] != FAIL && canEnd(current[s]);
+                default:
+                    return false;
+            }
+        }
+
+        // Is there a fork for node s at token number no, which is to be explored now
+        private boolean atFork(int no, int s) {
+            for(int f = forks - 1; f >= 0 && forkNo[f] >= no; f--) {
+                if(forkNo[f] == no && forkNode[f] == s)
+                    return forkUsed[f] || f == forks - 1;
+            }
+            return false;
+        }
+
+        // Mark the top fork as explored if it is for node s at token number no
+        private void split(int no, int s) {
+            if(forkNo[forks - 1] == no && forkNode[forks - 1] == s)
+                forkUsed[forks - 1] = true;
+        }
+
+        // Mark the fork for node s at token number no as explored
+        private void splitAt(int no, int s) {
+            for(int f = forks - 1; f >= 0; f--) {
+                if(forkNo[f] == no && forkNode[f] == s) {
+                    forkUsed[f] = true;
+                    return;
+                }
+            }
+        }
+
+        // May a fork be added at token number no
+        private boolean canFork(int no) {
+            return forks == 0 || forkNo[forks - 1] < no;
+        }
+
+        private void fork(int no, int s) {
+            if(forks == forkNo.length) {
+                int[] fn = new int[forks * 2];
+                int[] fs = new int[forks * 2];
+                boolean[] fu = new boolean[forks * 2];
+                System.arraycopy(forkNo, 0, fn, 0, forks);
+                System.arraycopy(forkNode, 0, fs, 0, forks);
+                System.arraycopy(forkUsed, 0, fu, 0, forks);
+                forkNo = fn;
+                forkNode = fs;
+                forkUsed = fu;
+            }
+            forkNo[forks] = no;
+            forkNode[forks] = s;
+            forkUsed[forks] = false;
+            forks++;
+        }
+
+        // Read token t (numbered no) at node s, returning the node to read the
+        // next token at, or FAIL
+        private int step(int s, int t, int no) {
+            if(steps != null)
+                steps[rule]++;
+            switch(op[s]) {
+                case DUMMY:
+                    if(next[s] == FAIL)
+                        return s;
+                    int te = step(next[s], t, no);
+                    if(te == FAIL)
+                        reset(next[s]);
+                    return te;
+                case SKIP:
+                    return skip(s, t, no);
+                case LIST:
+                    return list(s, in.id[t], no);
+                case OPTIONAL:
+                    return optional(s, t, no);
+                case NOT:
+                    return not(s, t, no);
+                case ENTITY:
+                    return entity(s, t, no);
+                default:
+                    return accepts(s, t) ? next[s] : FAIL;
+            }
+        }
+
+        private int skip(int s, int t, int no) {
+            boolean skipTags = ((Boolean)obj[s]).booleanValue();
+            if(in.kind[t] == MatchInput.BEGIN) {
+                if(!skipTags)
+                    return FAIL;
+                depth[s]++;
+            }
+            if(count[s] < arg1[s]) {
+                count[s]++;
+                return s;
+            }
+            if(atFork(no, s) && (!skipTags || in.kind[t] != MatchInput.END)) {
+                split(no, s);
+                if(count[s] < arg2[s]) {
+                    count[s]++;
+                    return s;
+                } else {
+                    return FAIL;
+                }
+            }
+            if(in.kind[t] == MatchInput.END) {
+                if(!skipTags) {
+                    int te = step(next[s], t, no);
+                    if(canFork(no) && te != success[rule])
+                        fork(no, s);
+                    return te;
+                }
+                depth[s]--;
+                if(depth[s] > 0)
+                    return s;
+            }
+            int te = step(next[s], t, no);
+            if(te != FAIL) {
+                if(canFork(no) && te != success[rule] && op[next[s]] != END_TAG)
+                    fork(no, s);
+                return te;
+            } else if(count[s] < arg2[s]) {
+                reset(next[s]);
+                count[s]++;
+                return s;
+            } else {
+                return FAIL;
+            }
+        }
+
+        // Read a term at a LIST node. The entries that may still be read are those
+        // starting with the first listBase[s] terms read
+        private int list(int s, int id, int no) {
+            int length = listLength[s];
+            if(length < 0) {
+                length = 0;
+                listBase[s] = 1;
+            }
+            if(listIds[s] == null || listIds[s].length == length) {
+                int[] ids = new int[Math.max(4, length * 2)];
+                if(length > 0)
+                    System.arraycopy(listIds[s], 0, ids, 0, length);
+                listIds[s] = ids;
+            }
+            listIds[s][length++] = id;
+            listLength[s] = length;
+            if(atFork(no, s)) {
+                split(no, s);
+                return s;
+            }
+            int found = find((ListMatch)obj[s], listIds[s], length, listBase[s]);
+            if((found & WordList.ENTRY) != 0) {
+                if((found & WordList.LATER) != 0 && canFork(no))
+                    fork(no, s);
+                return next[s];
+            }
+            listBase[s] = length;
+            return (found & WordList.LONGER) != 0 ? s : FAIL;
+        }
+
+        private int find(ListMatch lm, int[] ids, int length, int base) {
+            if(lm.set) {
+                WordListSet wls = WordListSet.getWordListSetByName(lm.wordListName);
+                if(wls == null)
+                    throw new IllegalArgumentException("Cannot find word list set %" + lm.wordListName);
+                int found = 0;
+                for(Map.Entry<String, WordList> entry : wls.getWordListSets()) {
+                    found |= find(entry.getKey(), ids, length, base);
+                }
+                return found;
+            } else {
+                return find(lm.wordListName, ids, length, base);
+            }
+        }
+
+        private int find(String name, int[] ids, int length, int base) {
+            WordList wl = WordListSet.getWordList(name);
+            if(wl == null)
+                throw new IllegalArgumentException("Cannot find word list @" + name);
+            return wl.find(ids, length, base);
+        }
+
+        private int optional(int s, int t, int no) {
+            int lm = arg2[s];
+            if(lm == FAIL) {
+                if(atFork(no, s)) {
+                    splitAt(no, s);
+                    return step(next[s], t, no);
+                }
+                if(sameTerm(s, t)) {
+                    if(step(next[s], t, no) != FAIL) {
+                        if(canFork(no) && next[s] != success[rule])
+                            fork(no, s);
+                    }
+                    reset(next[s]);
+                    return next[s];
+                } else {
+                    return step(next[s], t, no);
+                }
+            }
+            int te = list(lm, in.id[t], no);
+            if(te == FAIL)
+                return first[s] != 0 ? step(next[s], t, no) : FAIL;
+            if(te == lm) {
+                first[s] = 0;
+                return s;
+            }
+            return next[s];
+        }
+
+        private int not(int s, int t, int no) {
+            int lm = arg2[s];
+            if(lm == FAIL) {
+                if(lbSize > 0) {
+                    int k = lb[lbSize - 1];
+                    if((k == SPACE ? " " : in.lower[k]).equals(obj[s]))
+                        return FAIL;
+                }
+                return step(next[s], t, no);
+            }
+            for(int k = lbSize - 1; k >= 0; k--) {
+                int te = list(lm, lb[k] == SPACE ? TermDictionary.NONE : in.id[lb[k]], no);
+                if(te == FAIL)
+                    return step(next[s], t, no);
+                if(te != lm)
+                    return FAIL;
+            }
+            return step(next[s], t, no);
+        }
+
+        private int entity(int s, int t, int no) {
+            if(current[s] == FAIL)
+                return FAIL;
+            int c = current[s] = step(current[s], t, no);
+            if(c == FAIL)
+                return FAIL;
+            if(begin[s] < 0)
+                begin[s] = in.kind[t] == MatchInput.BEGIN ? no + 1 : no;
+            StringBuffer v = value[s];
+            if(!inBody[s].get(c) && c == next[s]) {
+                v.append(in.text[t]);
+                end[s] = no + 1;
+                if(TRAILING_SPACE.matcher(v).matches())
+                    v.deleteCharAt(v.length() - 1);
+                return c;
+            } else if(!inBody[s].get(c)) {
+                end[s] = no;
+                return c;
+            }
+            if(in.text[t].length() >= 1)
+                v.append(in.text[t]).append(op[c] == END_TAG ? "" : " ");
+            return s;
+        }
+
+        // Is the (lower case) term of token t the literal of node s
+        private boolean sameTerm(int s, int t) {
+            return arg1[s] != TermDictionary.NONE ? in.id[t] == arg1[s] : in.lower[t].equals(obj[s]);
+        }
+
+        // Does token t satisfy a node which reads a single token
+        private boolean accepts(int s, int t) {
+            switch(op[s]) {
+                case LITERAL:
+                    return sameTerm(s, t);
+                case CASE_LITERAL:
+                    return in.text[t].equals(obj[s]);
+                case REGEX:
+                    return ((Pattern)obj[s]).matcher(in.text[t]).matches();
+                case ORTHO:
+                    LOOP: for(Pattern[] block : (Pattern[][])obj[s]) {
+                        for(Pattern p : block) {
+                            if(!p.matcher(in.text[t]).matches())
+                                continue LOOP;
+                        }
+                        return true;
+                    }
+                    return false;
+                case PARTIAL:
+                    String part = (String)obj[s];
+                    if(in.text[t].length() < part.length())
+                        return false;
+                    if(arg1[s] == PartialLiteral.BEGIN)
+                        return in.lower[t].startsWith(part);
+                    else if(arg1[s] == PartialLiteral.END)
+                        return in.lower[t].endsWith(part);
+                    else
+                        return in.lower[t].contains(part);
+                case BEGIN_TAG:
+                    if(in.kind[t] != MatchInput.BEGIN)
+                        return false;
+                    String[] tag = (String[])obj[s];
+                    return in.tagType[t].equals(tag[0]) && in.tagValue[t].equals(tag[1]);
+                case END_TAG:
+                    return in.kind[t] == MatchInput.END && in.tagType[t].equals(obj[s]);
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.rule;
+
+import java.io.PrintWriter;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the work done by each rule of a compiled rule set, used to find
+ * the rules that make tagging or extraction slow. For each rule this counts
+ * <ul>
+ *   <li>The candidate sentences found by the rule's corpus query (only when matching a corpus)</li>
+ *   <li>The sentences the rule was matched against</li>
+ *   <li>The sentences the rule matched</li>
+ *   <li>The matches found</li>
+ *   <li>The steps taken by the rule, that is the tokens read by each of its expressions.
+ *       A rule such as <code>words(1,)</code> or one starting with a regex takes many
+ *       steps, and each fork (see RuleAutomaton) reads the tokens after it again</li>
+ *   <li>The time spent matching. All the rules are matched together, so the time for
+ *       each sentence is divided between the rules by the number of steps they took</li>
+ * </ul>
+ * The counters may be updated by several threads at once.
+ * @author John McCrae, National Institute of Informatics
+ * @see CompiledRuleSet#setProfile(RuleProfile)
+ */
+public class RuleProfile {
+    private final String[] ruleSetNames;
+    private final String[] ruleNames;
+    private final AtomicLongArray candidates, sentences, matchedSentences, matches, steps, time;
+
+    /**
+     * Create an empty profile for a set of rules
+     * @param rules The rules
+     */
+    public RuleProfile(CompiledRuleSet rules) {
+        int n = rules.size();
+        ruleSetNames = new String[n];
+        ruleNames = new String[n];
+        for(int i = 0; i < n; i++) {
+            ruleSetNames[i] = rules.getRuleSetName(i);
+            ruleNames[i] = rules.getRuleName(i);
+        }
+        candidates = new AtomicLongArray(n);
+        sentences = new AtomicLongArray(n);
+        matchedSentences = new AtomicLongArray(n);
+        matches = new AtomicLongArray(n);
+        steps = new AtomicLongArray(n);
+        time = new AtomicLongArray(n);
+    }
+
+    /** The number of rules */
+    public int size() {
+        return ruleNames.length;
+    }
+
+    /** The name of the rule set a rule belongs to
+     * @param i The rule number */
+    public String getRuleSetName(int i) {
+        return ruleSetNames[i];
+    }
+
+    /** The identifier of a rule
+     * @param i The rule number */
+    public String getRuleName(int i) {
+        return ruleNames[i];
+    }
+
+    /**
+     * Find a rule
+     * @param ruleSetName The name of the rule set
+     * @param ruleName The identifier of the rule
+     * @return The rule number, or -1 if the rule is not in this profile
+     */
+    public int indexOf(String ruleSetName, String ruleName) {
+        for(int i = 0; i < ruleNames.length; i++) {
+            if(ruleNames[i].equals(ruleName) && ruleSetNames[i].equals(ruleSetName))
+                return i;
+        }
+        return -1;
+    }
+
+    /** Count a candidate sentence found by a rule's corpus query
+     * @param i The rule number */
+    public void addCandidate(int i) {
+        candidates.incrementAndGet(i);
+    }
+
+    /** The number of candidate sentences found by a rule's corpus query
+     * @param i The rule number */
+    public long getCandidates(int i) {
+        return candidates.get(i);
+    }
+
+    /** The number of sentences a rule was matched against
+     * @param i The rule number */
+    public long getSentences(int i) {
+        return sentences.get(i);
+    }
+
+    /** The number of sentences a rule matched
+     * @param i The rule number */
+    public long getMatchedSentences(int i) {
+        return matchedSentences.get(i);
+    }
+
+    /** The number of matches found by a rule
+     * @param i The rule number */
+    public long getMatches(int i) {
+        return matches.get(i);
+    }
+
+    /** The number of steps taken through the automaton by a rule
+     * @param i The rule number */
+    public long getSteps(int i) {
+        return steps.get(i);
+    }
+
+    /** The time spent matching a rule (in nanoseconds)
+     * @param i The rule number */
+    public long getTime(int i) {
+        return time.get(i);
+    }
+
+    /**
+     * Count the matching of one sentence
+     * @param active The rules matched, or null if all rules were matched
+     * @param result The matches of each rule
+     * @param ruleSteps The steps taken by each rule
+     * @param elapsed The time taken to match the sentence (in nanoseconds)
+     */
+    void record(BitSet active, List<List<HashMap<Entity, SrlMatchRegion>>> result, int[] ruleSteps, long elapsed) {
+        long totalSteps = 0;
+        int activeRules = 0;
+        for(int i = 0; i < ruleNames.length; i++) {
+            if(active == null || active.get(i)) {
+                totalSteps += ruleSteps[i];
+                activeRules++;
+            }
+        }
+        for(int i = 0; i < ruleNames.length; i++) {
+            if(active != null && !active.get(i))
+                continue;
+            sentences.incrementAndGet(i);
+            int n = result.get(i).size();
+            if(n > 0) {
+                matchedSentences.incrementAndGet(i);
+                matches.addAndGet(i, n);
+            }
+            steps.addAndGet(i, ruleSteps[i]);
+            if(totalSteps > 0)
+                time.addAndGet(i, elapsed * ruleSteps[i] / totalSteps);
+            else
+                time.addAndGet(i, elapsed / activeRules);
+        }
+    }
+
+    /**
+     * Write one or more profiles as a table of comma separated values, with a header line
+     * @param out The stream to write to
+     * @param profiles The profiles
+     */
+    public static void writeCSV(PrintWriter out, RuleProfile... profiles) {
+        out.println("ruleSet,rule,candidates,sentences,matchedSentences,matches,steps,timeMs");
+        for(RuleProfile profile : profiles) {
+            for(int i = 0; i < profile.size(); i++) {
+                out.println(csv(profile.ruleSetNames[i]) + "," + csv(profile.ruleNames[i]) + "," +
+                        profile.getCandidates(i) + "," + profile.getSentences(i) + "," +
+                        profile.getMatchedSentences(i) + "," + profile.getMatches(i) + "," +
+                        profile.getSteps(i) + "," + millis(profile.getTime(i)));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Write one or more profiles as a JSON array with an object for each rule
+     * @param out The stream to write to
+     * @param profiles The profiles
+     */
+    public static void writeJSON(PrintWriter out, RuleProfile... profiles) {
+        out.println("[");
+        boolean first = true;
+        for(RuleProfile profile : profiles) {
+            for(int i = 0; i < profile.size(); i++) {
+                if(!first)
+                    out.println(",");
+                first = false;
+                out.print("  {\"ruleSet\": " + json(profile.ruleSetNames[i]) +
+                        ", \"rule\": " + json(profile.ruleNames[i]) +
+                        ", \"candidates\": " + profile.getCandidates(i) +
+                        ", \"sentences\": " + profile.getSentences(i) +
+                        ", \"matchedSentences\": " + profile.getMatchedSentences(i) +
+                        ", \"matches\": " + profile.getMatches(i) +
+                        ", \"steps\": " + profile.getSteps(i) +
+                        ", \"timeMs\": " + millis(profile.getTime(i)) + "}");
+            }
+        }
+        out.println();
+        out.println("]");
+        out.flush();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1e6);
+    }
+
+    private static String csv(String s) {
+        if(s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+            return s;
+        return "\"" + s.replaceAll("\"", "\"\"") + "\"";
+    }
+
+    private static String json(String s) {
+        StringBuffer sb = new StringBuffer("\"");
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if(c < 0x20)
+                sb.append(String.format("\\u%04x", (int)c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -69,6 +69,16 @@ public class RuleSet {
         return ps;
     }
 
+    /**
+     * Compile all the rules in this set into a single automaton. The compiled
+     * rules do not reflect later changes to this rule set
+     * @return The compiled rule set
+     * @throws IllegalArgumentException If a rule cannot be compiled
+     */
+    public CompiledRuleSet compile() {
+        return new CompiledRuleSet(this);
+    }
+
     /**
      * Write the rule set to a file
      * @param file The file to write to
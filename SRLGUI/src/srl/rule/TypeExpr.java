@@ -10,10 +10,7 @@
  */
 package srl.rule;
 
-import java.util.List;
 import srl.corpus.*;
-import org.apache.lucene.analysis.*;
-import java.util.Stack;
 
 /**
  * This interface represents a single matcher from the SRL language.
@@ -40,26 +37,6 @@ public interface TypeExpr {
      * @param query The query to be built on.
      */
     public void getQuery(SrlQuery query);
-    /** Query if this TypeExpr matches the current token 
-     * @param token A single token in the string
-     * @param tokenNo The current token number
-     * @param stack The stack of backtrace points, as pairs of token numbers & entities
-     * @param lookBackStack The stack representing previously matched tokens.
-     * @return The next TypeExpr to be checked against the string of tokens,
-     * some expressions will return themselves if they can match multiple tokens,
-     * <code>null</code> is returned if the match failed.
-     */
-    public TypeExpr matches(Token token, int tokenNo, Stack<MatchFork> stack, List<Token> lookBackStack);
-    /** At the end of a match reset all variables (eg skipwords number)
-     */
-    public void reset();
-    /** Add the next typeExpr in this rule. 
-     * @param te The next object
-     */
-    public void setNext(TypeExpr te);
-    /** Is it possible to progress from here to the end of the automata?
-     */
-    public boolean canEnd();
     /** Create a functional copy of this node. This is not used within SRL, it was
      * used in another project.
      */
@@ -16,7 +16,7 @@ package srl.tools.process;
  * @author John McCrae, National Institute of Informatics
  */
 public class StopSignal {
-    private boolean stop = false;
+    private volatile boolean stop = false;
     private boolean stopCompleted = false;
     
     /**
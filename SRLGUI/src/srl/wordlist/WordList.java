@@ -11,20 +11,67 @@
 package srl.wordlist;
 
 import java.util.TreeSet;
+import srl.tools.struct.CollectionChangeEvent;
+import srl.tools.struct.CollectionChangeListener;
 import srl.tools.struct.ListenableSet;
 
 /**
- * A word list. This file has no added functionality, it just provides a simple name
- * for word list objects.
+ * A word list. As well as the sorted set of entries, the word list keeps a trie
+ * of the term IDs of its entries, which is updated as entries are added and
+ * removed, so that the entries starting with a sequence of tokens can be found
+ * in one pass.
  *
  * @author John McCrae, National Institute of Informatics
  */
 public class WordList extends ListenableSet<WordListEntry> {
+    private final transient WordListTrie trie = new WordListTrie();
 
     /**
      * Create a word list.
      */
     public WordList() {
         super(new TreeSet<WordListEntry>());
+        addCollectionChangeListener(new CollectionChangeListener<WordListEntry>() {
+
+            public void collectionChanged(CollectionChangeEvent<WordListEntry> e) {
+                if(e.getOldVal() != null)
+                    trie.remove(e.getOldVal().getTermIDs());
+                if(e.getNewVal() != null)
+                    trie.add(e.getNewVal().getTermIDs());
+            }
+        });
+    }
+
+    /** Returned by find(): an entry of the list has exactly the words given */
+    public static final int ENTRY = WordListTrie.ENTRY;
+    /** Returned by find(): an entry of the list starts with the words given and is longer */
+    public static final int LONGER = WordListTrie.LONGER;
+    /** Returned by find(): an entry starting with the same first words as the words
+     * given comes after them in the list */
+    public static final int LATER = WordListTrie.LATER;
+
+    /**
+     * Look up a sequence of terms in this list. This takes time proportional to
+     * the length of the sequence, not the size of the list.
+     * @param ids The IDs of the lower case terms of the sequence
+     * @param length The number of terms in the sequence (the first terms of ids)
+     * @param base The number of first terms, which an entry must share with the
+     * sequence to be counted as LATER
+     * @return ENTRY, LONGER and LATER or'ed together, as appropriate
+     * @see srl.corpus.TermDictionary
+     */
+    public int find(int[] ids, int length, int base) {
+        return trie.find(ids, length, base);
+    }
+
+    /**
+     * Check if any entry of this list occurs in a sequence of terms. This takes
+     * time proportional to the length of the sequence (and the entries), not
+     * the size of the list.
+     * @param ids The IDs of the lower case terms of the sequence
+     * @see srl.corpus.TermDictionary
+     */
+    public boolean occursIn(int[] ids) {
+        return trie.occursIn(ids);
     }
 }
@@ -11,12 +11,14 @@
 package srl.wordlist;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import srl.tools.strings.Strings;
 import org.apache.lucene.analysis.Token;
 import org.apache.lucene.analysis.TokenStream;
 import srl.corpus.Processor;
+import srl.corpus.TermDictionary;
 
 /** The class wraps a single entry in a word list. These can
  * be instantied by calling getEntry
@@ -24,6 +26,7 @@ import srl.corpus.Processor;
 public class WordListEntry implements Comparable<WordListEntry> {
 
     private List<String> words;
+    private volatile int[] termIDs;
     //private String originalVal;
     private final boolean modifiable;
 
@@ -64,6 +67,28 @@ public class WordListEntry implements Comparable<WordListEntry> {
         if(!modifiable)
             throw new IllegalStateException("Cannot modify word list entry from tokenizer");
         words.add(s.toLowerCase());
+        termIDs = null;
+    }
+
+    /** Get the (lower case, tokenized) words of this entry */
+    public List<String> getWords() {
+        return Collections.unmodifiableList(words);
+    }
+
+    /** Get the IDs of the words of this entry in the term dictionary. The
+     * array must not be modified
+     * @see TermDictionary */
+    public int[] getTermIDs() {
+        int[] ids = termIDs;
+        if(ids == null) {
+            ids = new int[words.size()];
+            int i = 0;
+            for(String word : words) {
+                ids[i++] = TermDictionary.getID(word);
+            }
+            termIDs = ids;
+        }
+        return ids;
     }
 
     /** Check if this entry could match the parameter dependent on following
@@ -296,10 +296,13 @@ public class WordListSet {
     }
 
     /**
-     * Undoes a die() action
+     * Undoes a die() action, or registers the word lists again after reset()
      */
     public void restore() {
         allWordListSets.put(name, this);
         allWordLists.putAll(wordLists);
+        for(String s : wordLists.keySet()) {
+            allWordSets.put(s, this);
+        }
     }
 }
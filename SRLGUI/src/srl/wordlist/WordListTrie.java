@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+ */
+package srl.wordlist;
+
+import java.util.Arrays;
+import srl.corpus.TermDictionary;
+
+/**
+ * A trie over the term IDs of the entries of a word list. Nodes are numbered
+ * (the root is 0) and the transitions of all nodes are kept in a single open
+ * addressing hash table keyed by node and term ID, so following a token takes
+ * constant time however many entries the list has, and no object is needed per
+ * node. Entries are added and removed as the word list changes; nodes are not
+ * freed when entries are removed, they are just no longer marked as the end of
+ * an entry.
+ * <p>
+ * Entries may be added and removed while other threads match. The readers use a
+ * snapshot of the table and end of entry marks, and neither array is changed once
+ * it is in a snapshot: the first change after a snapshot is taken copies both.
+ * A new snapshot is only taken when a reader finds the trie has changed, so adding
+ * many entries at once does not copy the arrays each time.
+ * <p>
+ * To answer questions about the order of the entries (as in WordListEntry), each
+ * snapshot finds the last entry below each node the first time it is asked.
+ * @author John McCrae, National Institute of Informatics
+ * @see srl.corpus.TermDictionary
+ */
+final class WordListTrie {
+    private static final long EMPTY = -1L;
+
+    /** The transition table */
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+
+        Table(int size) {
+            keys = new long[size];
+            values = new int[size];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        Table(Table t) {
+            keys = t.keys.clone();
+            values = t.values.clone();
+        }
+    }
+
+    /** The trie as seen by the readers. None of the arrays are changed once published */
+    private static final class Snapshot {
+        final Table table;
+        final boolean[] terminal;
+        final int[] parent;
+        final int[] term;
+        final int nodes;
+        /** The last entry (in the order of WordListEntry) at or below each node
+         * other than the root, or -1 if there is none. Found when first needed */
+        private volatile int[] last;
+
+        Snapshot(Table table, boolean[] terminal, int[] parent, int[] term, int nodes) {
+            this.table = table;
+            this.terminal = terminal;
+            this.parent = parent;
+            this.term = term;
+            this.nodes = nodes;
+        }
+
+        int[] last() {
+            int[] l = last;
+            if(l == null) {
+                l = new int[nodes];
+                for(int i = 0; i < nodes; i++) {
+                    l[i] = terminal[i] ? i : -1;
+                }
+                // Children are always numbered after their parents. The root is
+                // not needed, as find() always starts with a word
+                for(int i = nodes - 1; i > 0; i--) {
+                    int p = parent[i];
+                    if(p != 0 && l[i] >= 0 && (l[p] < 0 || compare(l[i], l[p]) > 0))
+                        l[p] = l[i];
+                }
+                last = l;
+            }
+            return l;
+        }
+
+        // Compare the entries ending at two nodes, as WordListEntry.compareTo()
+        private int compare(int n1, int n2) {
+            int[] w1 = words(n1), w2 = words(n2);
+            for(int i = 0; i < w1.length && i < w2.length; i++) {
+                if(w1[i] != w2[i])
+                    return TermDictionary.getTerm(w1[i]).compareTo(TermDictionary.getTerm(w2[i]));
+            }
+            return w1.length - w2.length;
+        }
+
+        // Compare the entry ending at a node with a sequence of terms
+        int compare(int n, int[] ids, int length) {
+            int[] w = words(n);
+            for(int i = 0; i < w.length && i < length; i++) {
+                if(w[i] != ids[i]) {
+                    if(ids[i] == TermDictionary.NONE)
+                        return 0;
+                    return TermDictionary.getTerm(w[i]).compareTo(TermDictionary.getTerm(ids[i]));
+                }
+            }
+            return w.length - length;
+        }
+
+        private int[] words(int node) {
+            int depth = 0;
+            for(int n = node; n != 0; n = parent[n]) {
+                depth++;
+            }
+            int[] w = new int[depth];
+            for(int n = node; n != 0; n = parent[n]) {
+                w[--depth] = term[n];
+            }
+            return w;
+        }
+    }
+
+    /** Returned by find(): an entry has exactly the words given */
+    static final int ENTRY = 1;
+    /** Returned by find(): an entry starts with the words given and is longer */
+    static final int LONGER = 2;
+    /** Returned by find(): an entry starting with the same first words as the
+     * words given (see find()) comes after them */
+    static final int LATER = 4;
+
+    private Table table = new Table(16);
+    private int transitions = 0;
+    private int nodes = 1;
+    private boolean[] terminal = new boolean[16];
+    private int[] parent = new int[16];
+    private int[] term = new int[16];
+    /** True if table and terminal are in a snapshot, so must be copied before they are changed */
+    private boolean shared = false;
+    /** The current snapshot, or null if the trie has changed since it was taken */
+    private volatile Snapshot snapshot;
+
+    /** Add an entry
+     * @param ids The term IDs of the words of the entry */
+    synchronized void add(int[] ids) {
+        unshare();
+        int node = 0;
+        for(int id : ids) {
+            int c = child(table, node, id);
+            if(c < 0)
+                c = addChild(node, id);
+            node = c;
+        }
+        terminal[node] = true;
+        snapshot = null;
+    }
+
+    /** Remove an entry
+     * @param ids The term IDs of the words of the entry */
+    synchronized void remove(int[] ids) {
+        int node = 0;
+        for(int id : ids) {
+            node = child(table, node, id);
+            if(node < 0)
+                return;
+        }
+        unshare();
+        terminal[node] = false;
+        snapshot = null;
+    }
+
+    /**
+     * Look up a sequence of terms
+     * @param ids The term IDs of the sequence
+     * @param length The length of the sequence (the first terms of ids)
+     * @param base For LATER, the number of first terms the later entry must share
+     * with the sequence. LATER is only reported for sequences of terms in the
+     * TermDictionary
+     * @return ENTRY, LONGER and LATER or'ed together, as appropriate
+     */
+    int find(int[] ids, int length, int base) {
+        Snapshot s = snapshot();
+        int[] last = s.last();
+        int node = 0, rv = 0;
+        for(int i = 0; i < length && node >= 0; i++) {
+            node = child(s.table, node, ids[i]);
+            if(node >= 0 && i + 1 == base && last[node] >= 0 && s.compare(last[node], ids, length) > 0)
+                rv |= LATER;
+        }
+        if(node < 0)
+            return rv;
+        if(last[node] >= 0 && last[node] != node)
+            rv |= LONGER;
+        if(s.terminal[node])
+            rv |= ENTRY;
+        return rv;
+    }
+
+    /**
+     * Check if any entry occurs in a sequence of terms
+     * @param ids The term IDs of the sequence
+     */
+    boolean occursIn(int[] ids) {
+        Snapshot s = snapshot();
+        for(int start = 0; start < ids.length; start++) {
+            int node = 0;
+            for(int i = start; i < ids.length; i++) {
+                node = child(s.table, node, ids[i]);
+                if(node < 0)
+                    break;
+                if(s.terminal[node])
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = snapshot;
+        return s != null ? s : takeSnapshot();
+    }
+
+    private synchronized Snapshot takeSnapshot() {
+        if(snapshot == null) {
+            snapshot = new Snapshot(table, terminal, parent, term, nodes);
+            shared = true;
+        }
+        return snapshot;
+    }
+
+    private void unshare() {
+        if(shared) {
+            table = new Table(table);
+            terminal = terminal.clone();
+            parent = parent.clone();
+            term = term.clone();
+            shared = false;
+        }
+    }
+
+    private static int child(Table t, int node, int id) {
+        long key = key(node, id);
+        int mask = t.keys.length - 1;
+        for(int h = hash(key) & mask;; h = (h + 1) & mask) {
+            if(t.keys[h] == key)
+                return t.values[h];
+            if(t.keys[h] == EMPTY)
+                return -1;
+        }
+    }
+    private int addChild(int node, int id) {
+        if(nodes == terminal.length) {
+            boolean[] t = new boolean[nodes * 2];
+            int[] p = new int[nodes * 2];
+            int[] w = new int[nodes * 2];
+            System.arraycopy(terminal, 0, t, 0, nodes);
+            System.arraycopy(parent, 0, p, 0, nodes);
+            System.arraycopy(term, 0, w, 0, nodes);
+            terminal = t;
+            parent = p;
+            term = w;
+        }
+        parent[nodes] = node;
+        term[nodes] = id;
+        if(2 * (transitions + 1) > table.keys.length)
+            rehash();
+        put(table, key(node, id), nodes);
+        transitions++;
+        return nodes++;
+    }
+
+    private void rehash() {
+        Table old = table;
+        Table t = new Table(old.keys.length * 2);
+        for(int i = 0; i < old.keys.length; i++) {
+            if(old.keys[i] != EMPTY)
+                put(t, old.keys[i], old.values[i]);
+        }
+        table = t;
+    }
+
+    private static void put(Table t, long key, int value) {
+        int mask = t.keys.length - 1;
+        int h = hash(key) & mask;
+        while(t.keys[h] != EMPTY) {
+            h = (h + 1) & mask;
+        }
+        t.values[h] = value;
+        t.keys[h] = key;
+    }
+
+    private static long key(int node, int id) {
+        return ((long)node << 32) | (id & 0xffffffffL);
+    }
+
+    private static int hash(long key) {
+        return (int)((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
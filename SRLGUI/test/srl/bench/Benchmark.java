@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+*/
+package srl.bench;
+
+/**
+ * A single benchmark. The operation measured is run() which is called many times
+ * between setUp() and tearDown().
+ *
+ * @author John McCrae, National Institute of Informatics
+ * @see Benchmarks
+ */
+public abstract class Benchmark {
+    /** The name of the benchmark, e.g., "rule.literal" */
+    public final String name;
+
+    /**
+     * Create a benchmark
+     * @param name The name of the benchmark
+     */
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    /** Create the data for the benchmark, this is not measured */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Do the operation once.
+     * @return Some value computed from the result, so that the work cannot be
+     * optimized away
+     */
+    public abstract int run() throws Exception;
+
+    /** Free any resources used by the benchmark */
+    public void tearDown() throws Exception {
+    }
+}
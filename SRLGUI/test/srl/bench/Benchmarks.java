@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+*/
+package srl.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.regex.Pattern;
+import org.apache.lucene.analysis.Token;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.document.Document;
+import srl.corpus.Corpus;
+import srl.corpus.CorpusExtractor;
+import srl.corpus.Processor;
+import srl.corpus.SrlDocument;
+import srl.corpus.SrlQuery;
+import srl.corpus.StandardSplitter;
+import srl.rule.Rule;
+import srl.rule.RuleSet;
+import srl.tools.process.StopSignal;
+import srl.tools.struct.Pair;
+import srl.wordlist.WordListSet;
+import gnu.getopt.Getopt;
+
+/**
+ * Performance benchmarks for rule matching, sentence splitting, tokenization and
+ * corpus operations. All data is generated by SyntheticData from a fixed seed, so
+ * results are comparable between runs and machines. This is run as following
+ * <code>java -cp SRLGUI.jar:build/test/classes srl.bench.Benchmarks [-b regex] [-w warmups]
+ *              [-i iterations] [-t millis] [-s seed] [-o results.csv]</code>
+ * <ul>
+ *   <li> <code>-b</code>: Only run the benchmarks whose names contain a match of this expression </li>
+ *   <li> <code>-w</code>: The number of warm up iterations (default 3) </li>
+ *   <li> <code>-i</code>: The number of measured iterations (default 5) </li>
+ *   <li> <code>-t</code>: The length of each iteration in milliseconds (default 1000) </li>
+ *   <li> <code>-s</code>: The seed for the synthetic data (default 1) </li>
+ *   <li> <code>-o</code>: Also write the results as CSV to this file </li>
+ * </ul>
+ * Each iteration calls the benchmark's operation for the given time, and the
+ * mean and standard deviation of the time per operation over the measured
+ * iterations is reported.
+ *
+ * @author John McCrae, National Institute of Informatics
+ */
+public class Benchmarks {
+    /** Results of the operations, so they are not optimized away */
+    static volatile int sink;
+
+    private static final String BENCH_LIST = "benchcity";
+    private static final String BIG_LIST = "benchbig";
+
+    public static void main(String[] args) throws Exception {
+        Pattern filter = null;
+        int warmups = 3, iterations = 5;
+        long millis = 1000;
+        long seed = 1;
+        PrintStream csv = null;
+
+        Getopt opt = new Getopt("benchmarks", args, "b:w:i:t:s:o:");
+        int c;
+        while((c = opt.getopt()) != -1) {
+            switch(c) {
+                case 'b':
+                    filter = Pattern.compile(opt.getOptarg());
+                    break;
+                case 'w':
+                    warmups = Integer.parseInt(opt.getOptarg());
+                    break;
+                case 'i':
+                    iterations = Integer.parseInt(opt.getOptarg());
+                    break;
+                case 't':
+                    millis = Long.parseLong(opt.getOptarg());
+                    break;
+                case 's':
+                    seed = Long.parseLong(opt.getOptarg());
+                    break;
+                case 'o':
+                    csv = new PrintStream(new File(opt.getOptarg()));
+                    break;
+            }
+        }
+        if(csv != null)
+            csv.println("benchmark,ns_per_op,stddev_ns,ops_per_s,iterations");
+        System.out.println(String.format("%-40s %14s %12s %12s", "Benchmark", "ns/op", "+/-", "ops/s"));
+        for(Benchmark b : benchmarks(seed)) {
+            if(filter != null && !filter.matcher(b.name).find())
+                continue;
+            double[] result;
+            try {
+                result = measure(b, warmups, iterations, millis);
+            } catch(Exception x) {
+                System.out.println(String.format("%-40s skipped: %s", b.name, x.toString()));
+                continue;
+            }
+            System.out.println(String.format("%-40s %14.1f %12.1f %12.1f", b.name, result[0], result[1], 1e9 / result[0]));
+            if(csv != null)
+                csv.println(b.name + "," + result[0] + "," + result[1] + "," + (1e9 / result[0]) + "," + iterations);
+        }
+        if(csv != null)
+            csv.close();
+        System.exit(0);
+    }
+
+    /**
+     * Run a benchmark
+     * @param b The benchmark
+     * @param warmups The number of iterations to run before measuring
+     * @param iterations The number of iterations to measure
+     * @param millis The time to run each iteration for
+     * @return The mean and standard deviation of the time per operation (in ns)
+     * @throws Exception If the benchmark fails
+     */
+    public static double[] measure(Benchmark b, int warmups, int iterations, long millis) throws Exception {
+        b.setUp();
+        try {
+            for(int i = 0; i < warmups; i++) {
+                iteration(b, millis);
+            }
+            double[] times = new double[iterations];
+            double mean = 0;
+            for(int i = 0; i < iterations; i++) {
+                times[i] = iteration(b, millis);
+                mean += times[i] / iterations;
+            }
+            double var = 0;
+            for(int i = 0; i < iterations; i++) {
+                var += (times[i] - mean) * (times[i] - mean);
+            }
+            return new double[] { mean, iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0 };
+        } finally {
+            b.tearDown();
+        }
+    }
+
+    /** Run the operation for the given time and return the mean time per operation */
+    private static double iteration(Benchmark b, long millis) throws Exception {
+        long start = System.nanoTime();
+        long end = start + millis * 1000000;
+        long now;
+        long ops = 0;
+        int s = 0;
+        do {
+            s += b.run();
+            ops++;
+            now = System.nanoTime();
+        } while(now < end);
+        sink += s;
+        return (double)(now - start) / ops;
+    }
+
+    /**
+     * The benchmarks
+     * @param seed The seed for the synthetic data
+     */
+    public static List<Benchmark> benchmarks(final long seed) {
+        final Processor english = Processor.getProcessor("English");
+        List<Benchmark> rval = new ArrayList<Benchmark>();
+
+        // Rule.getMatch for each kind of expression
+        String[][] ruleKinds = {
+            { "literal", ":- \"%w\"" },
+            { "caseLiteral", ":- case(\"%n\")" },
+            { "optionalLiteral", ":- \"%w\" optional(\"%v\") \"%x\"" },
+            { "negativeLiteral", ":- not(\"%w\") \"%v\"" },
+            { "begins", ":- begins(\"%p\")" },
+            { "ends", ":- ends(\"%s\")" },
+            { "contains", ":- contains(\"%s\")" },
+            { "regex", ":- regex(\"[0-9]+\")" },
+            { "ortho", ":- ortho(\"1Lu\")" },
+            { "list", ":- list(@" + BENCH_LIST + ")" },
+            { "skipWords", ":- \"%w\" words(,3) \"%v\"" },
+            { "skipWordsUnbounded", ":- \"%w\" words(1,) ortho(\"1Lu\")" },
+            { "entity", ":- \"%w\" name(entity,X) { ortho(\"1Lu\") words(,2) }" }
+        };
+        for(final String[] kind : ruleKinds) {
+            rval.add(new Benchmark("rule." + kind[0]) {
+                SrlDocument[] sents;
+                Rule rule;
+                int i;
+
+                @Override
+                public void setUp() throws Exception {
+                    SyntheticData data = new SyntheticData(seed, 5000);
+                    setUpWordLists(data, english, 1000);
+                    sents = sentences(data, english, 500);
+                    String w = data.word(0), v = data.word(3), x = data.word(7);
+                    rule = Rule.ruleFromString(kind[1].replaceAll("%w", w).replaceAll("%v", v).
+                            replaceAll("%x", x).replaceAll("%n", data.name(0)).
+                            replaceAll("%p", v.substring(0, 2)).replaceAll("%s", x.substring(x.length() - 2)), Rule.ENTITY_RULE);
+                }
+
+                public int run() {
+                    i = (i + 1) % sents.length;
+                    return rule.getMatch(sents[i], false).size();
+                }
+            });
+        }
+
+        // ListMatch with a large word list
+        rval.add(new Benchmark("rule.list.large") {
+            SrlDocument[] sents;
+            Rule rule;
+            int i;
+
+            @Override
+            public void setUp() throws Exception {
+                SyntheticData data = new SyntheticData(seed, 50000);
+                setUpWordLists(data, english, 100000);
+                sents = sentences(data, english, 500);
+                rule = Rule.ruleFromString(":- name(entity,X) { list(@" + BIG_LIST + ") }", Rule.ENTITY_RULE);
+            }
+
+            public int run() {
+                i = (i + 1) % sents.length;
+                return rule.getMatch(sents[i], false).size();
+            }
+        });
+
+        // Sentence splitting
+        rval.add(new Benchmark("splitter.standard.string") {
+            String doc;
+            StandardSplitter splitter = new StandardSplitter();
+
+            @Override
+            public void setUp() {
+                doc = new SyntheticData(seed, 5000).document(50);
+            }
+
+            public int run() {
+                return splitter.split(doc, "doc").size();
+            }
+        });
+        rval.add(new Benchmark("splitter.standard.tokens") {
+            List<Token> doc;
+            StandardSplitter splitter = new StandardSplitter();
+
+            @Override
+            public void setUp() {
+                doc = tokenize(new SrlDocument("doc", new SyntheticData(seed, 5000).document(50), english));
+            }
+
+            public int run() {
+                return splitter.split(doc, "doc").size();
+            }
+        });
+
+        // The tokenizer of each processor
+        Set<String> tokenizers = new HashSet<String>();
+        for(final String lang : Processor.langs) {
+            final Processor processor = Processor.getProcessor(lang);
+            TokenStream ts = processor.getTokenStream("");
+            if(ts == null || !tokenizers.add(ts.getClass().getName()))
+                continue;
+            rval.add(new Benchmark("tokenizer." + lang) {
+                String doc;
+
+                @Override
+                public void setUp() {
+                    SyntheticData data = new SyntheticData(seed, 5000);
+                    doc = lang.equals("Chinese") || lang.equals("Japanese") || lang.equals("Thai")
+                            ? data.cjkDocument(50) : data.document(50);
+                }
+
+                public int run() throws IOException {
+                    TokenStream stream = processor.getTokenStream(doc);
+                    int n = 0;
+                    while(stream.next() != null) {
+                        n++;
+                    }
+                    return n;
+                }
+            });
+        }
+
+        // Corpus operations
+        rval.add(new CorpusBenchmark("corpus.addDoc", seed, 0) {
+            int n;
+
+            public int run() throws Exception {
+                corpus.addDoc("new" + (n++), data.document(5), false);
+                return n;
+            }
+        });
+        rval.add(new CorpusBenchmark("corpus.query.string", seed, 500) {
+            int i;
+
+            public int run() throws Exception {
+                i = (i + 1) % 100;
+                return corpus.query(data.word(i)).length();
+            }
+        });
+        rval.add(new CorpusBenchmark("corpus.query.srl", seed, 500) {
+            SrlQuery[] queries;
+            int i;
+
+            @Override
+            public void setUp() throws Exception {
+                super.setUp();
+                queries = new SrlQuery[100];
+                for(int j = 0; j < queries.length; j++) {
+                    queries[j] = Rule.ruleFromString(":- \"" + data.word(j) + "\" words(,2) ortho(\"1Lu\")",
+                            Rule.ENTITY_RULE).getCorpusQuery();
+                }
+            }
+
+            public int run() throws Exception {
+                i = (i + 1) % queries.length;
+                final int[] hits = new int[1];
+                corpus.query(queries[i], new Corpus.QueryHit() {
+                    public void hit(Document d, StopSignal signal) {
+                        hits[0]++;
+                    }
+                });
+                return hits[0];
+            }
+        });
+
+        // Tagging sentences with a rule set
+        rval.add(new Benchmark("extractor.tagSentences") {
+            List<SrlDocument> sents;
+            List<RuleSet> ruleSets;
+
+            @Override
+            public void setUp() throws Exception {
+                SyntheticData data = new SyntheticData(seed, 5000);
+                setUpWordLists(data, english, 1000);
+                sents = Arrays.asList(sentences(data, english, 50));
+                RuleSet rs = new RuleSet(Rule.ENTITY_RULE, "bench");
+                int i = 0;
+                for(String rule : data.entityRules(60, BENCH_LIST)) {
+                    rs.rules.add(new Pair<String, Rule>("Rule" + (i++), Rule.ruleFromString(rule, Rule.ENTITY_RULE)));
+                }
+                ruleSets = Collections.singletonList(rs);
+            }
+
+            public int run() throws IOException {
+                return CorpusExtractor.tagSentences(sents, ruleSets, english).size();
+            }
+        });
+        return rval;
+    }
+
+    /** Create the word lists used by the rules */
+    static void setUpWordLists(SyntheticData data, Processor processor, int size) {
+        WordListSet.reset();
+        WordListSet wl = new WordListSet("bench", processor);
+        wl.addList(BENCH_LIST);
+        WordListSet.addToList(BENCH_LIST, data.wordListEntries(size));
+        wl.addList(BIG_LIST);
+        WordListSet.addToList(BIG_LIST, data.wordListEntries(size));
+    }
+
+    /** Generate sentences, which are tokenized before they are returned */
+    static SrlDocument[] sentences(SyntheticData data, Processor processor, int n) {
+        SrlDocument[] sents = new SrlDocument[n];
+        for(int i = 0; i < n; i++) {
+            sents[i] = new SrlDocument("sent" + i, data.sentence(), processor);
+            tokenize(sents[i]);
+        }
+        return sents;
+    }
+
+    /** Read all the tokens of a document, so they are not read while it is measured */
+    static List<Token> tokenize(SrlDocument doc) {
+        List<Token> tokens = new ArrayList<Token>();
+        for(Token tk : doc) {
+            tokens.add(tk);
+        }
+        return tokens;
+    }
+
+    /** A benchmark on a corpus in a temporary directory */
+    private static abstract class CorpusBenchmark extends Benchmark {
+        final long seed;
+        final int docs;
+        SyntheticData data;
+        Corpus corpus;
+        File dir;
+
+        CorpusBenchmark(String name, long seed, int docs) {
+            super(name);
+            this.seed = seed;
+            this.docs = docs;
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            data = new SyntheticData(seed, 5000);
+            dir = File.createTempFile("srlbench", "");
+            dir.delete();
+            corpus = Corpus.openCorpus(dir, Processor.getProcessor("English"), true);
+            List<Pair<String, String>> d = new ArrayList<Pair<String, String>>();
+            for(int i = 0; i < docs; i++) {
+                d.add(new Pair<String, String>("doc" + i, data.document(10)));
+            }
+            corpus.addDocs(d, false, false);
+            corpus.closeIndex(0);
+        }
+
+        @Override
+        public void tearDown() throws Exception {
+            corpus.closeCorpus();
+            deleteDir(dir);
+        }
+    }
+
+    private static boolean deleteDir(File dir) {
+        if (dir.isDirectory()) {
+            for (String child : dir.list()) {
+                if (!deleteDir(new File(dir, child))) {
+                    return false;
+                }
+            }
+        }
+        return dir.delete();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2008, National Institute of Informatics
+ *
+ * This file is part of SRL, and is free
+ * software, licenced under the GNU Library General Public License,
+ * Version 2, June 1991.
+ *
+ * A copy of this licence is included in the distribution in the file
+ * licence.html, and is also available at http://www.fsf.org/licensing/licenses/info/GPLv2.html.
+*/
+package srl.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates text, word lists and rules for the benchmarks. The words are made of
+ * random syllables and are used with a skewed frequency, so that there are a few
+ * very common words and many rare ones as in real text. Everything is generated
+ * from a seed, so the same seed always gives the same data.
+ *
+ * @author John McCrae, National Institute of Informatics
+ */
+public class SyntheticData {
+    private static final String[] consonants = { "b", "d", "f", "g", "k", "l", "m", "n", "p", "r", "s", "t", "v", "z" };
+    private static final String[] vowels = { "a", "e", "i", "o", "u" };
+    private static final String[] abbreviations = { "Dr", "Mr", "Prof", "St" };
+
+    private final Random random;
+    private final String[] vocabulary;
+    private final String[] names;
+
+    /**
+     * Create a generator
+     * @param seed The random seed
+     * @param vocabularySize The number of distinct lower case words
+     */
+    public SyntheticData(long seed, int vocabularySize) {
+        random = new Random(seed);
+        vocabulary = words(vocabularySize);
+        names = words(vocabularySize / 10 + 1);
+        for(int i = 0; i < names.length; i++) {
+            names[i] = Character.toUpperCase(names[i].charAt(0)) + names[i].substring(1);
+        }
+    }
+
+    private String[] words(int n) {
+        Set<String> words = new LinkedHashSet<String>();
+        while(words.size() < n) {
+            StringBuffer word = new StringBuffer();
+            int syllables = 1 + random.nextInt(3);
+            for(int i = 0; i < syllables; i++) {
+                word.append(consonants[random.nextInt(consonants.length)]);
+                word.append(vowels[random.nextInt(vowels.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words.toArray(new String[n]);
+    }
+
+    /** Pick an index, favouring low indexes */
+    private int skewed(int n) {
+        double r = random.nextDouble();
+        return (int)(n * r * r * r);
+    }
+
+    /** A lower case word. Earlier words in the vocabulary are more frequent */
+    public String word() {
+        return vocabulary[skewed(vocabulary.length)];
+    }
+
+    /** The i-th most common word */
+    public String word(int i) {
+        return vocabulary[i];
+    }
+
+    /** A capitalized name */
+    public String name() {
+        return names[skewed(names.length)];
+    }
+
+    /** The i-th most common name */
+    public String name(int i) {
+        return names[i];
+    }
+
+    /** A sentence of 5 to 24 tokens with some names, numbers and abbreviations */
+    public String sentence() {
+        StringBuffer sentence = new StringBuffer();
+        int length = 5 + random.nextInt(20);
+        for(int i = 0; i < length; i++) {
+            if(i > 0)
+                sentence.append(" ");
+            double r = random.nextDouble();
+            if(r < 0.1) {
+                sentence.append(name());
+            } else if(r < 0.13) {
+                sentence.append(random.nextInt(2000));
+            } else if(r < 0.14) {
+                sentence.append(abbreviations[random.nextInt(abbreviations.length)]).append(". ").append(name());
+            } else if(r < 0.2 && i > 0 && i < length - 1) {
+                sentence.append(word()).append(",");
+            } else if(i == 0) {
+                String w = word();
+                sentence.append(Character.toUpperCase(w.charAt(0))).append(w.substring(1));
+            } else {
+                sentence.append(word());
+            }
+        }
+        sentence.append(random.nextInt(10) == 0 ? "?" : ".");
+        return sentence.toString();
+    }
+
+    /** A sentence of 10 to 39 Japanese kana and CJK ideographs */
+    public String cjkSentence() {
+        StringBuffer sentence = new StringBuffer();
+        int length = 10 + random.nextInt(30);
+        for(int i = 0; i < length; i++) {
+            if(random.nextBoolean())
+                sentence.append((char)(0x3042 + random.nextInt(80)));
+            else
+                sentence.append((char)(0x4e00 + skewed(500)));
+        }
+        sentence.append('\u3002');
+        return sentence.toString();
+    }
+
+    /** A document of several sentences, with a paragraph break every few sentences */
+    public String document(int sentences) {
+        StringBuffer doc = new StringBuffer();
+        for(int i = 0; i < sentences; i++) {
+            doc.append(sentence());
+            doc.append(random.nextInt(5) == 0 ? "\n\n" : " ");
+        }
+        return doc.toString();
+    }
+
+    /** A document of several CJK sentences */
+    public String cjkDocument(int sentences) {
+        StringBuffer doc = new StringBuffer();
+        for(int i = 0; i < sentences; i++) {
+            doc.append(cjkSentence());
+        }
+        return doc.toString();
+    }
+
+    /**
+     * Generate word list entries of one to three words
+     * @param n The number of entries
+     */
+    public List<String> wordListEntries(int n) {
+        Set<String> entries = new LinkedHashSet<String>();
+        while(entries.size() < n) {
+            StringBuffer entry = new StringBuffer(random.nextBoolean() ? name().toLowerCase() : word());
+            int words = random.nextInt(3);
+            for(int i = 0; i < words; i++) {
+                entry.append(" ").append(word());
+            }
+            entries.add(entry.toString());
+        }
+        return new ArrayList<String>(entries);
+    }
+
+    /**
+     * Generate entity rules of various kinds, using the words of the vocabulary
+     * @param n The number of rules
+     * @param wordList A word list for the rules to use
+     */
+    public List<String> entityRules(int n, String wordList) {
+        List<String> rules = new ArrayList<String>();
+        for(int i = 0; i < n; i++) {
+            String w = word(random.nextInt(50)), w2 = word();
+            switch(i % 6) {
+                case 0:
+                    rules.add(":- \"" + w + "\" name(entity" + i + ",X) { ortho(\"1Lu\") }");
+                    break;
+                case 1:
+                    rules.add(":- name(entity" + i + ",X) { list(@" + wordList + ") }");
+                    break;
+                case 2:
+                    rules.add(":- \"" + w + "\" words(,2) name(entity" + i + ",X) { regex(\"[0-9]+\") }");
+                    break;
+                case 3:
+                    rules.add(":- name(entity" + i + ",X) { \"" + w + "\" optional(\"" + w2 + "\") ortho(\"1Lu\") }");
+                    break;
+                case 4:
+                    rules.add(":- not(\"" + w + "\") name(entity" + i + ",X) { begins(\"" + w2.substring(0, 2) + "\") ortho(\"1Lu\") }");
+                    break;
+                default:
+                    rules.add(":- name(entity" + i + ",X) { case(\"" + name(random.nextInt(20)) + "\") }");
+                    break;
+            }
+        }
+        return rules;
+    }
+}
@@ -23,6 +23,7 @@ import static org.junit.Assert.*;
 import srl.corpus.CorpusExtractor.Overlap;
 import srl.rule.Entity;
 import srl.rule.Rule;
+import srl.rule.RuleProfile;
 import srl.rule.RuleSet;
 import srl.rule.SrlMatchRegion;
 import srl.test.SRLGUITestSuite;
@@ -81,6 +82,37 @@ public class CorpusExtractorTest {
         assertEquals(3,matches);
     }
 
+    /**
+     * Test of tagCorpus method, of class CorpusExtractor, with several threads.
+     */
+    @Test
+    public void testTagCorpus_threads() throws Exception {
+        System.out.println("tagCorpus");
+        CorpusExtractor parallel = new CorpusExtractor(SRLGUITestSuite.proj.corpus, 4);
+        Collection<Overlap> overlaps = new LinkedList<Overlap>();
+        parallel.setProfiling(true);
+        parallel.tagCorpus(SRLGUITestSuite.proj.entityRulesets, overlaps, true);
+        RuleProfile profile = parallel.getProfile();
+        long profileMatches = 0;
+        for(int i = 0; i < profile.size(); i++) {
+            // Each rule is matched against every sentence its query found
+            assertEquals(profile.getCandidates(i), profile.getSentences(i));
+            profileMatches += profile.getMatches(i);
+        }
+        assertTrue(profileMatches >= 3);
+        SrlQuery query = new SrlQuery();
+        query.query.delete(0, 1);
+        query.entities.add(new Pair<String,String>("name","location"));
+        matches = 0;
+        SRLGUITestSuite.proj.corpus.query(query, new Corpus.QueryHit() {
+
+            public void hit(Document d, StopSignal signal) {
+                matches++;
+            }
+        });
+        assertEquals(3,matches);
+    }
+
     /**
      * Test of tagCorpus method, of class CorpusExtractor.
      */
@@ -162,6 +194,22 @@ public class CorpusExtractorTest {
                 SRLGUITestSuite.proj.corpus.getDocTemplateExtractions("testDoc2").get(3));
     }
 
+    /**
+     * Test of extractTemplates method, of class CorpusExtractor, with several threads.
+     */
+    @Test
+    public void testExtractTemplates_threads() throws Exception {
+        System.out.println("extractTemplates");
+        LinkedList<RuleSet> ruleSets = new LinkedList<RuleSet>();
+        ruleSets.add(new RuleSet(Rule.TEMPLATE_RULE, "rules"));
+        ruleSets.get(0).rules.add(new Pair<String,Rule>("R1", Rule.ruleFromString("location(X) :- name(location,X)", Rule.TEMPLATE_RULE)));
+        instance.extractTemplates(ruleSets,true);
+        List<String> expResult = SRLGUITestSuite.proj.corpus.getDocTemplateExtractions("testDoc2");
+        CorpusExtractor parallel = new CorpusExtractor(SRLGUITestSuite.proj.corpus, 4);
+        parallel.extractTemplates(ruleSets,true);
+        assertEquals(expResult, SRLGUITestSuite.proj.corpus.getDocTemplateExtractions("testDoc2"));
+    }
+
     /**
      * Test of extractTemplates method, of class CorpusExtractor.
      */
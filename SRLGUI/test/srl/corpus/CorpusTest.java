@@ -12,8 +12,12 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import srl.tools.process.StopSignal;
+import srl.tools.struct.Pair;
 import srl.tools.struct.ListenableSet;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.search.Hits;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -24,6 +28,7 @@ import static org.junit.Assert.*;
 import srl.corpus.Corpus.QueryHit;
 import srl.corpus.Processor;
 import srl.project.SrlProject;
+import srl.rule.Rule;
 import srl.test.SRLGUITestSuite;
 import srl.wordlist.WordListEntry;
 import srl.wordlist.WordListSet;
@@ -130,6 +135,50 @@ public class CorpusTest {
         instance.closeIndex(lockID);
     }
 
+    /**
+     * Test of acquireReader method, of class Corpus. Readers should not be blocked by
+     * the writer and should see the corpus as of the last commit
+     */
+    @Test
+    public void testAcquireReader() throws Exception {
+        System.out.println("acquireReader");
+        final Corpus instance = SRLGUITestSuite.proj.corpus;
+        IndexReader before = instance.acquireReader();
+        int n = before.numDocs();
+        long id = instance.reopenIndex(true);
+        final IndexReader[] during = new IndexReader[1];
+        final Exception[] error = new Exception[1];
+        try {
+            instance.addContext("snapshot 0", "snapshot test", null, null, null);
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        during[0] = instance.acquireReader();
+                        instance.reopenIndex(false);
+                    } catch(Exception x) {
+                        error[0] = x;
+                    }
+                }
+            };
+            t.start();
+            t.join(10000);
+            assertEquals(n, during[0].numDocs());
+            assertTrue(error[0] instanceof CorpusConcurrencyException);
+        } finally {
+            instance.closeIndex(id);
+        }
+        IndexReader after = instance.acquireReader();
+        assertEquals(n + 1, after.numDocs());
+        assertEquals(n, before.numDocs());
+        instance.releaseReader(before);
+        instance.releaseReader(during[0]);
+        instance.releaseReader(after);
+        id = instance.reopenIndex(true);
+        instance.indexWriter.deleteDocuments(new Term("name", "snapshot"));
+        instance.closeIndex(id);
+    }
+
     /**
      * Test of setUseRAM method, of class Corpus.
      */
@@ -178,6 +227,36 @@ public class CorpusTest {
         instance.addDoc(name2, contents2, false, true);
     }
 
+    /**
+     * Test of addDocs method, of class Corpus.
+     */
+    @Test
+    public void testAddDocs() throws Exception {
+        System.out.println("addDocs");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        List<Pair<String, String>> docs = new LinkedList<Pair<String, String>>();
+        docs.add(new Pair<String, String>("bulkDoc", "This is a <name cl=\"entity\"> test </name> document"));
+        docs.add(new Pair<String, String>("bulkDoc2", genevaDoc));
+        instance.addDocs(docs, false, 2, true);
+        assertTrue(instance.containsDoc("bulkdoc"));
+        assertEquals(genevaDoc, instance.getPlainDocContents("bulkDoc2"));
+        assertEquals(9, instance.getDocSentences("bulkDoc2").size());
+        docs.clear();
+        docs.add(new Pair<String, String>("bulkDoc3", genevaDoc));
+        docs.add(new Pair<String, String>("bulkDoc", genevaDoc));
+        try {
+            instance.addDocs(docs, false, 2, true);
+            fail("Duplicate document added");
+        } catch(IllegalArgumentException x) {
+        }
+        assertFalse(instance.containsDoc("bulkdoc3"));
+        IndexReader reader = instance.acquireReader();
+        assertEquals(0, reader.docFreq(new Term("name", "bulkdoc3")));
+        instance.releaseReader(reader);
+        instance.removeDoc("bulkDoc", true);
+        instance.removeDoc("bulkDoc2", true);
+    }
+
     /**
      * Test of clearTemplateExtractions method, of class Corpus.
      */
@@ -220,7 +299,24 @@ public class CorpusTest {
     @Test
     public void testGetDoc() throws Exception {
         System.out.println("getDoc");
-        System.out.println(" Test elsewhere");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        assertEquals(genevaDoc, instance.getDoc("testdoc2").getField("originalContents").stringValue());
+        IndexReader reader = instance.acquireReader();
+        try {
+            Document d = instance.getDoc(reader, "testdoc2 1");
+            assertEquals("testdoc2 1", d.getField("name").stringValue());
+            assertEquals(instance.getDocSentences("testDoc2").get(1), d.getField("contents").stringValue());
+            assertNull(instance.getDoc(reader, "testdoc2 100"));
+            assertNull(instance.getDoc(reader, "testdoc3"));
+        } finally {
+            instance.releaseReader(reader);
+        }
+        // A document named as a context number only contains its own contexts
+        instance.addDoc("1", "Geneva is a city.", true);
+        assertEquals(1, instance.getDocSentences("1").size());
+        instance.removeDoc("1", true);
+        assertEquals(9, instance.getDocSentences("testDoc2").size());
+        assertNull(instance.getDoc("1"));
     }
 
     /**
@@ -229,7 +325,11 @@ public class CorpusTest {
     @Test
     public void testGetDocByUID() throws Exception {
         System.out.println("getDocByUID");
-        System.out.println(" Test elsewhere");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        Document d = instance.getDoc("testdoc2");
+        Document result = instance.getDocByUID(d.getField("uid").stringValue());
+        assertEquals("testdoc2", result.getField("name").stringValue());
+        assertNull(instance.getDocByUID("0"));
     }
 
     /**
@@ -271,6 +371,86 @@ public class CorpusTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of getDocTokenizedSentences method, of class Corpus.
+     */
+    @Test
+    public void testGetDocTokenizedSentences() throws Exception {
+        System.out.println("getDocTokenizedSentences");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        List<String> sents = instance.getDocSentences("testDoc2");
+        List<TokenArrayDocument> result = instance.getDocTokenizedSentences("testDoc2");
+        assertEquals(sents.size(), result.size());
+        for(int i = 0; i < sents.size(); i++) {
+            assertEquals(new SrlDocument("", sents.get(i), instance.getProcessor()).toString(), result.get(i).toString());
+            assertEquals("testdoc2 " + i, result.get(i).getName());
+        }
+        List<TokenArrayDocument> result2 = instance.getDocTokenizedSentences("testDoc2");
+        for(int i = 0; i < result.size(); i++) {
+            assertSame(result.get(i), result2.get(i));
+        }
+    }
+
+    /**
+     * Test of getDocTokenizedTaggedContents method, of class Corpus.
+     */
+    @Test
+    public void testGetDocTokenizedTaggedContents() throws Exception {
+        System.out.println("getDocTokenizedTaggedContents");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        List<TokenArrayDocument> result = instance.getDocTokenizedTaggedContents("testDoc");
+        assertEquals(1, result.size());
+        assertEquals("This is a <name cl=\"entity\"> test </name> document", result.get(0).toStringTagged());
+        assertNotSame(result.get(0), instance.getDocTokenizedSentences("testDoc").get(0));
+    }
+
+    /**
+     * Test of getTokenizedContext method, of class Corpus.
+     */
+    @Test
+    public void testGetTokenizedContext() throws Exception {
+        System.out.println("getTokenizedContext");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        Document d = instance.getDoc("testdoc2 1");
+        String uid = d.getField("uid").stringValue();
+        TokenArrayDocument result = instance.getTokenizedContext(d, false);
+        assertSame(result, instance.getTokenizedContext(d, false));
+        assertSame(result, instance.getTokenCache().get(uid, false));
+        // Changing the document removes its contexts from the cache
+        instance.updateDoc("testDoc2", genevaDoc + " This is a new sentence.", true);
+        assertNull(instance.getTokenCache().get(uid, false));
+        assertEquals(10, instance.getDocTokenizedSentences("testDoc2").size());
+        instance.updateDoc("testDoc2", genevaDoc, true);
+        assertEquals(9, instance.getDocTokenizedSentences("testDoc2").size());
+    }
+
+    /**
+     * Test that the tagged contents of an untagged document are read from its contents
+     */
+    @Test
+    public void testTaggedContents() throws Exception {
+        System.out.println("taggedContents");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        assertEquals(instance.getDocSentences("testDoc2"), instance.getDocTaggedContents("testDoc2"));
+        IndexReader reader = instance.acquireReader();
+        try {
+            TermDocs td = reader.termDocs(new Term("name", "testdoc2"));
+            int contexts = 0;
+            while(td.next()) {
+                Document d = reader.document(td.doc());
+                if(d.getField("contents") != null) {
+                    assertNull(d.getField("taggedContents"));
+                    assertEquals(d.getField("contents").stringValue(), Corpus.taggedContents(d));
+                    contexts++;
+                }
+            }
+            td.close();
+            assertEquals(9, contexts);
+        } finally {
+            instance.releaseReader(reader);
+        }
+    }
+
     /**
      * Test of getDocTemplateExtractions method, of class Corpus.
      */
@@ -349,4 +529,205 @@ public class CorpusTest {
         Hits result = instance.queryNoEscape(query);
         assertEquals(1,result.length());
     }
+
+    /**
+     * Test that rules of regular expressions, partial literals and orthographic
+     * matches are answered from the index, and hit every context they match
+     */
+    @Test
+    public void testQueryCharacters() throws Exception {
+        System.out.println("queryCharacters");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        String[] rules = { " :- begins(\"vacc\")", " :- ends(\"ction\")", " :- contains(\"luen\")",
+            " :- regex(\"Gen.*a\")", " :- regex(\"[A-Z]1N1\")", " :- ortho(\"Nd\")" };
+        for(String ruleStr : rules) {
+            final Rule rule = Rule.ruleFromString(ruleStr, Rule.ENTITY_RULE);
+            SrlQuery query = rule.getCorpusQuery();
+            assertFalse(ruleStr, query.grams.isEmpty() && query.categories.isEmpty());
+            final Set<String> hits = new TreeSet<String>();
+            instance.query(query, new QueryHit() {
+
+                public void hit(Document d, StopSignal signal) {
+                    hits.add(d.getField("name").stringValue());
+                }
+            });
+            Set<String> matches = new TreeSet<String>();
+            int contexts = 0;
+            for(String docName : instance.getDocNames()) {
+                for(TokenArrayDocument sent : instance.getDocTokenizedSentences(docName)) {
+                    contexts++;
+                    if(!rule.getMatch(sent, true).isEmpty())
+                        matches.add(sent.getName());
+                }
+            }
+            assertFalse(ruleStr, matches.isEmpty());
+            assertTrue(ruleStr, hits.containsAll(matches));
+            assertTrue(ruleStr, hits.size() < contexts);
+        }
+    }
+
+    /**
+     * Test that a context with no characters to index does not stop the character
+     * fields being queried when the corpus is opened again
+     */
+    @Test
+    public void testCharIndex() throws Exception {
+        System.out.println("charIndex");
+        File path = new File("test_charindex/");
+        Processor processor = Processor.getProcessor("English");
+        Corpus instance = Corpus.openCorpus(path, processor, true);
+        instance.addDoc("doc", "The vaccine is ready. Another sentence follows.", false);
+        IndexReader reader = instance.acquireReader();
+        Document old;
+        try {
+            TermDocs td = reader.termDocs(new Term("key", "doc 1"));
+            assertTrue(td.next());
+            old = reader.document(td.doc());
+            td.close();
+        } finally {
+            instance.releaseReader(reader);
+        }
+        instance.updateContext(old, " ", " ", true);
+        instance.closeCorpus();
+        instance = Corpus.openCorpus(path, processor, false);
+        try {
+            final List<String> hits = new LinkedList<String>();
+            instance.query(Rule.ruleFromString(" :- begins(\"vacc\")", Rule.ENTITY_RULE).getCorpusQuery(), new QueryHit() {
+
+                public void hit(Document d, StopSignal signal) {
+                    hits.add(d.getField("name").stringValue());
+                }
+            });
+            assertEquals(1, hits.size());
+            assertEquals("doc 0", hits.get(0));
+        } finally {
+            instance.closeCorpus();
+            for(File f : path.listFiles()) {
+                f.delete();
+            }
+            path.delete();
+        }
+    }
+
+    /**
+     * Test of scan method, of class Corpus.
+     */
+    @Test
+    public void testScan() throws Exception {
+        System.out.println("scan");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        Set<String> contexts = new TreeSet<String>();
+        for(String docName : instance.getDocNames()) {
+            for(TokenArrayDocument sent : instance.getDocTokenizedSentences(docName)) {
+                contexts.add(sent.getName());
+            }
+        }
+        for(int threads = 1; threads <= 3; threads++) {
+            final Set<String> hits = new TreeSet<String>();
+            instance.scan(new QueryHit() {
+
+                public void hit(Document d, StopSignal signal) {
+                    synchronized(hits) {
+                        assertTrue(hits.add(d.getField("name").stringValue()));
+                    }
+                }
+            }, null, threads);
+            assertEquals(contexts, hits);
+        }
+        final List<String> hits = new LinkedList<String>();
+        instance.scan(new QueryHit() {
+
+            public void hit(Document d, StopSignal signal) {
+                hits.add(d.getField("name").stringValue());
+                signal.stop();
+            }
+        }, new StopSignal(), 1);
+        assertEquals(1, hits.size());
+        try {
+            instance.scan(new QueryHit() {
+
+                public void hit(Document d, StopSignal signal) {
+                }
+            }, null, 0);
+            fail("Scan with no threads");
+        } catch(IllegalArgumentException x) {
+        }
+    }
+
+    /**
+     * Test that the contexts are read from the sentence store as they would be tokenized
+     */
+    @Test
+    public void testSentenceStore() throws Exception {
+        System.out.println("sentenceStore");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        instance.addDoc("sentencestore", "He went to <name cl=\"place\"> Geneva </name> in July.", true, true);
+        try {
+            Document d = instance.getDoc("sentencestore 0");
+            assertNotNull(d.getField("sid"));
+            for (boolean tagged : new boolean[] { false, true }) {
+                TokenArrayDocument expResult = new TokenArrayDocument(d, instance.processor, tagged);
+                TokenArrayDocument result = instance.readContext(d, tagged);
+                assertEquals(expResult.size(), result.size());
+                for (int i = 0; i < expResult.size(); i++) {
+                    assertEquals(expResult.get(i).termText(), result.get(i).termText());
+                    assertEquals(expResult.get(i).startOffset(), result.get(i).startOffset());
+                }
+                assertEquals(expResult.toStringTagged(), result.toStringTagged());
+                // The record is enough without the contents
+                Document stripped = new Document();
+                stripped.add(d.getField("name"));
+                stripped.add(d.getField("sid"));
+                assertEquals(expResult.toStringTagged(), instance.readContext(stripped, tagged).toStringTagged());
+            }
+        } finally {
+            instance.removeDoc("sentencestore", true);
+        }
+    }
+
+    /**
+     * Test that the hits of a query are cached until the corpus changes
+     */
+    @Test
+    public void testQueryCache() throws Exception {
+        System.out.println("queryCache");
+        Corpus instance = SRLGUITestSuite.proj.corpus;
+        QueryCache cache = instance.getQueryCache();
+        SrlQuery query = Rule.ruleFromString(" :- \"health\" \"organization\"", Rule.ENTITY_RULE).getCorpusQuery();
+        final List<String> hits = new LinkedList<String>();
+        QueryHit collector = new QueryHit() {
+
+            public void hit(Document d, StopSignal signal) {
+                hits.add(d.getField("name").stringValue());
+            }
+        };
+        long misses = cache.misses();
+        instance.query(query, collector);
+        assertEquals(misses + 1, cache.misses());
+        assertFalse(hits.isEmpty());
+        List<String> expResult = new LinkedList<String>(hits);
+        hits.clear();
+        instance.query(query, collector);
+        assertEquals(misses + 1, cache.misses());
+        assertEquals(expResult, hits);
+        // Changing only the tags does not repeat the query
+        Document d = instance.getDoc(expResult.get(0));
+        String taggedContents = Corpus.taggedContents(d);
+        instance.updateContext(d, d.getField("contents").stringValue(), "<name cl=\"test\"> " + taggedContents + " </name>", true);
+        hits.clear();
+        instance.query(query, collector);
+        assertEquals(misses + 1, cache.misses());
+        // The updated context is now last in the index
+        assertEquals(new TreeSet<String>(expResult), new TreeSet<String>(hits));
+        instance.updateContext(instance.getDoc(expResult.get(0)), d.getField("contents").stringValue(), taggedContents, true);
+        // Changing the contents does
+        String docName = expResult.get(0).substring(0, expResult.get(0).indexOf(' '));
+        String contents = instance.getPlainDocContents(docName);
+        instance.updateDoc(docName, contents + " Another sentence.", true);
+        hits.clear();
+        instance.query(query, collector);
+        assertEquals(misses + 2, cache.misses());
+        assertEquals(new TreeSet<String>(expResult), new TreeSet<String>(hits));
+        instance.updateDoc(docName, contents, true);
+    }
 }
\ No newline at end of file
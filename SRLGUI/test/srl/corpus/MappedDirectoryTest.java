@@ -0,0 +1,110 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.corpus;
+
+import java.io.File;
+import java.util.List;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author john
+ */
+public class MappedDirectoryTest {
+
+    static File path = new File("test_mapped/");
+
+    public MappedDirectoryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        deleteDir(path);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        deleteDir(path);
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static boolean deleteDir(File dir) {
+        if (dir.isDirectory()) {
+            for (String child : dir.list()) {
+                if (!deleteDir(new File(dir, child))) {
+                    return false;
+                }
+            }
+        }
+        return dir.delete();
+    }
+
+    /**
+     * Test of openInput method, of class MappedDirectory.
+     */
+    @Test
+    public void testOpenInput() throws Exception {
+        System.out.println("openInput");
+        FSDirectory fsDir = FSDirectory.getDirectory(new File(path, "input"));
+        IndexOutput out = fsDir.createOutput("test");
+        for (int i = 0; i < 100; i++) {
+            out.writeVInt(i * 1000);
+        }
+        out.writeString("geneva");
+        out.close();
+        // Use a small chunk size so that reads cross chunk boundaries
+        MappedDirectory instance = new MappedDirectory(fsDir, 4);
+        IndexInput in = instance.openInput("test");
+        assertEquals(fsDir.fileLength("test"), in.length());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 1000, in.readVInt());
+        }
+        long pos = in.getFilePointer();
+        assertEquals("geneva", in.readString());
+        assertEquals(in.length(), in.getFilePointer());
+        in.seek(pos);
+        IndexInput clone = (IndexInput) in.clone();
+        assertEquals("geneva", clone.readString());
+        assertEquals(pos, in.getFilePointer());
+        in.seek(0);
+        byte[] b = new byte[(int) in.length()];
+        in.readBytes(b, 0, b.length);
+        assertEquals(0, b[0]);
+        assertEquals('a', b[b.length - 1]);
+        in.close();
+        clone.close();
+    }
+
+    /**
+     * Test of a corpus read from memory mapped files
+     */
+    @Test
+    public void testMappedCorpus() throws Exception {
+        System.out.println("mappedCorpus");
+        Corpus corpus = Corpus.openCorpus(new File(path, "corpus"), Processor.getProcessor("English"), true, true);
+        assertTrue(corpus.isMapped());
+        corpus.addDoc("mappedDoc", "The vaccine was announced in Geneva. It was made in July.", true);
+        List<String> result = corpus.getDocSentences("mappedDoc");
+        assertEquals(2, result.size());
+        assertEquals(1, corpus.query("geneva").length());
+        corpus.closeCorpus();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.corpus;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author john
+ */
+public class QueryCacheTest {
+
+    public QueryCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static QueryCache.Entry entry(long contentsGeneration, long tagsGeneration) {
+        return new QueryCache.Entry(1, contentsGeneration, tagsGeneration, new int[] { 1, 2, 3 },
+                new String[] { "doc 0", "doc 1", "doc 2" });
+    }
+
+    /**
+     * Test of get and put methods, of class QueryCache.
+     */
+    @Test
+    public void testGetPut() {
+        System.out.println("get/put");
+        QueryCache instance = new QueryCache(1024 * 1024);
+        QueryCache.Entry e = entry(1, -1);
+        assertNull(instance.get("q", 1, -1));
+        instance.put("q", e);
+        assertSame(e, instance.get("q", 1, -1));
+        assertEquals(1, instance.hits());
+        assertEquals(1, instance.misses());
+        assertEquals(e.memorySize(), instance.size());
+        // Out of date entries are removed
+        assertNull(instance.get("q", 2, -1));
+        assertEquals(0, instance.count());
+        assertEquals(0, instance.size());
+        instance.put("q", entry(2, 5));
+        assertNotNull(instance.get("q", 2, 5));
+        assertNull(instance.get("q", 2, 6));
+    }
+
+    /**
+     * Test that the least recently used queries are removed when the cache is full.
+     */
+    @Test
+    public void testEviction() {
+        System.out.println("eviction");
+        long entrySize = entry(1, -1).memorySize();
+        QueryCache instance = new QueryCache(entrySize * 2);
+        instance.put("a", entry(1, -1));
+        instance.put("b", entry(1, -1));
+        assertNotNull(instance.get("a", 1, -1));
+        instance.put("c", entry(1, -1));
+        assertEquals(2, instance.count());
+        assertNull(instance.get("b", 1, -1));
+        assertNotNull(instance.get("a", 1, -1));
+        instance.setCapacity(0);
+        assertEquals(0, instance.count());
+        instance.put("d", entry(1, -1));
+        assertEquals(0, instance.count());
+        instance.setCapacity(entrySize * 2);
+        instance.put("d", entry(1, -1));
+        instance.clear();
+        assertEquals(0, instance.count());
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Test of key method, of class SrlQuery.
+     */
+    @Test
+    public void testKey() {
+        System.out.println("key");
+        SrlQuery q1 = new SrlQuery();
+        q1.query.append("geneva\"");
+        q1.wordLists.add("a");
+        q1.wordLists.add("b");
+        SrlQuery q2 = new SrlQuery();
+        q2.query.append("geneva\"");
+        q2.wordLists.add("b");
+        q2.wordLists.add("a");
+        assertEquals(q1.key(), q2.key());
+        assertEquals(q1, q2);
+        assertEquals(q1.hashCode(), q2.hashCode());
+        q2.wordListSets.add("a");
+        assertFalse(q1.key().equals(q2.key()));
+    }
+}
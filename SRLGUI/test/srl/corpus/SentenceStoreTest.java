@@ -0,0 +1,144 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.corpus;
+
+import java.io.File;
+import java.util.BitSet;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author john
+ */
+public class SentenceStoreTest {
+
+    static File path = new File("test_sentences/");
+
+    public SentenceStoreTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        deleteDir(path);
+        path.mkdirs();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        deleteDir(path);
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static boolean deleteDir(File dir) {
+        if (dir.isDirectory()) {
+            for (String child : dir.list()) {
+                if (!deleteDir(new File(dir, child))) {
+                    return false;
+                }
+            }
+        }
+        return dir.delete();
+    }
+
+    private static TokenArrayDocument doc(String text) {
+        return new TokenArrayDocument("doc 0", text, Processor.getProcessor("English"));
+    }
+
+    /**
+     * Test of add and get methods, of class SentenceStore.
+     */
+    @Test
+    public void testAddGet() throws Exception {
+        System.out.println("add/get");
+        SentenceStore instance = SentenceStore.open(path, true, false);
+        assertEquals(0, instance.add(doc("He went to Geneva ."), null));
+        assertEquals(1, instance.add(doc("He went to Geneva ."), doc("He went to <name cl=\"place\"> Geneva </name> .")));
+        assertEquals(2, instance.size());
+        assertEquals("He went to Geneva .", instance.get(0, "doc 0", false).toStringTagged());
+        assertEquals("He went to Geneva .", instance.get(0, "doc 0", true).toStringTagged());
+        assertEquals("He went to Geneva .", instance.get(1, "doc 0", false).toStringTagged());
+        TokenArrayDocument result = instance.get(1, "doc 0", true);
+        assertEquals("doc 0", result.getName());
+        assertEquals("He went to <name cl=\"place\"> Geneva </name> .", result.toStringTagged());
+        assertEquals(TokenArrayDocument.BEGIN_TAG, result.kind(3));
+        assertNull(instance.get(2, "doc 0", false));
+        assertNull(instance.get(-1, "doc 0", false));
+        instance.close();
+    }
+
+    /**
+     * Test that the records are kept when the store is opened again, with and
+     * without mapping it.
+     */
+    @Test
+    public void testReopen() throws Exception {
+        System.out.println("reopen");
+        SentenceStore instance = SentenceStore.open(path, true, false);
+        for (int i = 0; i < 100; i++) {
+            instance.add(doc("Sentence number " + i + " ."), null);
+        }
+        instance.sync();
+        instance.close();
+        for (boolean map : new boolean[] { false, true }) {
+            instance = SentenceStore.open(path, false, map);
+            assertEquals(100, instance.size());
+            assertEquals("Sentence number 42 .", instance.get(42, "doc 42", false).toString());
+            instance.close();
+        }
+        instance = SentenceStore.open(path, false, true);
+        assertEquals(100, instance.add(doc("Another sentence ."), null));
+        // Read from the file, as only the synced records are mapped
+        assertEquals("Another sentence .", instance.get(100, "doc 100", false).toString());
+        instance.close();
+        instance = SentenceStore.open(path, true, false);
+        assertEquals(0, instance.size());
+        instance.close();
+    }
+
+    /**
+     * Test of compact method, of class SentenceStore.
+     */
+    @Test
+    public void testCompact() throws Exception {
+        System.out.println("compact");
+        SentenceStore instance = SentenceStore.open(path, true, false);
+        for (int i = 0; i < 10; i++) {
+            instance.add(doc("Sentence number " + i + " ."), null);
+        }
+        BitSet live = new BitSet();
+        live.set(3);
+        live.set(7);
+        long before = new File(path, SentenceStore.DATA_FILE).length();
+        instance.compact(live);
+        assertTrue(new File(path, SentenceStore.DATA_FILE).length() < before);
+        assertEquals(10, instance.size());
+        assertEquals(2, instance.records());
+        assertNull(instance.get(0, "doc 0", false));
+        assertEquals("Sentence number 3 .", instance.get(3, "doc 3", false).toString());
+        assertEquals("Sentence number 7 .", instance.get(7, "doc 7", false).toString());
+        assertEquals(10, instance.add(doc("Another sentence ."), null));
+        instance.sync();
+        instance.close();
+        instance = SentenceStore.open(path, false, true);
+        assertEquals(11, instance.size());
+        assertEquals(3, instance.records());
+        assertNull(instance.get(5, "doc 5", false));
+        assertEquals("Sentence number 7 .", instance.get(7, "doc 7", false).toString());
+        instance.close();
+    }
+}
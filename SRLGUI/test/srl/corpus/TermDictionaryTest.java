@@ -0,0 +1,106 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.corpus;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import srl.rule.CompiledRuleSet;
+import srl.rule.Rule;
+import srl.rule.RuleSet;
+import srl.tools.struct.Pair;
+
+/**
+ *
+ * @author john
+ */
+public class TermDictionaryTest {
+
+    public TermDictionaryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of getID method, of class TermDictionary.
+     */
+    @Test
+    public void testGetID() {
+        System.out.println("getID");
+        int id = TermDictionary.getID("Dictionary");
+        assertEquals(id, TermDictionary.getID("dictionary"));
+        assertEquals(id, TermDictionary.lookup("DICTIONARY"));
+        assertEquals("dictionary", TermDictionary.getTerm(id));
+        assertTrue(id != TermDictionary.getID("dictionaries"));
+    }
+
+    /**
+     * Test of lookup method, of class TermDictionary.
+     */
+    @Test
+    public void testLookup() {
+        System.out.println("lookup");
+        int size = TermDictionary.size();
+        assertEquals(TermDictionary.NONE, TermDictionary.lookup("not-in-the-dictionary"));
+        assertEquals(size, TermDictionary.size());
+    }
+
+    /**
+     * Test that documents are given term IDs
+     */
+    @Test
+    public void testDocument() {
+        System.out.println("document");
+        TokenArrayDocument doc = new TokenArrayDocument("name", "Geneva <name cl=\"x\"> geneva </name>", Processor.getProcessor("English"));
+        int id = TermDictionary.getID("geneva");
+        int found = 0;
+        for(int i = 0; i < doc.size(); i++) {
+            if(doc.kind(i) != TokenArrayDocument.TERM) {
+                assertEquals(TermDictionary.NONE, doc.termID(i));
+            } else if(doc.termEqualsIgnoreCase(i, "geneva")) {
+                assertEquals(id, doc.termID(i));
+                found++;
+            }
+        }
+        assertEquals(2, found);
+    }
+
+    /**
+     * Test that tagging text does not add its terms to the dictionary
+     */
+    @Test
+    public void testUnseenText() throws Exception {
+        System.out.println("unseenText");
+        RuleSet ruleSet = new RuleSet(Rule.ENTITY_RULE, "test");
+        ruleSet.rules.add(new Pair<String, Rule>("rule", Rule.ruleFromString(" :- \"said\" name(location,X) { words(1,2) }", Rule.ENTITY_RULE)));
+        CompiledRuleSet rules = ruleSet.compile();
+        int size = TermDictionary.size();
+        String text = "Xyzzyville said Qwertonia was unseen 12345678";
+        Processor processor = Processor.getProcessor("English");
+        assertEquals(1, rules.getMatch(new SrlDocument("test", text, processor), null).size());
+        TokenArrayDocument doc = new TokenArrayDocument("test", text, processor);
+        assertEquals(1, rules.getMatch(doc, null).size());
+        assertEquals(TermDictionary.NONE, doc.termID(0));
+        assertEquals(size, TermDictionary.size());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.corpus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ListIterator;
+import org.apache.lucene.analysis.Token;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author john
+ */
+public class TokenArrayDocumentTest {
+
+    public TokenArrayDocumentTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private TokenArrayDocument tagged() {
+        SrlDocument doc = new SrlDocument("name");
+        doc.add(new Token("visit", 0, 5));
+        doc.add(new BeginTagToken("<name cl=\"location\">", 6, 6));
+        doc.add(new Token("Geneva", 6, 12));
+        doc.add(new EndTagToken("</name>", 12, 12));
+        return new TokenArrayDocument(doc);
+    }
+
+    /**
+     * Test of get method, of class TokenArrayDocument.
+     */
+    @Test
+    public void testGet() {
+        System.out.println("get");
+        TokenArrayDocument instance = tagged();
+        assertEquals(4, instance.size());
+        assertEquals("Geneva", instance.get(2).termText());
+        assertEquals(6, instance.get(2).startOffset());
+        assertEquals(12, instance.get(2).endOffset());
+        assertTrue(instance.get(1) instanceof BeginTagToken);
+        assertEquals("<name cl=\"location\">", ((BeginTagToken)instance.get(1)).getTag());
+        assertTrue(instance.get(3) instanceof EndTagToken);
+        ListIterator<Token> iter = instance.listIterator(2);
+        assertEquals("Geneva", iter.next().termText());
+        assertEquals("Geneva", iter.previous().termText());
+        assertTrue(iter.previous() instanceof BeginTagToken);
+    }
+
+    /**
+     * Test of kind, termText, termEquals, tagType and tagValue methods, of class TokenArrayDocument.
+     */
+    @Test
+    public void testArrays() {
+        System.out.println("arrays");
+        TokenArrayDocument instance = tagged();
+        assertEquals(TokenArrayDocument.TERM, instance.kind(0));
+        assertEquals(TokenArrayDocument.BEGIN_TAG, instance.kind(1));
+        assertEquals(TokenArrayDocument.END_TAG, instance.kind(3));
+        assertEquals("visit", instance.termText(0));
+        assertEquals("", instance.termText(1));
+        assertEquals('G', instance.charAt(2, 0));
+        assertTrue(instance.termEquals(2, "Geneva"));
+        assertFalse(instance.termEquals(2, "geneva"));
+        assertTrue(instance.termEqualsIgnoreCase(2, "geneva"));
+        assertFalse(instance.termEquals(1, ""));
+        assertEquals("name", instance.tagType(1));
+        assertEquals("location", instance.tagValue(1));
+        assertEquals("name", instance.tagType(3));
+        assertEquals("</name>", instance.getTag(3));
+        try {
+            instance.tagType(0);
+            fail("Term has no tag type");
+        } catch(IllegalArgumentException x) {
+        }
+    }
+
+    /**
+     * Test that a document read from text is the same as an SrlDocument.
+     */
+    @Test
+    public void testProcessor() {
+        System.out.println("processor");
+        Processor p = Processor.getProcessor("English");
+        String text = "He said <name cl=\"place\"> Geneva </name> was nice, again and again and again.";
+        SrlDocument expResult = new SrlDocument("name", text, p);
+        TokenArrayDocument result = new TokenArrayDocument("name", text, p);
+        int i = 0;
+        for(Token tk : expResult) {
+            assertEquals(tk.getClass(), result.get(i).getClass());
+            assertEquals(tk.termText(), result.get(i).termText());
+            i++;
+        }
+        assertEquals(i, result.size());
+        assertEquals(expResult.toString(), result.toString());
+        assertEquals(expResult.toStringTagged(), result.toStringTagged());
+    }
+
+    /**
+     * Test of write method, of class TokenArrayDocument, and of reading the
+     * document back.
+     */
+    @Test
+    public void testWrite() throws Exception {
+        System.out.println("write");
+        Processor p = Processor.getProcessor("English");
+        TokenArrayDocument[] docs = { tagged(),
+            new TokenArrayDocument("name", "He said <name cl=\"place\"> Genève </name> was nice \u00e9t\u00e9 \ud800 .", p),
+            new TokenArrayDocument("name", "", p) };
+        for(TokenArrayDocument expResult : docs) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            expResult.write(out);
+            out.close();
+            TokenArrayDocument result = new TokenArrayDocument("name", new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(expResult.size(), result.size());
+            for(int i = 0; i < expResult.size(); i++) {
+                assertEquals(expResult.kind(i), result.kind(i));
+                assertEquals(expResult.termText(i), result.termText(i));
+                assertEquals(expResult.termID(i), result.termID(i));
+                assertEquals(expResult.get(i).startOffset(), result.get(i).startOffset());
+                assertEquals(expResult.get(i).endOffset(), result.get(i).endOffset());
+            }
+            assertEquals(expResult.toStringTagged(), result.toStringTagged());
+        }
+    }
+
+    /**
+     * Test of add method, of class TokenArrayDocument.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAdd() {
+        System.out.println("add");
+        tagged().add(new Token("test", 0, 4));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.corpus;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author john
+ */
+public class TokenCacheTest {
+
+    public TokenCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static TokenArrayDocument doc(String name) {
+        return new TokenArrayDocument(name, "This is a test sentence", Processor.getProcessor("English"));
+    }
+
+    /**
+     * Test of get and put methods, of class TokenCache.
+     */
+    @Test
+    public void testGetPut() {
+        System.out.println("get/put");
+        TokenCache instance = new TokenCache(1024 * 1024);
+        TokenArrayDocument d = doc("doc 0");
+        assertNull(instance.get("1", false));
+        instance.put("1", false, d);
+        assertSame(d, instance.get("1", false));
+        assertNull(instance.get("1", true));
+        assertEquals(1, instance.count());
+        assertEquals(d.memorySize(), instance.size());
+        assertEquals(1, instance.hits());
+        assertEquals(2, instance.misses());
+        instance.put("1", false, d);
+        assertEquals(d.memorySize(), instance.size());
+    }
+
+    /**
+     * Test that the least recently used documents are removed when the cache is full.
+     */
+    @Test
+    public void testEviction() {
+        System.out.println("eviction");
+        long docSize = doc("doc 0").memorySize();
+        TokenCache instance = new TokenCache(docSize * 3);
+        for(int i = 0; i < 3; i++) {
+            instance.put("" + i, false, doc("doc " + i));
+        }
+        assertEquals(3, instance.count());
+        assertNotNull(instance.get("0", false));
+        instance.put("3", false, doc("doc 3"));
+        assertEquals(3, instance.count());
+        assertNotNull(instance.get("0", false));
+        assertNull(instance.get("1", false));
+        assertTrue(instance.size() <= docSize * 3);
+        instance.setCapacity(docSize);
+        assertEquals(1, instance.count());
+        assertNotNull(instance.get("0", false));
+        instance.setCapacity(0);
+        assertEquals(0, instance.count());
+        instance.put("4", false, doc("doc 4"));
+        assertEquals(0, instance.count());
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Test of remove and removeDoc methods, of class TokenCache.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+        TokenCache instance = new TokenCache(1024 * 1024);
+        instance.put("1", false, doc("doc 0"));
+        instance.put("1", true, doc("doc 0"));
+        instance.put("2", false, doc("doc 1"));
+        instance.put("3", false, doc("doc2 0"));
+        instance.remove("1");
+        assertEquals(2, instance.count());
+        assertNull(instance.get("1", true));
+        instance.removeDoc("doc");
+        assertEquals(1, instance.count());
+        assertNotNull(instance.get("3", false));
+        assertEquals(doc("doc2 0").memorySize(), instance.size());
+        instance.clear();
+        assertEquals(0, instance.count());
+        assertEquals(0, instance.size());
+    }
+}
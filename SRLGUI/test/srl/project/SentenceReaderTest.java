@@ -0,0 +1,84 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.project;
+
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import srl.corpus.Processor;
+import srl.corpus.SrlDocument;
+
+/**
+ *
+ * @author john
+ */
+public class SentenceReaderTest {
+
+    public SentenceReaderTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static List<String> readAll(String doc, Processor p) throws Exception {
+        SentenceReader instance = new SentenceReader(new StringReader(doc), p, "doc");
+        List<String> rval = new LinkedList<String>();
+        List<SrlDocument> sents;
+        while((sents = instance.next()) != null) {
+            for(SrlDocument sent : sents) {
+                rval.add(sent.toString());
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * Test of next method, of class SentenceReader.
+     */
+    @Test
+    public void testNext() throws Exception {
+        System.out.println("next");
+        Processor p = Processor.getProcessor("English");
+        List<String> result = readAll("The vaccine was announced in Geneva.\r\nIt was made in July. ", p);
+        assertEquals(2, result.size());
+        assertEquals("The vaccine was announced in Geneva .", result.get(0));
+        assertEquals(0, readAll("", p).size());
+        // Longer documents are read in several chunks, but split the same way
+        StringBuffer doc = new StringBuffer();
+        int n = 0;
+        while(doc.length() < 3 * SentenceReader.CHUNK_SIZE) {
+            doc.append("The vaccine was announced in Geneva on " + n++ + " July.\n");
+            if(n % 10 == 0)
+                doc.append("\n");
+        }
+        List<String> expResult = new LinkedList<String>();
+        for(SrlDocument sent : p.getSplitter().split(new SrlDocument("doc", doc.toString(), p), "doc")) {
+            expResult.add(sent.toString());
+        }
+        result = readAll(doc.toString(), p);
+        assertEquals(n, result.size());
+        assertEquals(expResult, result);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.project;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import srl.corpus.Processor;
+import srl.rule.MatchContext;
+import srl.rule.Rule;
+import srl.rule.RuleSet;
+import srl.test.SRLGUITestSuite;
+import srl.tools.struct.Pair;
+import srl.wordlist.WordListSet;
+
+/**
+ *
+ * @author john
+ */
+public class ServerTest {
+
+    static File path = new File("test_server/");
+
+    public ServerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        deleteDir(path);
+        SrlProject proj = new SrlProject(path, Processor.getProcessor("English"), true);
+        WordListSet wl = new WordListSet("places", proj.processor);
+        proj.wordlists.add(wl);
+        wl.addList("city");
+        WordListSet.addToList("city", new String[] { "geneva", "paris" });
+        RuleSet rs = new RuleSet(Rule.ENTITY_RULE, "places");
+        rs.rules.add(new Pair<String, Rule>("City", Rule.ruleFromString(":- name(location,X) { list(@city) }", Rule.ENTITY_RULE)));
+        proj.entityRulesets.add(rs);
+        RuleSet ts = new RuleSet(Rule.TEMPLATE_RULE, "went");
+        ts.rules.add(new Pair<String, Rule>("Went", Rule.ruleFromString("went(X) :- \"went\" words(,2) name(location,X)", Rule.TEMPLATE_RULE)));
+        proj.templateRulesets.add(ts);
+        proj.writeProject();
+        proj.corpus.closeCorpus();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        deleteDir(path);
+        // Loading the test project replaced the word lists of the suite's project
+        WordListSet.reset();
+        if(SRLGUITestSuite.proj != null) {
+            for(WordListSet wl : SRLGUITestSuite.proj.wordlists) {
+                wl.restore();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static boolean deleteDir(File dir) {
+        if (dir.isDirectory()) {
+            for (String child : dir.list()) {
+                if (!deleteDir(new File(dir, child))) {
+                    return false;
+                }
+            }
+        }
+        return dir.delete();
+    }
+
+    /**
+     * Test of serve method, of class Server.
+     */
+    @Test
+    public void testServe() throws Exception {
+        System.out.println("serve");
+        Server instance = new Server(path);
+        StringWriter sw = new StringWriter();
+        instance.serve(new BufferedReader(new StringReader("TAG He went to Geneva. It is big.\n" +
+                "extract He went to Paris.\n" +
+                "FOO\n" +
+                "QUIT\n" +
+                "TAG Ignored\n")), new PrintWriter(sw));
+        BufferedReader result = new BufferedReader(new StringReader(sw.toString()));
+        assertEquals("OK 2", result.readLine());
+        assertEquals("He went to <name cl=\"location\"> Geneva </name> .", result.readLine());
+        assertEquals("It is big .", result.readLine());
+        assertEquals("OK 1", result.readLine());
+        assertEquals("went(Paris)", result.readLine());
+        assertTrue(result.readLine().startsWith("ERROR"));
+        assertNull(result.readLine());
+    }
+
+    /**
+     * Test of reload method, of class Server.
+     */
+    @Test
+    public void testReload() throws Exception {
+        System.out.println("reload");
+        Server instance = new Server(path);
+        MatchContext context = new MatchContext();
+        File ruleFile = new File(new File(path, "template_rules"), "went.rule.srl");
+        PrintStream ps = new PrintStream(ruleFile, "UTF-8");
+        ps.println("Went: went(X) :- \"went\" words(,2) name(location,X)");
+        ps.println("In: in(X) :- \"in\" name(location,X)");
+        ps.close();
+        instance.reload();
+        List<String> result = instance.process("He went to Paris. He is in Geneva.", false, context);
+        assertEquals(2, result.size());
+        assertEquals("went(Paris)", result.get(0));
+        assertEquals("in(Geneva)", result.get(1));
+        // A broken rule set leaves the previous rules (and word lists) in use
+        ps = new PrintStream(ruleFile, "UTF-8");
+        ps.println("Went: went(X) :- \"went\" words(,2");
+        ps.close();
+        try {
+            instance.reload();
+            fail("Broken rule set loaded");
+        } catch(Exception x) {
+        }
+        result = instance.process("He went to Paris. He is in Geneva.", false, context);
+        assertEquals(2, result.size());
+        assertEquals("in(Geneva)", result.get(1));
+    }
+}
@@ -5,10 +5,6 @@
 
 package srl.rule;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -56,46 +52,6 @@ public class CaseSensitiveLiteralTest {
         assertEquals(expResult, query);
     }
 
-    /**
-     * Test of matches method, of class CaseSensitiveLiteral.
-     */
-    @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new Token("LiTeRaL", 0, 7);
-        int no = 0;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        CaseSensitiveLiteral instance = new CaseSensitiveLiteral("LiTeRaL");
-        TypeExpr expResult = new Literal("test");
-        instance.setNext(expResult);
-        TypeExpr result = instance.matches(token, no, stack, lookBackStack);
-        assertEquals(expResult, result);
-        token = new Token("literal",0,7);
-        result = instance.matches(token, no, stack, lookBackStack);
-        assertEquals(null, result);
-    }
-
-    /**
-     * Test of setNext method, of class CaseSensitiveLiteral.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-  
-
-    /**
-     * Test of reset method, of class CaseSensitiveLiteral.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
-    }
-
     /**
      * Test of getVal method, of class CaseSensitiveLiteral.
      */
@@ -120,18 +76,6 @@ public class CaseSensitiveLiteralTest {
         assertEquals(expResult, result);
     }
 
-    /**
-     * Test of canEnd method, of class CaseSensitiveLiteral.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        CaseSensitiveLiteral instance = new CaseSensitiveLiteral("LiTeRaL");
-        boolean expResult = false;
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of equals method, of class CaseSensitiveLiteral.
      */
@@ -0,0 +1,99 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.rule;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import srl.corpus.Processor;
+import srl.corpus.SrlDocument;
+import srl.tools.struct.Pair;
+
+/**
+ *
+ * @author john
+ */
+public class CompiledRuleSetTest {
+
+    String[] testRules = { " :- \"geneva\"",
+        " :- \"said\" optional(\"from\") \"geneva\"",
+        " :- not(\"from\") \"geneva\"",
+        " :- \"said\" \"from\"",
+        " :- begins(\"gen\")",
+        " :- name(location,X) { case(\"Geneva\") }"
+    };
+
+    public CompiledRuleSetTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private RuleSet ruleSet() throws Exception {
+        RuleSet ruleSet = new RuleSet(Rule.ENTITY_RULE, "test");
+        for(int i = 0; i < testRules.length; i++) {
+            ruleSet.rules.add(new Pair<String, Rule>("rule" + i, Rule.ruleFromString(testRules[i], Rule.ENTITY_RULE)));
+        }
+        return ruleSet;
+    }
+
+    /**
+     * Test of getMatches method, of class CompiledRuleSet.
+     */
+    @Test
+    public void testGetMatches() throws Exception {
+        System.out.println("getMatches");
+        SrlDocument sentence = new SrlDocument("test", "He said from Geneva that geneva was said to be nice",
+                Processor.getProcessor("English"));
+        RuleSet ruleSet = ruleSet();
+        CompiledRuleSet instance = ruleSet.compile();
+        assertEquals(testRules.length, instance.size());
+        List<List<HashMap<Entity, SrlMatchRegion>>> result = instance.getMatches(sentence, null);
+        int total = 0;
+        for(int i = 0; i < testRules.length; i++) {
+            List<HashMap<Entity, SrlMatchRegion>> expResult = instance.getRule(i).compile().getMatch(sentence, false);
+            assertEquals(testRules[i], expResult.size(), result.get(i).size());
+            total += expResult.size();
+        }
+        assertEquals(total, instance.getMatch(sentence, null).size());
+    }
+
+    /**
+     * Test of getMatches method, of class CompiledRuleSet, with some rules inactive.
+     */
+    @Test
+    public void testGetMatchesActive() throws Exception {
+        System.out.println("getMatchesActive");
+        SrlDocument sentence = new SrlDocument("test", "He said from Geneva",
+                Processor.getProcessor("English"));
+        CompiledRuleSet instance = ruleSet().compile();
+        BitSet active = new BitSet();
+        active.set(3);
+        List<List<HashMap<Entity, SrlMatchRegion>>> result = instance.getMatches(sentence, active);
+        assertEquals(0, result.get(0).size());
+        assertEquals(1, result.get(3).size());
+        assertEquals(1, instance.getMatch(sentence, active).size());
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.rule;
+
+import java.util.HashMap;
+import java.util.List;
+import org.apache.lucene.analysis.Token;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import srl.corpus.BeginTagToken;
+import srl.corpus.EndTagToken;
+import srl.corpus.Processor;
+import srl.corpus.SrlDocument;
+import srl.wordlist.WordListSet;
+
+/**
+ *
+ * @author john
+ */
+public class CompiledRuleTest {
+
+    static WordListSet wordLists;
+
+    public CompiledRuleTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        wordLists = new WordListSet("compiled_test", Processor.getProcessor("English"));
+        wordLists.addList("compiled_ab");
+        wordLists.addList("compiled_bc");
+        wordLists.addList("compiled_city");
+        WordListSet.addToList("compiled_ab", new String[] { "a", "b" });
+        WordListSet.addToList("compiled_bc", new String[] { "b", "c" });
+        WordListSet.addToList("compiled_city", new String[] { "new york", "york", "geneva" });
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        wordLists.removeList("compiled_ab");
+        wordLists.removeList("compiled_bc");
+        wordLists.removeList("compiled_city");
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private SrlDocument doc(String text) {
+        return new SrlDocument("test", text, Processor.getProcessor("English"));
+    }
+
+    /**
+     * Test of getMatch method, of class CompiledRule.
+     */
+    @Test
+    public void testGetMatch() throws Exception {
+        System.out.println("getMatch");
+        String[] rules = { " :- \"geneva\"",
+            " :- \"said\" optional(\"from\") \"geneva\"",
+            " :- not(\"from\") \"geneva\"",
+            " :- begins(\"gen\")",
+            " :- case(\"Geneva\")",
+            " :- \"said\" words(,2) \"geneva\""
+        };
+        int[] matchCount = { 2, 1, 1, 2, 1, 1 };
+        SrlDocument sentence = doc("He said from Geneva that geneva was said to be nice");
+        MatchContext context = new MatchContext();
+        for(int i = 0; i < rules.length; i++) {
+            CompiledRule instance = Rule.ruleFromString(rules[i], Rule.ENTITY_RULE).compile();
+            assertEquals(rules[i], matchCount[i], instance.getMatch(sentence, false).size());
+            assertEquals(rules[i], matchCount[i], instance.getMatch(sentence, false, context).size());
+        }
+    }
+
+    /**
+     * Test of getMatch method, of class CompiledRule, for entities
+     */
+    @Test
+    public void testGetMatchEntity() throws Exception {
+        System.out.println("getMatchEntity");
+        Rule rule = Rule.ruleFromString(" :- \"in\" name(location,X) { list(@compiled_city) }", Rule.ENTITY_RULE);
+        List<HashMap<Entity, SrlMatchRegion>> result = rule.compile().getMatch(doc("He lives in New York now"), false);
+        assertEquals(1, result.size());
+        SrlMatchRegion region = result.get(0).values().iterator().next();
+        assertEquals("New York", region.value.toString());
+        assertEquals(3, region.beginRegion);
+        assertEquals(5, region.endRegion);
+    }
+
+    /**
+     * Test that skipped words are found
+     */
+    @Test
+    public void testSkipWords() throws Exception {
+        System.out.println("skipWords");
+        Rule rule = Rule.ruleFromString(" :- words(,2) list(@compiled_ab) list(@compiled_bc)", Rule.ENTITY_RULE);
+        CompiledRule instance = rule.compile();
+        assertTrue(instance.matches(doc("a a b")));
+        assertFalse(instance.matches(doc("c a a")));
+    }
+
+    /**
+     * Test that words() takes as many words as it can
+     */
+    @Test
+    public void testGreedyWords() throws Exception {
+        System.out.println("greedyWords");
+        Rule rule = Rule.ruleFromString(" :- \"in\" name(location,X) { words(1,2) }", Rule.ENTITY_RULE);
+        List<HashMap<Entity, SrlMatchRegion>> result = rule.compile().getMatch(doc("He was in New York today"), false);
+        assertEquals(1, result.size());
+        SrlMatchRegion region = result.get(0).values().iterator().next();
+        assertEquals("New York", region.value.toString());
+        assertEquals(3, region.beginRegion);
+        assertEquals(5, region.endRegion);
+        assertEquals(2, region.ruleBegin);
+        assertEquals(5, region.ruleEnd);
+    }
+
+    /**
+     * Test of an optional word at the end of an entity
+     */
+    @Test
+    public void testOptionalInEntity() throws Exception {
+        System.out.println("optionalInEntity");
+        CompiledRule instance = Rule.ruleFromString(" :- name(location,X) { \"york\" optional(\"city\") }", Rule.ENTITY_RULE).compile();
+        List<HashMap<Entity, SrlMatchRegion>> result = instance.getMatch(doc("in York City"), false);
+        assertEquals(1, result.size());
+        assertEquals("York City", result.get(0).values().iterator().next().value.toString());
+        instance = Rule.ruleFromString(" :- \"in\" name(location,X) { optional(\"city\") }", Rule.ENTITY_RULE).compile();
+        result = instance.getMatch(doc("in City now"), false);
+        assertEquals(1, result.size());
+        assertEquals("City", result.get(0).values().iterator().next().value.toString());
+        result = instance.getMatch(doc("in York now"), false);
+        assertEquals(1, result.size());
+        assertEquals("York", result.get(0).values().iterator().next().value.toString());
+    }
+
+    /**
+     * Test that every way a rule can match from one token is found
+     */
+    @Test
+    public void testSeveralMatches() throws Exception {
+        System.out.println("severalMatches");
+        Rule rule = Rule.ruleFromString(" :- \"to\" words(,3) name(location,X) { list(@compiled_city) }", Rule.ENTITY_RULE);
+        List<HashMap<Entity, SrlMatchRegion>> result = rule.compile().getMatch(doc("went to New York today"), false);
+        assertEquals(2, result.size());
+        SrlMatchRegion region = result.get(0).values().iterator().next();
+        assertEquals("New York", region.value.toString());
+        assertEquals(2, region.beginRegion);
+        assertEquals(4, region.endRegion);
+        region = result.get(1).values().iterator().next();
+        assertEquals("York", region.value.toString());
+        assertEquals(3, region.beginRegion);
+        assertEquals(4, region.endRegion);
+        assertEquals(1, rule.compile().getMatch(doc("went to New York today"), true).size());
+    }
+
+    /**
+     * Test not() of a word list over a long sentence, where each token looks back
+     * only as far as an entry of the list could reach
+     */
+    @Test
+    public void testNotList() throws Exception {
+        System.out.println("notList");
+        Rule rule = Rule.ruleFromString(" :- not(@compiled_city) name(location,X) { \"city\" }", Rule.ENTITY_RULE);
+        StringBuffer text = new StringBuffer();
+        for(int i = 0; i < 200; i++) {
+            text.append("new york city and the city of york city ");
+        }
+        List<HashMap<Entity, SrlMatchRegion>> result = rule.compile().getMatch(doc(text.toString()), false);
+        assertEquals(200, result.size());
+        SrlMatchRegion region = result.get(0).values().iterator().next();
+        assertEquals(5, region.beginRegion);
+        assertEquals(6, region.endRegion);
+        region = result.get(199).values().iterator().next();
+        assertEquals(199 * 9 + 5, region.beginRegion);
+    }
+
+    /**
+     * Test that a rule is recompiled when it is changed
+     */
+    @Test
+    public void testCompile() throws Exception {
+        System.out.println("compile");
+        Rule rule = Rule.ruleFromString(" :- \"geneva\"", Rule.ENTITY_RULE);
+        CompiledRule instance = rule.compile();
+        assertSame(instance, rule.compile());
+        rule.addTypeExpr(new Literal("city"));
+        assertNotSame(instance, rule.compile());
+        assertEquals(1, rule.getMatch(doc("Geneva city"), false).size());
+        assertEquals(0, rule.getMatch(doc("Geneva town"), false).size());
+    }
+
+    /**
+     * Test of getHeads method, of class CompiledRule.
+     */
+    @Test
+    public void testGetHeads() throws Exception {
+        System.out.println("getHeads");
+        SrlDocument sentence = new SrlDocument("test");
+        sentence.add(new Token("visit", 0, 5));
+        sentence.add(new BeginTagToken("<name cl=\"location\">", 6, 6));
+        sentence.add(new Token("Geneva", 6, 12));
+        sentence.add(new EndTagToken("</name>", 12, 12));
+        Rule rule = Rule.ruleFromString("place(X) :- \"visit\" name(location,X) { words(1,) }", Rule.TEMPLATE_RULE);
+        List<String> result = rule.compile().getHeads(sentence);
+        assertEquals(1, result.size());
+        assertEquals("place(Geneva)", result.get(0));
+    }
+}
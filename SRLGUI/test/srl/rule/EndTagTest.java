@@ -5,16 +5,11 @@
 
 package srl.rule;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
-import srl.corpus.EndTagToken;
 import static org.junit.Assert.*;
 import srl.corpus.SrlQuery;
 
@@ -57,53 +52,6 @@ public class EndTagTest {
         assertEquals(expResult, query);
     }
 
-    /**
-     * Test of matches method, of class EndTag.
-     */
-    @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new EndTagToken("</type>", 0, 7);
-        int tokenNo = 0;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        EndTag instance = new EndTag("type");
-        TypeExpr expResult = new Literal("literal");
-        instance.setNext(expResult);
-        TypeExpr result = instance.matches(token, tokenNo, stack, lookBackStack);
-        assertEquals(expResult, result);
-    }
-
-    /**
-     * Test of setNext method, of class EndTag.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-    /**
-     * Test of reset method, of class EndTag.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
-    }
-
-    /**
-     * Test of canEnd method, of class EndTag.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        EndTag instance = new EndTag("type");
-        boolean expResult = false;
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of equals method, of class EndTag.
      */
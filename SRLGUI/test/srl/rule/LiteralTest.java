@@ -5,10 +5,6 @@
 
 package srl.rule;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -56,41 +52,6 @@ public class LiteralTest {
         assertEquals(expResult,query);
     }
 
-    /**
-     * Test of matches method, of class Literal.
-     */
-    @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new Token("literal",0,7);
-        int no = 0;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        Literal instance = new Literal("literal");
-        TypeExpr expResult = new DummyNode();
-        instance.setNext(expResult);
-        TypeExpr result = instance.matches(token, no, stack, lookBackStack);
-        assertEquals(expResult, result);
-    }
-
-    /**
-     * Test of setNext method, of class Literal.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-    /**
-     * Test of reset method, of class Literal.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
-    }
-
     /**
      * Test of getVal method, of class Literal.
      */
@@ -115,18 +76,6 @@ public class LiteralTest {
         assertEquals(expResult, result);
     }
 
-    /**
-     * Test of canEnd method, of class Literal.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        Literal instance = new Literal("literal");
-        boolean expResult = false;
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of equals method, of class Literal.
      */
@@ -5,10 +5,6 @@
 
 package srl.rule;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -42,36 +38,6 @@ public class NegativeLiteralTest {
     public void tearDown() {
     }
 
-    /**
-     * Test of matches method, of class NegativeLiteral.
-     */
-    @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new Token("test", 4,8);
-        int tokenNo = 1;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        lookBackStack.add(new Token("not",0,3));
-        NegativeLiteral instance = new NegativeLiteral("\"not\"");
-        TypeExpr expResult = null;
-        TypeExpr result = instance.matches(token, tokenNo, stack, lookBackStack);
-        assertEquals(expResult, result);
-    }
-
-    /**
-     * Test of canEnd method, of class NegativeLiteral.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        NegativeLiteral instance = new NegativeLiteral("\"not\"");
-        boolean expResult = true;
-        instance.setNext(new DummyNode());
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of copy method, of class NegativeLiteral.
      */
@@ -98,25 +64,6 @@ public class NegativeLiteralTest {
         assertEquals(expResult, query);
     }
 
-    /**
-     * Test of reset method, of class NegativeLiteral.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
-    }
-
-    /**
-     * Test of setNext method, of class NegativeLiteral.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-
     /**
      * Test of toString method, of class NegativeLiteral.
      */
@@ -5,10 +5,6 @@
 
 package srl.rule;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -42,44 +38,6 @@ public class OptionalLiteralTest {
     public void tearDown() {
     }
 
-    /**
-     * Test of matches method, of class OptionalLiteral.
-     */
-    @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new Token("literal",0,7);
-        int tokenNo = 0;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        OptionalLiteral instance = new OptionalLiteral("\"optional\"");
-        TypeExpr te = new Literal("literal");
-        instance.setNext(te);
-        TypeExpr expResult = new DummyNode();
-        te.setNext(expResult);
-        TypeExpr result = instance.matches(token, tokenNo, stack, lookBackStack);
-        assertEquals(expResult, result);
-
-        instance.reset();
-        token = new Token("optional",0,8);
-        expResult = te;
-        result = instance.matches(token, tokenNo, stack, lookBackStack);
-        assertEquals(expResult, result);
-    }
-
-    /**
-     * Test of canEnd method, of class OptionalLiteral.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        OptionalLiteral instance = new OptionalLiteral("\"literal\"");
-        boolean expResult = true;
-        instance.setNext(new DummyNode());
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of copy method, of class OptionalLiteral.
      */
@@ -106,25 +64,6 @@ public class OptionalLiteralTest {
         assertEquals(expResult, query);
     }
 
-    /**
-     * Test of reset method, of class OptionalLiteral.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
-    }
-
-    /**
-     * Test of setNext method, of class OptionalLiteral.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-   
     /**
      * Test of toString method, of class OptionalLiteral.
      */
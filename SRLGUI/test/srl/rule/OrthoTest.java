@@ -5,10 +5,6 @@
 
 package srl.rule;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -53,41 +49,12 @@ public class OrthoTest {
         expResult.query.append("\" \"");
         Ortho instance = new Ortho("4Nd");
         instance.getQuery(query);
-    }
-
-    /**
-     * Test of matches method, of class Ortho.
-     */
-    @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new Token("2009",0,4);
-        int no = 0;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        Ortho instance = new Ortho("4Nd");
-        TypeExpr expResult = new DummyNode();
-        instance.setNext(expResult);
-        TypeExpr result = instance.matches(token, no, stack, lookBackStack);
-        assertEquals(expResult, result);
-    }
-
-    /**
-     * Test of setNext method, of class Ortho.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-    /**
-     * Test of reset method, of class Ortho.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
+        expResult.categories.add("Nd");
+        assertEquals(expResult, query);
+        query = new SrlQuery();
+        new Ortho("^Lu|Np").getQuery(query);
+        expResult.categories.clear();
+        assertEquals(expResult, query);
     }
 
     /**
@@ -102,18 +69,6 @@ public class OrthoTest {
         assertEquals(expResult, result);
     }
 
-    /**
-     * Test of canEnd method, of class Ortho.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        Ortho instance = new Ortho("4Nd");
-        boolean expResult = false;
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of equals method, of class Ortho.
      */
@@ -7,8 +7,6 @@ package srl.rule;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -53,41 +51,56 @@ public class RegexTest {
         expResult.query.append("\" \"");
         Regex instance = new Regex(".");
         instance.getQuery(query);
+        assertEquals(expResult, query);
+        query = new SrlQuery();
+        new Regex("Gen.*a").getQuery(query);
+        expResult.addString("^Gen");
+        assertEquals(expResult, query);
     }
 
     /**
-     * Test of matches method, of class Regex.
+     * Test of requiredStrings method, of class Regex.
      */
     @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new Token("127.0.0.1", 0,9);
-        int no = 0;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        Regex instance = new Regex("\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}");
-        TypeExpr expResult = new DummyNode();
-        instance.setNext(expResult);
-        TypeExpr result = instance.matches(token, no, stack, lookBackStack);
-        assertEquals(expResult, result);
+    public void testRequiredStrings() {
+        System.out.println("requiredStrings");
+        assertEquals(list("^abc$"), Regex.requiredStrings("abc"));
+        assertEquals(list("^ab", "cd$"), Regex.requiredStrings("ab.*cd"));
+        assertEquals(list("^ab", "bc$"), Regex.requiredStrings("^ab+c$"));
+        assertEquals(list("^a.b", "cde$"), Regex.requiredStrings("a\\.bx?cde"));
+        assertEquals(list("xyz"), Regex.requiredStrings("[a-z]+xyz\\d{2,}"));
+        assertEquals(list("tion$"), Regex.requiredStrings("(pre|post)?\\p{L}*tion"));
+        assertEquals(list(), Regex.requiredStrings("abc|def"));
+        assertEquals(list(), Regex.requiredStrings("(?x)a b c"));
+        assertEquals(list(), Regex.requiredStrings("\\Qa.b\\E"));
+        assertEquals(list(), Regex.requiredStrings("[abc"));
+        assertEquals(list("^ab", "cd$"), Regex.requiredStrings("ab\\x41cd"));
+        // Every string found must be in every token matched
+        String[][] tests = {
+            { "ab+c", "abc", "abbbc" },
+            { "a{2,3}b", "aab", "aaab" },
+            { "[]x]+yz", "]yz", "x]xyz" },
+            { "(?i)abc", "ABC", "aBc" },
+            { "x(a(b)c)*yz", "xyz", "xabcabcyz" },
+            { "\\$\\d+\\.00", "$5.00", "$100.00" },
+            { "\\u0041b\\0101c", "AbAc" }
+        };
+        for(String[] test : tests) {
+            for(int i = 1; i < test.length; i++) {
+                assertTrue(test[i].matches(test[0]));
+                for(String s : Regex.requiredStrings(test[0])) {
+                    assertTrue(test[0] + " " + s, ("^" + test[i] + "$").toLowerCase().contains(s.toLowerCase()));
+                }
+            }
+        }
     }
 
-    /**
-     * Test of setNext method, of class Regex.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-    /**
-     * Test of reset method, of class Regex.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
+    private static List<String> list(String... strings) {
+        List<String> rval = new LinkedList<String>();
+        for(String s : strings) {
+            rval.add(s);
+        }
+        return rval;
     }
 
     /**
@@ -102,18 +115,6 @@ public class RegexTest {
         assertEquals(expResult, result);
     }
 
-    /**
-     * Test of canEnd method, of class Regex.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        Regex instance = new Regex(".");
-        boolean expResult = false;
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of equals method, of class Regex.
      */
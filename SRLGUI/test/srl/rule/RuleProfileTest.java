@@ -0,0 +1,125 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.rule;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.BitSet;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import srl.corpus.Processor;
+import srl.corpus.SrlDocument;
+import srl.tools.struct.Pair;
+
+/**
+ *
+ * @author john
+ */
+public class RuleProfileTest {
+
+    public RuleProfileTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private CompiledRuleSet rules() throws Exception {
+        RuleSet ruleSet = new RuleSet(Rule.ENTITY_RULE, "test");
+        ruleSet.rules.add(new Pair<String, Rule>("Geneva", Rule.ruleFromString(" :- \"geneva\"", Rule.ENTITY_RULE)));
+        ruleSet.rules.add(new Pair<String, Rule>("Words", Rule.ruleFromString(" :- words(1,) \"nice\"", Rule.ENTITY_RULE)));
+        ruleSet.rules.add(new Pair<String, Rule>("Paris", Rule.ruleFromString(" :- \"paris\"", Rule.ENTITY_RULE)));
+        return ruleSet.compile();
+    }
+
+    /**
+     * Test of the counts made while matching, of class RuleProfile.
+     */
+    @Test
+    public void testRecord() throws Exception {
+        System.out.println("record");
+        Processor processor = Processor.getProcessor("English");
+        CompiledRuleSet rules = rules();
+        RuleProfile instance = new RuleProfile(rules);
+        rules.setProfile(instance);
+        assertSame(instance, rules.getProfile());
+        MatchContext context = new MatchContext();
+        rules.getMatches(new SrlDocument("test", "He said that geneva was nice and geneva was big", processor), null, context);
+        BitSet active = new BitSet();
+        active.set(0);
+        rules.getMatches(new SrlDocument("test", "Geneva is in Switzerland", processor), active, context);
+        assertEquals(2, instance.getSentences(0));
+        assertEquals(2, instance.getMatchedSentences(0));
+        assertEquals(3, instance.getMatches(0));
+        assertEquals(1, instance.getSentences(1));
+        assertEquals(1, instance.getMatchedSentences(1));
+        assertEquals(1, instance.getSentences(2));
+        assertEquals(0, instance.getMatchedSentences(2));
+        assertEquals(0, instance.getMatches(2));
+        // The unanchored rule is started at every token
+        assertTrue(instance.getSteps(1) > instance.getSteps(0));
+        assertEquals(0, instance.getCandidates(0));
+        instance.addCandidate(0);
+        assertEquals(1, instance.getCandidates(0));
+        assertEquals(1, instance.indexOf("test", "Words"));
+        assertEquals(-1, instance.indexOf("other", "Words"));
+        rules.setProfile(null);
+        rules.getMatches(new SrlDocument("test", "Geneva", processor), null, context);
+        assertEquals(2, instance.getSentences(0));
+    }
+
+    /**
+     * Test of writeCSV method, of class RuleProfile.
+     */
+    @Test
+    public void testWriteCSV() throws Exception {
+        System.out.println("writeCSV");
+        CompiledRuleSet rules = rules();
+        RuleProfile instance = new RuleProfile(rules);
+        rules.setProfile(instance);
+        rules.getMatches(new SrlDocument("test", "Geneva is nice", Processor.getProcessor("English")), null);
+        StringWriter sw = new StringWriter();
+        RuleProfile.writeCSV(new PrintWriter(sw), instance);
+        String[] lines = sw.toString().split("\r?\n");
+        assertEquals(4, lines.length);
+        assertEquals("ruleSet,rule,candidates,sentences,matchedSentences,matches,steps,timeMs", lines[0]);
+        assertTrue(lines[1].startsWith("test,Geneva,0,1,1,1,"));
+        assertTrue(lines[3].startsWith("test,Paris,0,1,0,0,"));
+    }
+
+    /**
+     * Test of writeJSON method, of class RuleProfile.
+     */
+    @Test
+    public void testWriteJSON() throws Exception {
+        System.out.println("writeJSON");
+        CompiledRuleSet rules = rules();
+        RuleProfile instance = new RuleProfile(rules);
+        StringWriter sw = new StringWriter();
+        RuleProfile.writeJSON(new PrintWriter(sw), instance);
+        String result = sw.toString();
+        assertTrue(result.startsWith("["));
+        assertTrue(result.trim().endsWith("]"));
+        assertTrue(result.indexOf("{\"ruleSet\": \"test\", \"rule\": \"Words\", \"candidates\": 0") >= 0);
+        assertEquals(3, result.split("\\{").length - 1);
+    }
+}
@@ -11,15 +11,19 @@ import java.util.LinkedList;
 import java.util.List;
 import srl.tools.process.StopSignal;
 import srl.tools.struct.Pair;
+import org.apache.lucene.analysis.Token;
 import org.apache.lucene.document.Document;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import srl.corpus.BeginTagToken;
 import srl.corpus.Corpus;
 import srl.corpus.CorpusConcurrencyException;
 import static org.junit.Assert.*;
+import srl.corpus.EndTagToken;
+import srl.corpus.Processor;
 import srl.corpus.SrlDocument;
 import srl.corpus.SrlQuery;
 import srl.rule.parser.ParseException;
@@ -229,18 +233,41 @@ public class RuleTest {
      * Test of getMatch method, of class Rule.
      */
     @Test
-    public void testGetMatch_SrlDocument_boolean() {
+    public void testGetMatch_SrlDocument_boolean() throws Exception {
         System.out.println("getMatch");
-        System.out.println("skip");
+        Rule rule = Rule.ruleFromString(" :- \"said\" words(,2) name(location,X) { words(1,2) }", Rule.ENTITY_RULE);
+        SrlDocument sentence = new SrlDocument("test", "He said New York City today", Processor.getProcessor("English"));
+        // Each way words() can go is a match
+        List<HashMap<Entity, SrlMatchRegion>> result = rule.getMatch(sentence, false);
+        String[] values = { "New York", "York City", "City today" };
+        assertEquals(values.length, result.size());
+        for(int i = 0; i < values.length; i++) {
+            assertEquals(values[i], result.get(i).values().iterator().next().value.toString());
+        }
+        assertEquals(1, rule.getMatch(sentence, true).size());
     }
 
     /**
      * Test of getHeads method, of class Rule.
      */
     @Test
-    public void testGetHeads() {
+    public void testGetHeads() throws Exception {
         System.out.println("getHeads");
-        System.out.println("skip");
+        SrlDocument sentence = new SrlDocument("test");
+        sentence.add(new Token("went", 0, 4));
+        sentence.add(new Token("to", 5, 7));
+        sentence.add(new BeginTagToken("<name cl=\"location\">", 8, 8));
+        sentence.add(new Token("Rome", 8, 12));
+        sentence.add(new EndTagToken("</name>", 12, 12));
+        sentence.add(new Token("and", 13, 16));
+        sentence.add(new BeginTagToken("<name cl=\"location\">", 17, 17));
+        sentence.add(new Token("Paris", 17, 22));
+        sentence.add(new EndTagToken("</name>", 22, 22));
+        Rule rule = Rule.ruleFromString("loc(X) :- \"went\" words(,) name(location,X)", Rule.TEMPLATE_RULE);
+        List<String> result = rule.getHeads(sentence);
+        assertEquals(2, result.size());
+        assertEquals("loc(Rome)", result.get(0));
+        assertEquals("loc(Paris)", result.get(1));
     }
 
     /**
@@ -5,10 +5,6 @@
 
 package srl.rule;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Stack;
-import org.apache.lucene.analysis.Token;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -65,43 +61,6 @@ public class SkipWordsTest {
         System.out.println("skip");
     }
 
-    /**
-     * Test of matches method, of class SkipWords.
-     */
-    @Test
-    public void testMatches() {
-        System.out.println("matches");
-        Token token = new Token("literal",0,7);
-        int no = 0;
-        Stack<MatchFork> stack = new Stack<MatchFork>();
-        List<Token> lookBackStack = new LinkedList<Token>();
-        SkipWords instance = new SkipWords(0, 1);
-        TypeExpr expResult = new DummyNode();
-        instance.setNext(expResult);
-        TypeExpr result = instance.matches(token, no, stack, lookBackStack);
-        assertEquals(expResult, result);
-        assertTrue(!stack.isEmpty());
-    }
-
-    /**
-     * Test of setNext method, of class SkipWords.
-     */
-    @Test
-    public void testSetNext() {
-        System.out.println("setNext");
-        System.out.println("skip");
-    }
-
-
-    /**
-     * Test of reset method, of class SkipWords.
-     */
-    @Test
-    public void testReset() {
-        System.out.println("reset");
-        System.out.println("skip");
-    }
-
     /**
      * Test of toString method, of class SkipWords.
      */
@@ -114,25 +73,6 @@ public class SkipWordsTest {
         assertEquals(expResult, result);
     }
 
-    /**
-     * Test of canEnd method, of class SkipWords.
-     */
-    @Test
-    public void testCanEnd() {
-        System.out.println("canEnd");
-        SkipWords instance = new SkipWords(0, 1);
-        instance.setNext(new DummyNode());
-        boolean expResult = true;
-        boolean result = instance.canEnd();
-        assertEquals(expResult, result);
-
-        instance = new SkipWords(1, 2);
-        instance.setNext(new DummyNode());
-        expResult = false;
-        result = instance.canEnd();
-        assertEquals(expResult, result);
-    }
-
     /**
      * Test of equals method, of class SkipWords.
      */
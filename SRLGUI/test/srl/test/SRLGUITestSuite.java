@@ -13,13 +13,23 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import srl.corpus.CorpusExtractorTest;
 import srl.corpus.CorpusTest;
+import srl.corpus.MappedDirectoryTest;
+import srl.corpus.QueryCacheTest;
+import srl.corpus.SentenceStoreTest;
 import srl.corpus.SrlDocumentTest;
+import srl.corpus.TermDictionaryTest;
+import srl.corpus.TokenArrayDocumentTest;
+import srl.corpus.TokenCacheTest;
 import srl.corpus.StandardSplitterTest;
 import srl.project.SrlProject;
 import srl.project.SrlProjectTest;
+import srl.project.SentenceReaderTest;
+import srl.project.ServerTest;
 import srl.rule.BeginTagTest;
 import srl.rule.CaseSensitiveLiteralTest;
-import srl.rule.DummyNodeTest;
+import srl.rule.CompiledRuleSetTest;
+import srl.rule.RuleProfileTest;
+import srl.rule.CompiledRuleTest;
 import srl.rule.EndTagTest;
 import srl.rule.EntityTest;
 import srl.rule.ListMatchTest;
@@ -32,17 +42,19 @@ import srl.rule.RegexTest;
 import srl.rule.RuleTest;
 import srl.rule.SkipWordsTest;
 import srl.wordlist.WordListEntryTest;
+import srl.wordlist.WordListTest;
 import srl.wordlist.WordListSetTest;
+import srl.wordlist.WordListTrieTest;
 
 /**
  *
  * @author john
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({SrlProjectTest.class,CorpusTest.class,WordListEntryTest.class,WordListSetTest.class,RuleTest.class,
-CorpusExtractorTest.class, SrlDocumentTest.class, StandardSplitterTest.class, BeginTagTest.class, CaseSensitiveLiteralTest.class,
-DummyNodeTest.class, EndTagTest.class, EntityTest.class, ListMatchTest.class, LiteralTest.class, NegativeLiteralTest.class,
-OptionalLiteralTest.class, OrthoTest.class, PartialLiteralTest.class, RegexTest.class, SkipWordsTest.class, Finalize.class})
+@Suite.SuiteClasses({SrlProjectTest.class,CorpusTest.class,WordListEntryTest.class,WordListSetTest.class,WordListTest.class,WordListTrieTest.class,RuleTest.class,
+CorpusExtractorTest.class, SrlDocumentTest.class, TokenArrayDocumentTest.class, SentenceStoreTest.class, TokenCacheTest.class, QueryCacheTest.class, TermDictionaryTest.class, MappedDirectoryTest.class, StandardSplitterTest.class, SentenceReaderTest.class, BeginTagTest.class, CaseSensitiveLiteralTest.class,
+EndTagTest.class, EntityTest.class, ListMatchTest.class, LiteralTest.class, NegativeLiteralTest.class,
+OptionalLiteralTest.class, OrthoTest.class, PartialLiteralTest.class, RegexTest.class, SkipWordsTest.class, CompiledRuleTest.class, CompiledRuleSetTest.class, RuleProfileTest.class, ServerTest.class, Finalize.class})
 public class SRLGUITestSuite {
 
     public static SrlProject proj;
@@ -20,7 +20,11 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import org.apache.lucene.document.Document;
+import srl.corpus.Corpus;
 import srl.corpus.Processor;
+import srl.corpus.SrlQuery;
+import srl.tools.process.StopSignal;
 import srl.test.SRLGUITestSuite;
 
 /**
@@ -112,6 +116,80 @@ public class WordListSetTest {
         assertEquals(1, result.size());
     }
 
+    private int countWordListHits(String name) throws Exception {
+        SrlQuery query = new SrlQuery();
+        query.query.delete(0, 1);
+        query.wordLists.add(name);
+        final int[] hits = new int[1];
+        SRLGUITestSuite.proj.corpus.query(query, new Corpus.QueryHit() {
+            public void hit(Document d, StopSignal signal) {
+                hits[0]++;
+            }
+        }, null);
+        return hits[0];
+    }
+
+    /**
+     * Test that changes to word lists are applied to the corpus
+     */
+    @Test
+    public void testWordListUpdates() throws Exception {
+        System.out.println("wordListUpdates");
+        Corpus corpus = SRLGUITestSuite.proj.corpus;
+        corpus.waitOnWordListUpdates();
+        int before = countWordListHits("test_list");
+        WordList list = WordListSet.getWordList("test_list");
+        WordListEntry e1 = new WordListEntry("vaccine production", SRLGUITestSuite.proj.processor);
+        WordListEntry e2 = new WordListEntry("july", SRLGUITestSuite.proj.processor);
+        list.add(e1);
+        list.add(e2);
+        // The query waits for the changes to be applied
+        assertTrue(countWordListHits("test_list") > before);
+        list.remove(e1);
+        list.remove(e2);
+        corpus.waitOnWordListUpdates();
+        assertEquals(before, countWordListHits("test_list"));
+    }
+
+    /**
+     * Test that a query does not wait for changes to word lists while another
+     * thread has the corpus locked, but uses the current snapshot
+     */
+    @Test
+    public void testQueryWhileLocked() throws Exception {
+        System.out.println("queryWhileLocked");
+        Corpus corpus = SRLGUITestSuite.proj.corpus;
+        corpus.waitOnWordListUpdates();
+        final int before = countWordListHits("test_list");
+        WordList list = WordListSet.getWordList("test_list");
+        WordListEntry e = new WordListEntry("july", SRLGUITestSuite.proj.processor);
+        final int[] during = { -1 };
+        long id = corpus.reopenIndex(true);
+        try {
+            list.add(e);
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        during[0] = countWordListHits("test_list");
+                    } catch(Exception x) {
+                        x.printStackTrace();
+                    }
+                }
+            };
+            t.start();
+            t.join(10000);
+            assertFalse(t.isAlive());
+            assertEquals(before, during[0]);
+        } finally {
+            corpus.closeIndex(id);
+        }
+        assertTrue(countWordListHits("test_list") > before);
+        list.remove(e);
+        corpus.waitOnWordListUpdates();
+        assertEquals(before, countWordListHits("test_list"));
+    }
+
     /**
      * Test of getAllWordListNames method, of class WordListSet.
      */
@@ -0,0 +1,114 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.wordlist;
+
+import java.util.Iterator;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import srl.corpus.Processor;
+import srl.corpus.TermDictionary;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author john
+ */
+public class WordListTest {
+
+    public WordListTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static int[] ids(String... terms) {
+        int[] rv = new int[terms.length];
+        for(int i = 0; i < terms.length; i++) {
+            rv[i] = TermDictionary.getID(terms[i]);
+        }
+        return rv;
+    }
+
+    /**
+     * Test of find method, of class WordList.
+     */
+    @Test
+    public void testFind() {
+        System.out.println("find");
+        Processor p = Processor.getProcessor("English");
+        WordList instance = new WordList();
+        instance.add(new WordListEntry("new", p));
+        instance.add(new WordListEntry("new york", p));
+        instance.add(new WordListEntry("new york city", p));
+        instance.add(new WordListEntry("new zealand", p));
+        instance.add(new WordListEntry("york", p));
+        int[] sentence = ids("new", "york", "city", "today");
+        assertEquals(WordList.ENTRY | WordList.LONGER | WordList.LATER, instance.find(sentence, 1, 1));
+        assertEquals(WordList.ENTRY | WordList.LONGER | WordList.LATER, instance.find(sentence, 2, 1));
+        assertEquals(WordList.ENTRY | WordList.LATER, instance.find(sentence, 3, 1));
+        assertEquals(WordList.ENTRY, instance.find(sentence, 3, 2));
+        assertEquals(0, instance.find(sentence, 4, 3));
+        assertEquals(0, instance.find(ids("today"), 1, 1));
+        // LATER is for any entry with the same first words, even if the words are not an entry
+        assertEquals(WordList.LATER, instance.find(ids("new", "today"), 2, 1));
+    }
+
+    /**
+     * Test that the trie follows changes to the list
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+        Processor p = Processor.getProcessor("English");
+        WordList instance = new WordList();
+        instance.add(new WordListEntry("new", p));
+        instance.add(new WordListEntry("new york", p));
+        int[] sentence = ids("new", "york");
+        Iterator<WordListEntry> iter = instance.iterator();
+        while(iter.hasNext()) {
+            if(iter.next().toString().equals("new york"))
+                iter.remove();
+        }
+        assertEquals(WordList.ENTRY, instance.find(sentence, 1, 1));
+        assertEquals(0, instance.find(sentence, 2, 1));
+        instance.add(new WordListEntry("new york", p));
+        assertEquals(WordList.ENTRY | WordList.LONGER | WordList.LATER, instance.find(sentence, 1, 1));
+        assertEquals(WordList.ENTRY, instance.find(sentence, 2, 1));
+    }
+
+    /**
+     * Test of occursIn method, of class WordList.
+     */
+    @Test
+    public void testOccursIn() {
+        System.out.println("occursIn");
+        Processor p = Processor.getProcessor("English");
+        WordList instance = new WordList();
+        instance.add(new WordListEntry("new york city", p));
+        instance.add(new WordListEntry("geneva", p));
+        assertTrue(instance.occursIn(ids("to", "geneva")));
+        assertTrue(instance.occursIn(ids("in", "new", "york", "city")));
+        assertFalse(instance.occursIn(ids("in", "new", "york")));
+        assertFalse(instance.occursIn(ids("genevan", "new")));
+        assertFalse(instance.occursIn(new int[0]));
+    }
+}
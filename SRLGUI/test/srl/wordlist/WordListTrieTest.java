@@ -0,0 +1,107 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package srl.wordlist;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author john
+ */
+public class WordListTrieTest {
+
+    public WordListTrieTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of add, remove and find methods, of class WordListTrie.
+     */
+    @Test
+    public void testAddRemove() {
+        System.out.println("addRemove");
+        WordListTrie instance = new WordListTrie();
+        instance.add(new int[] { 1, 2 });
+        assertEquals(WordListTrie.LONGER | WordListTrie.LATER, instance.find(new int[] { 1, 2 }, 1, 1));
+        assertEquals(WordListTrie.ENTRY, instance.find(new int[] { 1, 2 }, 2, 1));
+        assertEquals(0, instance.find(new int[] { 2 }, 1, 1));
+        instance.remove(new int[] { 1, 2 });
+        instance.remove(new int[] { 3 });
+        assertFalse(instance.occursIn(new int[] { 1, 2 }));
+        instance.add(new int[] { 1 });
+        assertTrue(instance.occursIn(new int[] { 1, 2 }));
+    }
+
+    /**
+     * Test that entries can be added while other threads match
+     */
+    @Test
+    public void testConcurrentAddMatch() throws Exception {
+        System.out.println("concurrentAddMatch");
+        final int entries = 20000;
+        final WordListTrie instance = new WordListTrie();
+        final AtomicInteger added = new AtomicInteger(0);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] readers = new Thread[3];
+        for(int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        while(added.get() < entries) {
+                            int n = added.get();
+                            for(int i = Math.max(0, n - 50); i < n; i++) {
+                                assertEquals("entry " + i, WordListTrie.ENTRY, instance.find(new int[] { i, i + entries }, 2, 1));
+                                assertTrue("entry " + i, instance.occursIn(new int[] { -5, i, i + entries }));
+                            }
+                            // Entries being added must not break the readers
+                            instance.occursIn(new int[] { n, n + entries, n + 1, n + 1 + entries });
+                        }
+                    } catch(Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
+                }
+            };
+            readers[r].start();
+        }
+        for(int i = 0; i < entries; i++) {
+            instance.add(new int[] { i, i + entries });
+            added.incrementAndGet();
+        }
+        for(Thread reader : readers) {
+            reader.join();
+        }
+        if(error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        for(int i = 0; i < entries; i++) {
+            assertTrue(instance.occursIn(new int[] { i, i + entries }));
+        }
+    }
+}